@@ -227,14 +227,14 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
   /**
    * Gets the central registry of type violations.
    */
-  abstract Iterable<TypeMismatch> getTypeMismatches();
+  abstract TypeMismatchSet getTypeMismatches();
 
   /**
    * Gets all types that are used implicitly as a
    * matching interface type. These are
    * recorded as TypeMismatchs only for convenience
    */
-  abstract Iterable<TypeMismatch> getImplicitInterfaceUses();
+  abstract TypeMismatchSet getImplicitInterfaceUses();
 
   /**
    * Used only by the new type inference
@@ -339,6 +339,19 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
   /** Called to indicate that the current change stamp has been used */
   abstract void incrementChangeStamp();
 
+  /**
+   * Returns the global namespace of the given roots. The namespace is shared with previous
+   * passes if no code change was reported since it was created, so a pass that modifies the
+   * names or refs of the namespace must call {@link #invalidateGlobalNamespace} when done.
+   *
+   * @param externsRoot The root of the externs, or null to leave them out of the namespace.
+   * @param root The root of the rest of the code.
+   */
+  abstract GlobalNamespace getGlobalNamespace(Node externsRoot, Node root);
+
+  /** Stops sharing the global namespaces returned so far with later passes. */
+  abstract void invalidateGlobalNamespace();
+
   /** Returns the root of the source tree, ignoring externs */
   abstract Node getJsRoot();
 
@@ -446,6 +459,10 @@ public abstract class AbstractCompiler implements SourceExcerptProvider {
 
   abstract CompilerOptions getOptions();
 
+  /** Returns the tracker of the statistics of each pass, or null if the tracer mode is off. */
+  @Nullable
+  abstract PerformanceTracker getPerformanceTracker();
+
   abstract FeatureSet getFeatureSet();
 
   abstract void setFeatureSet(FeatureSet fs);
@@ -107,7 +107,10 @@ class AggressiveInlineAliases implements CompilerPass {
   public void process(Node externs, Node root) {
     while (this.codeChanged) {
       this.codeChanged = false;
-      GlobalNamespace namespace = new GlobalNamespace(compiler, root);
+      // Inlining only changes the namespace along with the AST, and the reported change drops it
+      // from the compiler's cache. So the namespace of the last round, which changes nothing, is
+      // handed on to the next pass, usually CollapseProperties.
+      GlobalNamespace namespace = compiler.getGlobalNamespace(null, root);
       inlineAliases(namespace);
     }
   }
@@ -19,16 +19,23 @@ package com.google.javascript.jscomp;
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
 import com.google.javascript.jscomp.NodeTraversal.Callback;
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.TextFormat;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Provides a framework for checking code against a set of user configured
@@ -58,12 +65,40 @@ public final class CheckConformance implements Callback, CompilerPass {
 
   private final AbstractCompiler compiler;
   private final ImmutableList<Rule> rules;
+  // The names under which the time spent in each rule is reported, parallel to rules.
+  private final ImmutableList<String> ruleNames;
+  private final RuleIndex index;
+
+  // The time spent in each rule in nanoseconds, parallel to rules, while the time is tracked.
+  @Nullable private long[] ruleRuntimes = null;
 
   public static interface Rule {
     /** Perform conformance check */
     void check(NodeTraversal t, Node n);
   }
 
+  /**
+   * A rule that can only find violations on a few kinds of nodes. It is only called for the nodes
+   * that it declares, rules that don't implement this interface are called for every node.
+   */
+  public static interface IndexedRule extends Rule {
+    /**
+     * Returns the tokens of the nodes that this rule checks, or null if the rule checks every
+     * node.
+     */
+    @Nullable
+    ImmutableSet<Token> getTokens();
+
+    /**
+     * Returns the names that this rule checks, or null if it checks every node with one of its
+     * tokens. The name of a NAME node is its string, the name of a GETPROP or of a GETELEM with a
+     * string key is the property name; other nodes have no name, and are not checked by a rule
+     * that returns names.
+     */
+    @Nullable
+    ImmutableSet<String> getNames();
+  }
+
   /**
    * @param configs The rules to check.
    */
@@ -71,14 +106,29 @@ public final class CheckConformance implements Callback, CompilerPass {
       AbstractCompiler compiler,
       ImmutableList<ConformanceConfig> configs) {
     this.compiler = compiler;
-    // Initialize the map of functions to inspect for renaming candidates.
-    this.rules = initRules(compiler, configs);
+    ImmutableList.Builder<Rule> rulesBuilder = ImmutableList.builder();
+    ImmutableList.Builder<String> namesBuilder = ImmutableList.builder();
+    initRules(compiler, configs, rulesBuilder, namesBuilder);
+    this.rules = rulesBuilder.build();
+    this.ruleNames = namesBuilder.build();
+    this.index = new RuleIndex(rules);
   }
 
   @Override
   public void process(Node externs, Node root) {
     if (!rules.isEmpty()) {
+      PerformanceTracker tracker = compiler.getPerformanceTracker();
+      if (tracker != null) {
+        ruleRuntimes = new long[rules.size()];
+      }
       NodeTraversal.traverseRootsEs6(compiler, this, externs, root);
+      if (tracker != null) {
+        for (int i = 0; i < rules.size(); i++) {
+          tracker.recordPartRuntime(
+              ruleNames.get(i), TimeUnit.NANOSECONDS.toMillis(ruleRuntimes[i]));
+        }
+        ruleRuntimes = null;
+      }
     }
   }
 
@@ -90,9 +140,17 @@ public final class CheckConformance implements Callback, CompilerPass {
 
   @Override
   public void visit(NodeTraversal t, Node n, Node parent) {
-    for (int i = 0, len = rules.size(); i < len; i++) {
-      Rule rule = rules.get(i);
-      rule.check(t, n);
+    int[] ruleIndices = index.getRules(n);
+    if (ruleRuntimes == null) {
+      for (int i : ruleIndices) {
+        rules.get(i).check(t, n);
+      }
+    } else {
+      for (int i : ruleIndices) {
+        long start = System.nanoTime();
+        rules.get(i).check(t, n);
+        ruleRuntimes[i] += System.nanoTime() - start;
+      }
     }
   }
 
@@ -100,17 +158,124 @@ public final class CheckConformance implements Callback, CompilerPass {
    * Build the data structures need by this pass from the provided
    * configurations.
    */
-  private static ImmutableList<Rule> initRules(
-      AbstractCompiler compiler, ImmutableList<ConformanceConfig> configs) {
-    ImmutableList.Builder<Rule> builder = ImmutableList.builder();
+  private static void initRules(
+      AbstractCompiler compiler,
+      ImmutableList<ConformanceConfig> configs,
+      ImmutableList.Builder<Rule> rules,
+      ImmutableList.Builder<String> ruleNames) {
     List<Requirement> requirements = mergeRequirements(compiler, configs);
     for (Requirement requirement : requirements) {
       Rule rule = initRule(compiler, requirement);
       if (rule != null) {
-        builder.add(rule);
+        rules.add(rule);
+        ruleNames.add(requirement.hasRuleId() ? requirement.getRuleId()
+            : requirement.getType() + ": " + requirement.getErrorMessage());
+      }
+    }
+  }
+
+  /**
+   * Finds the rules to call on a node, in the order in which they are configured. The rules that
+   * implement {@link IndexedRule} are looked up by the token and name of the node, the others are
+   * called on every node.
+   */
+  private static final class RuleIndex {
+    private final int[] unindexed;
+    // The unindexed rules and the rules for a token that check all of its names.
+    private final Map<Token, int[]> byToken = new EnumMap<>(Token.class);
+    // The rules above plus the rules for a token and one of its names.
+    private final Map<Token, Map<String, int[]>> byTokenAndName = new EnumMap<>(Token.class);
+
+    RuleIndex(List<Rule> rules) {
+      SortedSet<Integer> unindexedRules = new TreeSet<>();
+      Map<Token, SortedSet<Integer>> tokenRules = new EnumMap<>(Token.class);
+      Map<Token, Map<String, SortedSet<Integer>>> nameRules = new EnumMap<>(Token.class);
+      for (int i = 0; i < rules.size(); i++) {
+        Rule rule = rules.get(i);
+        if (rule instanceof ConformanceRules.CustomRuleProxy) {
+          rule = ((ConformanceRules.CustomRuleProxy) rule).customRule;
+        }
+        ImmutableSet<Token> tokens =
+            rule instanceof IndexedRule ? ((IndexedRule) rule).getTokens() : null;
+        if (tokens == null) {
+          unindexedRules.add(i);
+          continue;
+        }
+        ImmutableSet<String> names = ((IndexedRule) rule).getNames();
+        for (Token token : tokens) {
+          if (names == null) {
+            getOrCreate(tokenRules, token).add(i);
+          } else {
+            Map<String, SortedSet<Integer>> rulesByName = nameRules.get(token);
+            if (rulesByName == null) {
+              rulesByName = new HashMap<>();
+              nameRules.put(token, rulesByName);
+            }
+            for (String name : names) {
+              getOrCreate(rulesByName, name).add(i);
+            }
+          }
+        }
+      }
+
+      this.unindexed = Ints.toArray(unindexedRules);
+      Set<Token> tokens = new HashSet<>(tokenRules.keySet());
+      tokens.addAll(nameRules.keySet());
+      for (Token token : tokens) {
+        SortedSet<Integer> forToken = new TreeSet<>(unindexedRules);
+        if (tokenRules.containsKey(token)) {
+          forToken.addAll(tokenRules.get(token));
+        }
+        byToken.put(token, Ints.toArray(forToken));
+        if (nameRules.containsKey(token)) {
+          Map<String, int[]> forNames = new HashMap<>();
+          for (Map.Entry<String, SortedSet<Integer>> entry : nameRules.get(token).entrySet()) {
+            SortedSet<Integer> forName = new TreeSet<>(forToken);
+            forName.addAll(entry.getValue());
+            forNames.put(entry.getKey(), Ints.toArray(forName));
+          }
+          byTokenAndName.put(token, forNames);
+        }
+      }
+    }
+
+    private static <K> SortedSet<Integer> getOrCreate(Map<K, SortedSet<Integer>> map, K key) {
+      SortedSet<Integer> set = map.get(key);
+      if (set == null) {
+        set = new TreeSet<>();
+        map.put(key, set);
+      }
+      return set;
+    }
+
+    /** Returns the indices of the rules to call on the node, in increasing order. */
+    int[] getRules(Node n) {
+      Token token = n.getToken();
+      Map<String, int[]> forNames = byTokenAndName.get(token);
+      if (forNames != null) {
+        String name = getName(n);
+        int[] forName = name == null ? null : forNames.get(name);
+        if (forName != null) {
+          return forName;
+        }
+      }
+      int[] forToken = byToken.get(token);
+      return forToken != null ? forToken : unindexed;
+    }
+
+    @Nullable
+    private static String getName(Node n) {
+      switch (n.getToken()) {
+        case NAME:
+          return n.getString();
+        case GETPROP:
+          return n.getLastChild().getString();
+        case GETELEM:
+          return n.getLastChild().isString() ? n.getLastChild().getString() : null;
+        default:
+          return null;
       }
     }
-    return builder.build();
   }
 
   private static final ImmutableSet<String> EXTENDABLE_FIELDS =
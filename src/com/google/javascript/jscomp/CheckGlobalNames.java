@@ -82,7 +82,7 @@ class CheckGlobalNames implements CompilerPass {
   @Override
   public void process(Node externs, Node root) {
     if (namespace == null) {
-      namespace = new GlobalNamespace(compiler, externs, root);
+      namespace = compiler.getGlobalNamespace(externs, root);
     }
 
     // Find prototype properties that will affect our analysis.
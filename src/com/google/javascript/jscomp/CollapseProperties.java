@@ -96,7 +96,7 @@ class CollapseProperties implements CompilerPass {
 
   @Override
   public void process(Node externs, Node root) {
-    GlobalNamespace namespace = new GlobalNamespace(compiler, root);
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, root);
     nameMap = namespace.getNameIndex();
     globalNames = namespace.getNameForest();
     checkNamespaces();
@@ -111,6 +111,9 @@ class CollapseProperties implements CompilerPass {
     for (Name name : globalNames) {
       collapseDeclarationOfNameAndDescendants(name, name.getBaseName());
     }
+
+    // Collapsing updates the names as it goes, so the namespace can't be reused.
+    compiler.invalidateGlobalNamespace();
   }
 
   /**
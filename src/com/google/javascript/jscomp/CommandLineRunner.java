@@ -662,7 +662,7 @@ public class CommandLineRunner extends
         hidden = true,
         usage = "Shows the duration of each compiler pass and the impact to "
         + "the compiled output size. "
-        + "Options: ALL, AST_SIZE, RAW_SIZE, TIMING_ONLY, OFF")
+        + "Options: ALL, AST_SIZE, RAW_SIZE, INCREMENTAL_SIZE, TIMING_ONLY, OFF")
     private CompilerOptions.TracerMode tracerMode =
         CompilerOptions.TracerMode.OFF;
 
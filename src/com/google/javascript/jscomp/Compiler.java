@@ -291,6 +291,12 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   // returning 0 if the custom attribute on a node hasn't been set.
   private int changeStamp = 1;
 
+  private final GlobalNamespaceCache globalNamespaceCache = new GlobalNamespaceCache(this);
+
+  // The global typed scope restored from a saved state, with the fingerprints of the scripts it
+  // was built from. Null if the saved state had no typed scope.
+  private TypedScopeSnapshot typedScopeSnapshot = null;
+
   private final Timeline<Node> changeTimeline = new Timeline<>();
   private final Timeline<Node> deleteTimeline = new Timeline<>();
 
@@ -306,6 +312,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
    */
   public Compiler(PrintStream stream) {
     addChangeHandler(recentChange);
+    addChangeHandler(globalNamespaceCache);
     this.outStream = stream;
   }
 
@@ -507,18 +514,49 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     addFilesToSourceMap(inputs);
   }
 
+  /**
+   * Initializes the instance state needed for a compile job, taking the externs from a snapshot
+   * that was parsed ahead of time.
+   */
+  public <T extends SourceFile> void init(
+      ExternsSnapshot externs, List<T> inputs, CompilerOptions options) {
+    JSModule module = new JSModule(SINGLETON_MODULE_NAME);
+    for (SourceFile input : inputs) {
+      module.add(input);
+    }
+
+    List<JSModule> modules = new ArrayList<>(1);
+    modules.add(module);
+    initModules(externs, modules, options);
+    addFilesToSourceMap(inputs);
+  }
+
   /**
    * Initializes the instance state needed for a compile job if the sources
    * are in modules.
    */
   public <T extends SourceFile> void initModules(
       List<T> externs, List<JSModule> modules, CompilerOptions options) {
+    initModulesWithExternInputs(makeCompilerInput(externs, true), modules, options);
+  }
+
+  /**
+   * Initializes the instance state needed for a compile job if the sources
+   * are in modules, taking the externs from a snapshot that was parsed ahead of time.
+   */
+  public void initModules(
+      ExternsSnapshot externs, List<JSModule> modules, CompilerOptions options) {
+    initModulesWithExternInputs(externs.createExternInputs(), modules, options);
+  }
+
+  private void initModulesWithExternInputs(
+      List<CompilerInput> externs, List<JSModule> modules, CompilerOptions options) {
     initOptions(options);
 
     checkFirstModule(modules);
     fillEmptyModules(modules);
 
-    this.externs = makeCompilerInput(externs, true);
+    this.externs = externs;
 
     // Generate the module graph, and report any errors in the module
     // specification as errors.
@@ -716,31 +754,55 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
 
     try {
       init(externs, inputs, options);
-      if (options.printConfig) {
-        printConfig(System.err);
-      }
-      if (!hasErrors()) {
-        parseForCompilation();
-      }
-      if (!hasErrors()) {
-        if (options.getInstrumentForCoverageOnly()) {
-          // TODO(bradfordcsmith): The option to instrument for coverage only should belong to the
-          //     runner, not the compiler.
-          instrumentForCoverage();
-        } else {
-          stage1Passes();
-          if (!hasErrors()) {
-            stage2Passes();
-          }
-        }
-        performPostCompilationTasks();
-      }
+      compileInitialized();
+    } finally {
+      generateReport();
+    }
+    return getResult();
+  }
+
+  /**
+   * Compiles a list of inputs, taking the externs from a snapshot that was parsed ahead of time.
+   *
+   * @see #compile(List, List, CompilerOptions)
+   */
+  public <T extends SourceFile> Result compile(
+      ExternsSnapshot externs, List<T> inputs, CompilerOptions options) {
+    // The compile method should only be called once.
+    checkState(jsRoot == null);
+
+    try {
+      init(externs, inputs, options);
+      compileInitialized();
     } finally {
       generateReport();
     }
     return getResult();
   }
 
+  /** Parses and compiles the inputs that the compiler was initialized with. */
+  private void compileInitialized() {
+    if (options.printConfig) {
+      printConfig(System.err);
+    }
+    if (!hasErrors()) {
+      parseForCompilation();
+    }
+    if (!hasErrors()) {
+      if (options.getInstrumentForCoverageOnly()) {
+        // TODO(bradfordcsmith): The option to instrument for coverage only should belong to the
+        //     runner, not the compiler.
+        instrumentForCoverage();
+      } else {
+        stage1Passes();
+        if (!hasErrors()) {
+          stage2Passes();
+        }
+      }
+      performPostCompilationTasks();
+    }
+  }
+
   /**
    * Generates a report of all warnings and errors found during compilation to stderr.
    *
@@ -1642,7 +1704,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   }
 
   @Override
-  Iterable<TypeMismatch> getTypeMismatches() {
+  TypeMismatchSet getTypeMismatches() {
     switch (this.mostRecentTypechecker) {
       case OTI:
         return getTypeValidator().getMismatches();
@@ -1654,7 +1716,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
   }
 
   @Override
-  Iterable<TypeMismatch> getImplicitInterfaceUses() {
+  TypeMismatchSet getImplicitInterfaceUses() {
     switch (this.mostRecentTypechecker) {
       case OTI:
         return getTypeValidator().getImplicitInterfaceUses();
@@ -1702,6 +1764,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     beforePass(READING_PASS_NAME);
 
     try {
+      if (options.numParallelThreads > 1) {
+        new PrereadInputs(options.numParallelThreads).preread(Iterables.concat(externs, inputs));
+      }
       for (CompilerInput input : Iterables.concat(externs, inputs)) {
         try {
           input.getCode();
@@ -1719,7 +1784,8 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     if (options.getTracerMode().isOn()) {
       PrintStream tracerOutput =
           options.getTracerOutput() == null ? this.outStream : options.getTracerOutput();
-      tracker = new PerformanceTracker(externsRoot, jsRoot, options.getTracerMode(), tracerOutput);
+      tracker = new PerformanceTracker(
+          this, externsRoot, jsRoot, options.getTracerMode(), tracerOutput);
       addChangeHandler(tracker.getCodeChangeHandler());
     }
   }
@@ -1741,6 +1807,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     // individual file parse trees.
     externsRoot.detachChildren();
     jsRoot.detachChildren();
+    globalNamespaceCache.invalidate();
 
     Tracer tracer = newTracer(PARSING_PASS_NAME);
     beforePass(PARSING_PASS_NAME);
@@ -2568,6 +2635,26 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     changeStamp++;
   }
 
+  @Override
+  GlobalNamespace getGlobalNamespace(Node externsRoot, Node root) {
+    return globalNamespaceCache.get(
+        externsRoot, root, options != null && options.devMode != DevMode.OFF);
+  }
+
+  @Override
+  void invalidateGlobalNamespace() {
+    globalNamespaceCache.invalidate();
+  }
+
+  /**
+   * Checks that the global namespaces that would be handed to the next pass still describe the
+   * AST, for tests of passes that get their namespace from the compiler.
+   */
+  @VisibleForTesting
+  void verifyGlobalNamespaces() {
+    globalNamespaceCache.verify();
+  }
+
   @Override
   void setChangeScope(Node newChangeScopeRoot) {
     currentChangeScope = newChangeScopeRoot;
@@ -2966,6 +3053,11 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     return options;
   }
 
+  @Override
+  PerformanceTracker getPerformanceTracker() {
+    return tracker;
+  }
+
   FunctionInformationMap getFunctionalInformationMap() {
     return functionInformationMap;
   }
@@ -3372,8 +3464,9 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     private final List<JSModule> modules;
     private final int uniqueNameId;
     private final Set<String> exportedNames;
+    private final TypedScopeSnapshot typedScopeSnapshot;
 
-    CompilerState(Compiler compiler) {
+    CompilerState(Compiler compiler, @Nullable TypedScopeSnapshot typedScopeSnapshot) {
       this.externsRoot = checkNotNull(compiler.externsRoot);
       this.jsRoot = checkNotNull(compiler.jsRoot);
       this.externAndJsRoot = checkNotNull(compiler.externAndJsRoot);
@@ -3399,6 +3492,7 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       this.modules = compiler.modules;
       this.uniqueNameId = compiler.uniqueNameId;
       this.exportedNames = compiler.exportedNames;
+      this.typedScopeSnapshot = typedScopeSnapshot;
     }
   }
 
@@ -3410,13 +3504,25 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       @Override
       public Void call() throws Exception {
         Tracer tracer = newTracer("serializeCompilerState");
-        objectOutputStream.writeObject(new CompilerState(Compiler.this));
+        objectOutputStream.writeObject(
+            new CompilerState(Compiler.this, createTypedScopeSnapshot()));
         stopTracer(tracer, "serializeCompilerState");
         return null;
       }
     });
   }
 
+  /** Takes a snapshot of the global typed scope, if the old type checker created one. */
+  @GwtIncompatible("TypedScopeSnapshot")
+  @Nullable
+  private TypedScopeSnapshot createTypedScopeSnapshot() throws IOException {
+    TypedScope topScope = passes == null ? null : passes.getTopScope();
+    if (topScope == null || mostRecentTypechecker != MostRecentTypechecker.OTI) {
+      return null;
+    }
+    return TypedScopeSnapshot.create(topScope, inputs);
+  }
+
   @GwtIncompatible("ObjectInputStream")
   public void restoreState(InputStream inputStream) throws IOException, ClassNotFoundException  {
     initWarningsGuard(options.getWarningsGuard());
@@ -3462,6 +3568,12 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
     uniqueNameId = compilerState.uniqueNameId;
     exportedNames.clear();
     exportedNames.addAll(compilerState.exportedNames);
+    typedScopeSnapshot = compilerState.typedScopeSnapshot;
+    if (typedScopeSnapshot != null) {
+      getPassConfig()
+          .getBasePassConfig()
+          .restoreGlobalTypedScope(this, typedScopeSnapshot.getGlobalScope());
+    }
 
     // Reapply module names to deserialized modules
     renameModules(newModules, modules);
@@ -3478,4 +3590,53 @@ public class Compiler extends AbstractCompiler implements ErrorHandler, SourceFi
       }
     }
   }
+
+  /**
+   * Brings the type information restored by {@link #restoreState} up to date with the current
+   * version of the given scripts. Only the scripts whose code changed since the state was saved,
+   * and the scripts that depend on them, are type checked again with {@link #replaceScript}. The
+   * global scope, the type registry and the types of all other scripts are reused.
+   *
+   * @param sources The current version of the scripts. Scripts that were not part of the saved
+   *     compilation are ignored; use {@link #addNewScript} for them.
+   * @return The names of the scripts that were type checked again, in input order.
+   */
+  @GwtIncompatible("TypedScopeSnapshot")
+  public List<String> reinferChangedScripts(List<SourceFile> sources) throws IOException {
+    checkState(typedScopeSnapshot != null, "The restored state has no typed scope.");
+    // The inputs and the type validator were deserialized without their compiler. The inputs
+    // need it to compute their dependencies, and the validator to report warnings.
+    for (CompilerInput input : inputs) {
+      input.setCompiler(this);
+    }
+    Map<String, JsAst> changedAsts = new LinkedHashMap<>();
+    Map<CompilerInput, Node> changedScripts = new LinkedHashMap<>();
+    for (SourceFile file : typedScopeSnapshot.updateChangedFiles(sources)) {
+      JsAst ast = new JsAst(file);
+      changedAsts.put(file.getName(), ast);
+      changedScripts.put(getInput(ast.getInputId()), ast.getAstRoot(this));
+    }
+    List<CompilerInput> affected =
+        TypedScopeSnapshot.withDependents(changedScripts, inputs, moduleGraph, this);
+    Set<String> affectedNames = new HashSet<>();
+    for (CompilerInput input : affected) {
+      affectedNames.add(input.getName());
+    }
+
+    // The validator is replaced by a new one that keeps the mismatches recorded so far, except
+    // for those in the scripts that are checked again, which record theirs anew.
+    TypeValidator restoredValidator = typeValidator;
+    typeValidator = new TypeValidator(this);
+    if (restoredValidator != null) {
+      typeValidator.addMismatchesFrom(restoredValidator, affectedNames);
+    }
+
+    List<String> reinferred = new ArrayList<>();
+    for (CompilerInput input : affected) {
+      JsAst ast = changedAsts.get(input.getName());
+      replaceScript(ast != null ? ast : new JsAst(input.getSourceFile()));
+      reinferred.add(input.getName());
+    }
+    return reinferred;
+  }
 }
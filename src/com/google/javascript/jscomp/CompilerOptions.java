@@ -1055,6 +1055,11 @@ public class CompilerOptions implements Serializable {
    */
   boolean parseInlineSourceMaps = true;
 
+  /**
+   * How the source text of inputs is held once they have been parsed.
+   */
+  SourceFile.SourceRetention sourceRetention = SourceFile.SourceRetention.KEEP;
+
   /**
    * Whether to apply input source maps to the output, i.e. map back to original inputs from
    * input files that have source maps applied to them.
@@ -2610,6 +2615,19 @@ public class CompilerOptions implements Serializable {
     this.sourceMapIncludeSourcesContent = sourceMapIncludeSourcesContent;
   }
 
+  /**
+   * Sets how the source text of inputs is held once they have been parsed. Dropping it lowers
+   * the memory footprint of large compilations; it is reloaded transparently when needed for
+   * error excerpts or source maps.
+   */
+  public void setSourceRetention(SourceFile.SourceRetention sourceRetention) {
+    this.sourceRetention = sourceRetention;
+  }
+
+  public SourceFile.SourceRetention getSourceRetention() {
+    return sourceRetention;
+  }
+
   public void setSourceMapDetailLevel(SourceMap.DetailLevel sourceMapDetailLevel) {
     this.sourceMapDetailLevel = sourceMapDetailLevel;
   }
@@ -2925,6 +2943,7 @@ public class CompilerOptions implements Serializable {
             .add("sourceMapFormat", sourceMapFormat)
             .add("sourceMapLocationMappings", sourceMapLocationMappings)
             .add("sourceMapOutputPath", sourceMapOutputPath)
+            .add("sourceRetention", sourceRetention)
             .add("stripNamePrefixes", stripNamePrefixes)
             .add("stripNameSuffixes", stripNameSuffixes)
             .add("stripTypePrefixes", stripTypePrefixes)
@@ -3087,6 +3106,9 @@ public class CompilerOptions implements Serializable {
   public static enum TracerMode {
     ALL, // Collect all timing and size metrics. Very slow.
     RAW_SIZE, // Collect all timing and size metrics, except gzipped size. Slow.
+    // Collect all timing and size metrics, but only re-estimate the size of scripts that changed.
+    // The gzipped size is the sum of the gzipped sizes of the scripts.
+    INCREMENTAL_SIZE,
     AST_SIZE, // For size data, don't serialize the AST, just count the number of nodes.
     TIMING_ONLY, // Collect timing metrics only.
     OFF;  // Collect no timing and size metrics.
@@ -28,6 +28,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
+import com.google.javascript.jscomp.CheckConformance.IndexedRule;
 import com.google.javascript.jscomp.CheckConformance.InvalidRequirementSpec;
 import com.google.javascript.jscomp.CheckConformance.Rule;
 import com.google.javascript.jscomp.CodingConvention.AssertionFunctionSpec;
@@ -114,7 +115,7 @@ public final class ConformanceRules {
    * A conformance rule implementation to support things common to all rules such as whitelisting
    * and reporting.
    */
-  public abstract static class AbstractRule implements Rule {
+  public abstract static class AbstractRule implements IndexedRule {
     final AbstractCompiler compiler;
     final String message;
     final ImmutableList<String> whitelist;
@@ -172,6 +173,26 @@ public final class ConformanceRules {
     protected abstract ConformanceResult checkConformance(
         NodeTraversal t, Node n);
 
+    /**
+     * Returns the tokens of the nodes that {@link #checkConformance} can report a violation on,
+     * or null to be called on every node.
+     */
+    @Override
+    @Nullable
+    public ImmutableSet<Token> getTokens() {
+      return null;
+    }
+
+    /**
+     * Returns the names of the nodes that {@link #checkConformance} can report a violation on, or
+     * null to be called on every node with one of the tokens.
+     */
+    @Override
+    @Nullable
+    public ImmutableSet<String> getNames() {
+      return null;
+    }
+
     /**
      * @return Whether the specified Node should be checked for conformance,
      *     according to this rule's whitelist configuration.
@@ -376,6 +397,11 @@ public final class ConformanceRules {
       }
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.SCRIPT);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (n.isScript()) {
@@ -412,6 +438,20 @@ public final class ConformanceRules {
       names = builder.build();
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.NAME, Token.GETPROP);
+    }
+
+    @Override
+    public ImmutableSet<String> getNames() {
+      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+      for (Node name : names) {
+        builder.add(name.isGetProp() ? name.getLastChild().getString() : name.getString());
+      }
+      return builder.build();
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (isCandidateNode(n)) {
@@ -497,6 +537,20 @@ public final class ConformanceRules {
       props = builder.build();
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.GETPROP, Token.GETELEM);
+    }
+
+    @Override
+    public ImmutableSet<String> getNames() {
+      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+      for (Property prop : props) {
+        builder.add(prop.property);
+      }
+      return builder.build();
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (NodeUtil.isGet(n) && n.getLastChild().isString()) {
@@ -748,6 +802,21 @@ public final class ConformanceRules {
       restrictions = builder.build();
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.NAME, Token.GETPROP);
+    }
+
+    @Override
+    public ImmutableSet<String> getNames() {
+      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+      for (Restriction r : restrictions) {
+        builder.add(r.name.isGetProp() ? r.name.getLastChild().getString() : r.name.getString());
+      }
+      // Calls through .call are checked too.
+      return builder.add("call").build();
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (ConformanceUtil.isCallTarget(n) && n.isQualifiedName()) {
@@ -836,6 +905,21 @@ public final class ConformanceRules {
       restrictions = builder.build();
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.GETPROP, Token.GETELEM);
+    }
+
+    @Override
+    public ImmutableSet<String> getNames() {
+      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+      for (Restriction r : restrictions) {
+        builder.add(r.property);
+      }
+      // Calls through .call are checked too.
+      return builder.add("call").build();
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (NodeUtil.isGet(n)
@@ -943,7 +1027,7 @@ public final class ConformanceRules {
    * Banned Code Pattern rule
    */
   static class BannedCodePattern extends AbstractRule {
-    private final ImmutableList<TemplateAstMatcher> restrictions;
+    private final TemplateAstMatcherTree restrictions;
 
     BannedCodePattern(AbstractCompiler compiler, Requirement requirement)
         throws InvalidRequirementSpec {
@@ -970,20 +1054,31 @@ public final class ConformanceRules {
         builder.add(astMatcher);
       }
 
-      restrictions = builder.build();
+      restrictions = new TemplateAstMatcherTree(builder.build());
+    }
+
+    @Override
+    @Nullable
+    public ImmutableSet<Token> getTokens() {
+      ImmutableSet.Builder<Token> builder = ImmutableSet.builder();
+      for (TemplateAstMatcher matcher : restrictions.getMatchers()) {
+        Token token = matcher.getRootToken();
+        if (token == null) {
+          return null;
+        }
+        builder.add(token);
+      }
+      return builder.build();
     }
 
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       boolean possibleViolation = false;
-      for (int i = 0; i < restrictions.size(); i++) {
-        TemplateAstMatcher matcher = restrictions.get(i);
-        if (matcher.matches(n)) {
-          if (matcher.isLooseMatch()) {
-            possibleViolation = true;
-          } else {
-            return ConformanceResult.VIOLATION;
-          }
+      for (TemplateAstMatcher matcher : restrictions.findMatches(n)) {
+        if (matcher.isLooseMatch()) {
+          possibleViolation = true;
+        } else {
+          return ConformanceResult.VIOLATION;
         }
       }
       return possibleViolation && reportLooseTypeViolations
@@ -1105,6 +1200,11 @@ public final class ConformanceRules {
       }
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.SCRIPT);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (n.isScript()) {
@@ -1128,6 +1228,11 @@ public final class ConformanceRules {
       errorObjType = compiler.getTypeIRegistry().getType("Error");
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.THROW);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (errorObjType != null && n.isThrow()) {
@@ -1156,6 +1261,11 @@ public final class ConformanceRules {
       super(compiler, requirement);
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.GETPROP, Token.GETELEM, Token.NEW, Token.CALL, Token.IN);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       boolean violation;
@@ -1203,6 +1313,11 @@ public final class ConformanceRules {
       super(compiler, requirement);
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.THIS);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (n.isThis()) {
@@ -1235,6 +1350,11 @@ public final class ConformanceRules {
       super(compiler, requirement);
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.GETPROP);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (n.isGetProp()
@@ -1268,6 +1388,11 @@ public final class ConformanceRules {
       super(compiler, requirement);
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.GETPROP);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (n.isGetProp()
@@ -1347,6 +1472,11 @@ public final class ConformanceRules {
       super(compiler, requirement);
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.GETPROP);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (n.isGetProp()) {
@@ -1429,6 +1559,11 @@ public final class ConformanceRules {
       super(compiler, requirement);
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.SCRIPT);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (!n.isScript()) {
@@ -1479,6 +1614,11 @@ public final class ConformanceRules {
           compiler.getTypeIRegistry().getNativeType(JSTypeNative.VOID_TYPE)));
     }
 
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.CALL);
+    }
+
     @Override
     protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
       if (!isCreateDomCall(n)) {
@@ -2097,10 +2097,10 @@ public final class DefaultPassConfig extends PassConfig {
       return new CompilerPass() {
         @Override
         public void process(Node externs, Node jsRoot) {
-          // Create a global namespace for analysis by check passes.
+          // Get a global namespace for analysis by check passes.
           // Note that this class does all heavy computation lazily,
           // so it's OK to create it here.
-          namespaceForChecks = new GlobalNamespace(compiler, externs, jsRoot);
+          namespaceForChecks = compiler.getGlobalNamespace(externs, jsRoot);
           new CheckGlobalNames(compiler, options.checkGlobalNamesLevel)
               .injectNamespace(namespaceForChecks).process(externs, jsRoot);
         }
@@ -352,14 +352,8 @@ class DisambiguateProperties implements CompilerPass {
     // expects a type B.
     // For each pair (A, B), here we mark both A and B as types whose properties
     // cannot be renamed.
-    for (TypeMismatch mis : compiler.getTypeMismatches()) {
-      recordInvalidatingType(mis.typeA, mis);
-      recordInvalidatingType(mis.typeB, mis);
-    }
-    for (TypeMismatch mis : compiler.getImplicitInterfaceUses()) {
-      recordInvalidatingType(mis.typeA, mis);
-      recordInvalidatingType(mis.typeB, mis);
-    }
+    recordInvalidatingTypes(compiler.getTypeMismatches());
+    recordInvalidatingTypes(compiler.getImplicitInterfaceUses());
     // Gather names of properties in externs; these properties can't be renamed.
     NodeTraversal.traverseEs6(compiler, externs, new FindExternProperties());
     // Look at each unquoted property access and decide if that property will
@@ -369,14 +363,28 @@ class DisambiguateProperties implements CompilerPass {
     renameProperties();
   }
 
-  private void recordInvalidationError(TypeI t, TypeMismatch mis) {
+  /**
+   * Invalidates both types of each mismatch. Each pair of types is visited once; the errors of
+   * its first few occurrences are kept for the invalidation diagnostics.
+   */
+  private void recordInvalidatingTypes(TypeMismatchSet mismatches) {
+    for (TypeMismatch mis : mismatches) {
+      List<JSError> srcs = mismatches.getSampleErrors(mis);
+      recordInvalidatingType(mis.typeA, mis, srcs);
+      recordInvalidatingType(mis.typeB, mis, srcs);
+    }
+  }
+
+  private void recordInvalidationError(TypeI t, TypeMismatch mis, List<JSError> srcs) {
     if (!t.isObjectType()) {
       return;
     }
     if (invalidationMap != null) {
       Collection<JSError> errors = this.invalidationMap.get(t);
-      if (errors.size() < MAX_INVALIDATION_WARNINGS_PER_PROPERTY) {
-        JSError error = mis.src;
+      for (JSError error : srcs) {
+        if (errors.size() >= MAX_INVALIDATION_WARNINGS_PER_PROPERTY) {
+          break;
+        }
         if (error.getType().equals(TypeValidator.TYPE_MISMATCH_WARNING)
             && error.description.isEmpty()) {
           String msg = "Implicit use of type " + mis.typeA + " as " + mis.typeB;
@@ -390,22 +398,22 @@ class DisambiguateProperties implements CompilerPass {
   /**
    * Invalidates the given type, so that no properties on it will be renamed.
    */
-  private void recordInvalidatingType(TypeI type, TypeMismatch mis) {
+  private void recordInvalidatingType(TypeI type, TypeMismatch mis, List<JSError> srcs) {
     type = type.restrictByNotNullOrUndefined();
     if (type.isUnionType()) {
       for (TypeI alt : type.getUnionMembers()) {
-        recordInvalidatingType(alt, mis);
+        recordInvalidatingType(alt, mis, srcs);
       }
     } else if (type.isEnumElement()) {
-      recordInvalidatingType(type.getEnumeratedTypeOfEnumElement(), mis);
+      recordInvalidatingType(type.getEnumeratedTypeOfEnumElement(), mis, srcs);
     } else {
       addInvalidatingType(type);
-      recordInvalidationError(type, mis);
+      recordInvalidationError(type, mis, srcs);
       ObjectTypeI objType = type == null ? null : type.toMaybeObjectType();
       ObjectTypeI proto = objType == null ? null : objType.getPrototypeObject();
       if (objType != null && proto != null) {
         addInvalidatingType(proto);
-        recordInvalidationError(proto, mis);
+        recordInvalidationError(proto, mis, srcs);
       }
       if (objType != null
           && objType.isConstructor() && objType.isFunctionType()) {
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Externs that are parsed once and shared by many compilations, such as the default externs
+ * returned by {@link CommandLineRunner#getBuiltinExterns}.
+ *
+ * <p>The parsed ASTs are never handed out directly: each compilation that is initialized with the
+ * snapshot gets its own copy of them (see {@link RecoverableJsAst}), so passes are free to mutate
+ * their extern nodes. Parse errors and warnings in the externs are replayed into every such
+ * compilation.
+ *
+ * <p>A snapshot is only valid for compilations whose parser-relevant options (language mode,
+ * JSDoc parsing, ...) match those it was parsed with.
+ */
+public final class ExternsSnapshot implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final ImmutableList<JsAst> externs;
+
+  private ExternsSnapshot(ImmutableList<JsAst> externs) {
+    this.externs = externs;
+  }
+
+  /** Parses the given externs with the given options. */
+  public static ExternsSnapshot parse(List<SourceFile> externFiles, CompilerOptions options) {
+    Compiler compiler = new Compiler();
+    compiler.initOptions(options);
+
+    ImmutableList.Builder<JsAst> externs = ImmutableList.builder();
+    for (SourceFile file : externFiles) {
+      file.setIsExtern(true);
+      JsAst ast = new JsAst(file);
+      ast.getAstRoot(compiler);
+      externs.add(ast);
+    }
+    return new ExternsSnapshot(externs.build());
+  }
+
+  /** Returns the extern files in this snapshot. */
+  public List<SourceFile> getSourceFiles() {
+    List<SourceFile> files = new ArrayList<>(externs.size());
+    for (JsAst ast : externs) {
+      files.add(ast.getSourceFile());
+    }
+    return files;
+  }
+
+  /** Creates a fresh set of extern inputs for a new compilation. */
+  List<CompilerInput> createExternInputs() {
+    List<CompilerInput> inputs = new ArrayList<>(externs.size());
+    for (JsAst ast : externs) {
+      inputs.add(new CompilerInput(new RecoverableJsAst(ast, true), true));
+    }
+    return inputs;
+  }
+
+  @GwtIncompatible("ObjectOutputStream")
+  public void writeTo(OutputStream outputStream) throws IOException {
+    // Do not close the outputstream, caller is responsible for closing it.
+    ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+    objectOutputStream.writeObject(this);
+    objectOutputStream.flush();
+  }
+
+  @GwtIncompatible("ObjectInputStream")
+  public static ExternsSnapshot readFrom(InputStream inputStream)
+      throws IOException, ClassNotFoundException {
+    // Do not close the input stream, caller is responsible for closing it.
+    return (ExternsSnapshot) new ObjectInputStream(inputStream).readObject();
+  }
+}
@@ -102,6 +102,16 @@ class GlobalNamespace
     return externsRoot != null;
   }
 
+  /** Whether this namespace was created for the given externs and code roots. */
+  boolean matchesRoots(Node externsRoot, Node root) {
+    return this.externsRoot == externsRoot && this.root == root;
+  }
+
+  /** Returns a new namespace for the same roots as this one. */
+  GlobalNamespace rebuild() {
+    return new GlobalNamespace(compiler, externsRoot, root);
+  }
+
   @Override
   public Node getRootNode() {
     return root.getParent();
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.javascript.jscomp.GlobalNamespace.Name;
+import com.google.javascript.rhino.Node;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Shares a {@link GlobalNamespace} between the passes that need one, as long as the AST doesn't
+ * change in between. Building the namespace takes a full traversal of the program, and passes
+ * like AggressiveInlineAliases and CollapseProperties often run back to back on the same AST.
+ *
+ * <p>Any reported code change drops the cached namespaces; a pass that modifies the AST
+ * updates the instance it is holding on its own, as it always did. Passes that modify the names
+ * or refs of the namespace without reporting a change (CollapseProperties, ProcessDefines) drop it
+ * when done. The namespace is not updated incrementally from the changed scopes: the declaration,
+ * type and JSDoc of a name depend on the order in which its references were found, so a partial
+ * rescan can't reproduce them reliably.
+ *
+ * <p>In dev mode, every reuse is checked against a freshly built namespace, and tests check the
+ * cached namespaces after each pass (see {@link #verify}), so that a pass that leaves a stale
+ * namespace behind fails loudly.
+ */
+final class GlobalNamespaceCache implements CodeChangeHandler {
+  private final AbstractCompiler compiler;
+
+  private GlobalNamespace namespace = null;
+  private GlobalNamespace namespaceWithExterns = null;
+
+  GlobalNamespaceCache(AbstractCompiler compiler) {
+    this.compiler = compiler;
+  }
+
+  /**
+   * Returns a namespace for the given roots, reusing a cached one if the AST didn't change since
+   * it was created.
+   *
+   * @param externsRoot The root of the externs, or null if the namespace should not include them.
+   * @param root The root of the rest of the code.
+   * @param verify Whether to check a reused namespace against a freshly built one.
+   */
+  GlobalNamespace get(@Nullable Node externsRoot, Node root, boolean verify) {
+    GlobalNamespace cached = externsRoot == null ? namespace : namespaceWithExterns;
+    if (cached != null && cached.matchesRoots(externsRoot, root)) {
+      if (verify) {
+        verifyUnchanged(cached, new GlobalNamespace(compiler, externsRoot, root));
+      }
+      return cached;
+    }
+
+    GlobalNamespace fresh = new GlobalNamespace(compiler, externsRoot, root);
+    if (externsRoot == null) {
+      namespace = fresh;
+    } else {
+      namespaceWithExterns = fresh;
+    }
+    return fresh;
+  }
+
+  /** Checks that the cached namespaces still describe the AST. */
+  void verify() {
+    for (GlobalNamespace cached : new GlobalNamespace[] {namespace, namespaceWithExterns}) {
+      if (cached != null) {
+        verifyUnchanged(cached, cached.rebuild());
+      }
+    }
+  }
+
+  /** Drops the cached namespaces. */
+  void invalidate() {
+    namespace = null;
+    namespaceWithExterns = null;
+  }
+
+  @Override
+  public void reportChange() {
+    invalidate();
+  }
+
+  /**
+   * Checks that a reused namespace still describes the AST, i.e. that there is no unreported
+   * change that should have invalidated it.
+   */
+  private static void verifyUnchanged(GlobalNamespace reused, GlobalNamespace fresh) {
+    Map<String, Name> reusedNames = reused.getNameIndex();
+    Map<String, Name> freshNames = fresh.getNameIndex();
+    if (!reusedNames.keySet().equals(freshNames.keySet())) {
+      throw new IllegalStateException(
+          "Reused global namespace is stale, the set of names changed without a code change"
+              + " being reported.");
+    }
+    for (Name freshName : freshNames.values()) {
+      Name reusedName = reusedNames.get(freshName.getFullName());
+      if (!reusedName.toString().equals(freshName.toString())
+          || reusedName.getRefs().size() != freshName.getRefs().size()) {
+        throw new IllegalStateException(
+            "Reused global namespace is stale.\nReused: "
+                + reusedName
+                + "\nFresh:  "
+                + freshName);
+      }
+    }
+  }
+}
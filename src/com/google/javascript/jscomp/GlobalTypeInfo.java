@@ -292,8 +292,8 @@ class GlobalTypeInfo implements CompilerPass, TypeIRegistry {
   private final List<NTIScope> scopes = new ArrayList<>();
   private NTIScope globalScope;
   private WarningReporter warnings;
-  private final List<TypeMismatch> mismatches;
-  private final List<TypeMismatch> implicitInterfaceUses;
+  private final TypeMismatchSet mismatches;
+  private final TypeMismatchSet implicitInterfaceUses;
   private final JSTypeCreatorFromJSDoc typeParser;
   private final transient AbstractCompiler compiler;
   private final CodingConvention convention;
@@ -339,8 +339,8 @@ class GlobalTypeInfo implements CompilerPass, TypeIRegistry {
         compiler.getOptions().disables(DiagnosticGroups.NEW_CHECK_TYPES_EXTRA_CHECKS);
 
     this.warnings = new WarningReporter(compiler);
-    this.mismatches = new ArrayList<>();
-    this.implicitInterfaceUses = new ArrayList<>();
+    this.mismatches = new TypeMismatchSet();
+    this.implicitInterfaceUses = new TypeMismatchSet();
     this.compiler = compiler;
     this.unknownTypeNames = unknownTypeNames;
     this.convention = compiler.getCodingConvention();
@@ -373,11 +373,11 @@ class GlobalTypeInfo implements CompilerPass, TypeIRegistry {
     return this.commonTypes;
   }
 
-  List<TypeMismatch> getMismatches() {
+  TypeMismatchSet getMismatches() {
     return this.mismatches;
   }
 
-  List<TypeMismatch> getImplicitInterfaceUses() {
+  TypeMismatchSet getImplicitInterfaceUses() {
     return this.implicitInterfaceUses;
   }
 
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A persistent map implemented as a hash array mapped trie. Adding a key copies only the path
+ * from the root to the key, so all versions of a map share most of their structure. Two versions
+ * that derive from a common ancestor can be compared or merged by looking only at the subtrees
+ * that differ between them.
+ *
+ * <p>Null keys and values are not supported. Values are compared by identity.
+ */
+final class HamtPMap<K, V> {
+  private static final int BITS = 5;
+  private static final int BRANCH_MASK = (1 << BITS) - 1;
+
+  private static final HamtPMap<Object, Object> EMPTY =
+      new HamtPMap<>(0, new Object[0]);
+
+  // One bit for each occupied child position.
+  private final int bitmap;
+  // The occupied children, in the order of their bits. A child is either an Entry, for a position
+  // that holds keys with a single hash code, or a HamtPMap, for a position with more keys.
+  private final Object[] children;
+
+  private HamtPMap(int bitmap, Object[] children) {
+    this.bitmap = bitmap;
+    this.children = children;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K, V> HamtPMap<K, V> empty() {
+    return (HamtPMap<K, V>) EMPTY;
+  }
+
+  boolean isEmpty() {
+    return bitmap == 0;
+  }
+
+  /** Returns the value of the given key, or null if the map doesn't contain it. */
+  V get(K key) {
+    int hash = key.hashCode();
+    HamtPMap<K, V> node = this;
+    for (int shift = 0; ; shift += BITS) {
+      int bit = bitFor(hash, shift);
+      if ((node.bitmap & bit) == 0) {
+        return null;
+      }
+      Object child = node.children[node.index(bit)];
+      if (child instanceof Entry) {
+        for (Entry<K, V> e = asEntry(child); e != null; e = e.next) {
+          if (e.hash == hash && e.key.equals(key)) {
+            return e.value;
+          }
+        }
+        return null;
+      }
+      node = asNode(child);
+    }
+  }
+
+  /** Returns a map that maps the given key to the given value, and is otherwise the same. */
+  HamtPMap<K, V> plus(K key, V value) {
+    checkNotNull(value);
+    return plus(key.hashCode(), key, value, 0);
+  }
+
+  private HamtPMap<K, V> plus(int hash, K key, V value, int shift) {
+    int bit = bitFor(hash, shift);
+    int index = index(bit);
+    if ((bitmap & bit) == 0) {
+      Object[] newChildren = new Object[children.length + 1];
+      System.arraycopy(children, 0, newChildren, 0, index);
+      newChildren[index] = new Entry<K, V>(hash, key, value, null);
+      System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+      return new HamtPMap<>(bitmap | bit, newChildren);
+    }
+    Object child = children[index];
+    Object newChild;
+    if (child instanceof Entry) {
+      Entry<K, V> entry = asEntry(child);
+      if (entry.hash == hash) {
+        newChild = entry.plus(key, value);
+      } else {
+        newChild = singleton(entry, shift + BITS).plus(hash, key, value, shift + BITS);
+      }
+    } else {
+      newChild = asNode(child).plus(hash, key, value, shift + BITS);
+    }
+    if (newChild == child) {
+      return this;
+    }
+    Object[] newChildren = children.clone();
+    newChildren[index] = newChild;
+    return new HamtPMap<>(bitmap, newChildren);
+  }
+
+  /** Visits the keys whose values differ between two maps. */
+  interface DiffVisitor<K, V> {
+    /**
+     * Called for a key with different values in the two maps. A value is null if the key is
+     * missing from that map.
+     *
+     * @return Whether to continue with the remaining keys.
+     */
+    boolean visit(K key, V thisValue, V thatValue);
+  }
+
+  /**
+   * Calls the visitor for each key whose value is not the same in the two maps, skipping the
+   * subtrees the maps share.
+   *
+   * @return false if the visitor stopped the traversal.
+   */
+  boolean diff(HamtPMap<K, V> that, DiffVisitor<K, V> visitor) {
+    if (this == that) {
+      return true;
+    }
+    int bits = this.bitmap | that.bitmap;
+    while (bits != 0) {
+      int bit = Integer.lowestOneBit(bits);
+      bits &= ~bit;
+      Object thisChild = this.childFor(bit);
+      Object thatChild = that.childFor(bit);
+      if (thisChild == thatChild) {
+        continue;
+      }
+      if (thisChild instanceof HamtPMap && thatChild instanceof HamtPMap) {
+        if (!HamtPMap.<K, V>asNode(thisChild).diff(HamtPMap.<K, V>asNode(thatChild), visitor)) {
+          return false;
+        }
+      } else if (!diffEntries(
+          HamtPMap.<K, V>entriesOf(thisChild), HamtPMap.<K, V>entriesOf(thatChild), visitor)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static <K, V> boolean diffEntries(
+      List<Entry<K, V>> theseEntries, List<Entry<K, V>> thoseEntries, DiffVisitor<K, V> visitor) {
+    for (Entry<K, V> e : theseEntries) {
+      V thatValue = find(thoseEntries, e.key);
+      if (e.value != thatValue && !visitor.visit(e.key, e.value, thatValue)) {
+        return false;
+      }
+    }
+    for (Entry<K, V> e : thoseEntries) {
+      if (find(theseEntries, e.key) == null && !visitor.visit(e.key, null, e.value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Merges the values of a key that is in at least one of two maps. */
+  interface Reconciler<K, V> {
+    /**
+     * Returns the value of the key in the merged map, or null to leave it out. A value is null if
+     * the key is missing from that map.
+     */
+    V merge(K key, V thisValue, V thatValue);
+  }
+
+  /**
+   * Merges two maps. Keys that have the same value in both maps keep it, without a call to the
+   * reconciler; this is what makes merging maps that share most of their structure cheap.
+   */
+  HamtPMap<K, V> reconcile(HamtPMap<K, V> that, Reconciler<K, V> reconciler) {
+    HamtPMap<K, V> result = reconcile(that, reconciler, 0);
+    return result == null ? HamtPMap.<K, V>empty() : result;
+  }
+
+  private HamtPMap<K, V> reconcile(HamtPMap<K, V> that, Reconciler<K, V> reconciler, int shift) {
+    if (this == that) {
+      return this;
+    }
+    int bits = this.bitmap | that.bitmap;
+    int newBitmap = 0;
+    Object[] newChildren = new Object[Integer.bitCount(bits)];
+    int count = 0;
+    while (bits != 0) {
+      int bit = Integer.lowestOneBit(bits);
+      bits &= ~bit;
+      Object thisChild = this.childFor(bit);
+      Object thatChild = that.childFor(bit);
+      Object newChild;
+      if (thisChild == thatChild) {
+        newChild = thisChild;
+      } else if (thisChild instanceof HamtPMap && thatChild instanceof HamtPMap) {
+        newChild = simplify(
+            HamtPMap.<K, V>asNode(thisChild)
+                .reconcile(HamtPMap.<K, V>asNode(thatChild), reconciler, shift + BITS));
+      } else {
+        newChild = reconcileEntries(
+            HamtPMap.<K, V>entriesOf(thisChild),
+            HamtPMap.<K, V>entriesOf(thatChild),
+            reconciler,
+            shift + BITS);
+      }
+      if (newChild != null) {
+        newBitmap |= bit;
+        newChildren[count++] = newChild;
+      }
+    }
+    if (newBitmap == 0) {
+      return null;
+    }
+    if (count < newChildren.length) {
+      Object[] trimmed = new Object[count];
+      System.arraycopy(newChildren, 0, trimmed, 0, count);
+      newChildren = trimmed;
+    }
+    return new HamtPMap<>(newBitmap, newChildren);
+  }
+
+  /** Returns the child for the merged entries of one position, or null if there are none. */
+  private static <K, V> Object reconcileEntries(
+      List<Entry<K, V>> theseEntries,
+      List<Entry<K, V>> thoseEntries,
+      Reconciler<K, V> reconciler,
+      int shift) {
+    HamtPMap<K, V> node = null;
+    for (Entry<K, V> e : theseEntries) {
+      V thatValue = find(thoseEntries, e.key);
+      V value = e.value == thatValue ? e.value : reconciler.merge(e.key, e.value, thatValue);
+      node = plusNullable(node, e, value, shift);
+    }
+    for (Entry<K, V> e : thoseEntries) {
+      if (find(theseEntries, e.key) == null) {
+        node = plusNullable(node, e, reconciler.merge(e.key, null, e.value), shift);
+      }
+    }
+    return simplify(node);
+  }
+
+  private static <K, V> HamtPMap<K, V> plusNullable(
+      HamtPMap<K, V> node, Entry<K, V> e, V value, int shift) {
+    if (value == null) {
+      return node;
+    }
+    return (node == null ? HamtPMap.<K, V>empty() : node).plus(e.hash, e.key, value, shift);
+  }
+
+  /** A node with a single entry is stored as that entry in its parent. */
+  private static Object simplify(HamtPMap<?, ?> node) {
+    if (node != null && node.children.length == 1 && node.children[0] instanceof Entry) {
+      return node.children[0];
+    }
+    return node;
+  }
+
+  private HamtPMap<K, V> singleton(Entry<K, V> entry, int shift) {
+    return new HamtPMap<>(bitFor(entry.hash, shift), new Object[] {entry});
+  }
+
+  private Object childFor(int bit) {
+    return (bitmap & bit) == 0 ? null : children[index(bit)];
+  }
+
+  private int index(int bit) {
+    return Integer.bitCount(bitmap & (bit - 1));
+  }
+
+  private static int bitFor(int hash, int shift) {
+    return 1 << ((hash >>> shift) & BRANCH_MASK);
+  }
+
+  /** Returns all the entries under the given child, which may be null. */
+  private static <K, V> List<Entry<K, V>> entriesOf(Object child) {
+    List<Entry<K, V>> entries = new ArrayList<>();
+    addEntries(child, entries);
+    return entries;
+  }
+
+  private static <K, V> void addEntries(Object child, List<Entry<K, V>> entries) {
+    if (child instanceof Entry) {
+      for (Entry<K, V> e = asEntry(child); e != null; e = e.next) {
+        entries.add(e);
+      }
+    } else if (child != null) {
+      for (Object grandChild : ((HamtPMap<?, ?>) child).children) {
+        addEntries(grandChild, entries);
+      }
+    }
+  }
+
+  private static <K, V> V find(List<Entry<K, V>> entries, K key) {
+    for (Entry<K, V> e : entries) {
+      if (e.key.equals(key)) {
+        return e.value;
+      }
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, V> Entry<K, V> asEntry(Object child) {
+    return (Entry<K, V>) child;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, V> HamtPMap<K, V> asNode(Object child) {
+    return (HamtPMap<K, V>) child;
+  }
+
+  /** A key and its value, linked to the other keys with the same hash code. */
+  private static final class Entry<K, V> {
+    final int hash;
+    final K key;
+    final V value;
+    final Entry<K, V> next;
+
+    Entry(int hash, K key, V value, Entry<K, V> next) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+      this.next = next;
+    }
+
+    /** Returns a chain in which the key maps to the given value. */
+    Entry<K, V> plus(K key, V value) {
+      if (this.key.equals(key)) {
+        return this.value == value ? this : new Entry<K, V>(hash, key, value, next);
+      }
+      if (next == null) {
+        return new Entry<K, V>(hash, this.key, this.value, new Entry<K, V>(hash, key, value, null));
+      }
+      Entry<K, V> newNext = next.plus(key, value);
+      return newNext == next ? this : new Entry<K, V>(hash, this.key, this.value, newNext);
+    }
+  }
+}
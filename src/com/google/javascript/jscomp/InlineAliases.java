@@ -55,7 +55,7 @@ final class InlineAliases implements CompilerPass {
 
   @Override
   public void process(Node externs, Node root) {
-    namespace = new GlobalNamespace(compiler, root);
+    namespace = compiler.getGlobalNamespace(null, root);
     NodeTraversal.traverseEs6(compiler, root, new AliasesCollector());
     NodeTraversal.traverseEs6(compiler, root, new AliasesInliner());
   }
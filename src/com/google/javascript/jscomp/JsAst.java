@@ -165,6 +165,8 @@ public class JsAst implements SourceAst {
           compiler.addInputSourceMap(sourceFile.getName(), new SourceMapInput(sourceMapSourceFile));
         }
       }
+      // The source text is no longer needed once parsed, except for excerpts and source maps.
+      sourceFile.setSourceRetention(compiler.getOptions().getSourceRetention());
     } catch (IOException e) {
       compiler.report(
           JSError.make(AbstractCompiler.READ_ERROR, sourceFile.getName()));
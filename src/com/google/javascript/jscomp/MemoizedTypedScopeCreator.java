@@ -80,7 +80,8 @@ class MemoizedTypedScopeCreator implements ScopeCreator, StaticSymbolTable<Typed
   @SuppressWarnings("unchecked")
   // ScopeCreator#createScope has type: <T extends Scope> T createScope(...);
   // TypedScope is the only subclass of Scope, so the suppression is safe.
-  public TypedScope createScope(Node n, Scope parent) {
+  // Synchronized, since TypeCheck may traverse several scripts in parallel.
+  public synchronized TypedScope createScope(Node n, Scope parent) {
     checkArgument(parent == null || parent instanceof TypedScope);
     TypedScope typedParent = (TypedScope) parent;
     TypedScope scope = scopes.get(n);
@@ -93,6 +94,12 @@ class MemoizedTypedScopeCreator implements ScopeCreator, StaticSymbolTable<Typed
     return scope;
   }
 
+  /** Memoizes a scope that was created before, e.g. by an earlier compilation. */
+  void memoize(TypedScope scope) {
+    checkState(!scopes.containsKey(scope.getRootNode()));
+    scopes.put(scope.getRootNode(), scope);
+  }
+
   Collection<TypedScope> getAllMemoizedScopes() {
     // Return scopes in reverse order of creation so that IIFEs will
     // come before the global scope.
@@ -55,6 +55,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * New type inference algorithm.
@@ -379,8 +380,17 @@ final class NewTypeInference implements CompilerPass {
 
   public static class WarningReporter {
     AbstractCompiler compiler;
+    // Warnings held back until the next call to reportBuffered, or null to report them right away.
+    private List<JSError> buffer;
+
     WarningReporter(AbstractCompiler compiler) { this.compiler = compiler; }
 
+    private static WarningReporter buffered(AbstractCompiler compiler) {
+      WarningReporter reporter = new WarningReporter(compiler);
+      reporter.buffer = new ArrayList<>();
+      return reporter;
+    }
+
     void add(JSError warning) {
       String filename = warning.node.getSourceFileName();
       // Avoid some warnings in code generated by the ES6 transpilation.
@@ -388,13 +398,27 @@ final class NewTypeInference implements CompilerPass {
       if ((filename != null && filename.startsWith(" [synthetic")) || JSType.mockToString) {
         return;
       }
-      compiler.report(warning);
+      if (buffer != null) {
+        buffer.add(warning);
+      } else {
+        compiler.report(warning);
+      }
+    }
+
+    /** Reports the buffered warnings, and reports all further warnings right away. */
+    private void reportBuffered() {
+      if (buffer != null) {
+        for (JSError warning : buffer) {
+          compiler.report(warning);
+        }
+        buffer = null;
+      }
     }
   }
 
   private final WarningReporter warnings;
-  private List<TypeMismatch> mismatches;
-  private List<TypeMismatch> implicitInterfaceUses;
+  private TypeMismatchSet mismatches;
+  private TypeMismatchSet implicitInterfaceUses;
   private final AbstractCompiler compiler;
   private final CodingConvention convention;
   private final Map<DiGraphEdge<Node, ControlFlowGraph.Branch>, TypeEnv> envs;
@@ -459,11 +483,33 @@ final class NewTypeInference implements CompilerPass {
   private JSType UNKNOWN;
 
   NewTypeInference(AbstractCompiler compiler) {
-    this.warnings = new WarningReporter(compiler);
+    this(
+        compiler,
+        new WarningReporter(compiler),
+        compiler.getOptions().numParallelThreads > 1
+            ? new ConcurrentHashMap<NTIScope, JSType>()
+            : new LinkedHashMap<NTIScope, JSType>());
+  }
+
+  /**
+   * Creates an instance that analyzes a single scope on behalf of {@code parent}, on a thread of
+   * its own. It reads and writes the shared summaries, but collects all its other results
+   * (warnings, mismatches, deferred checks) for the parent to merge them in scope order.
+   */
+  private NewTypeInference(NewTypeInference parent) {
+    this(parent.compiler, WarningReporter.buffered(parent.compiler), parent.summaries);
+    initFromSymbolTable(parent.symbolTable);
+    this.mismatches = new TypeMismatchSet();
+    this.implicitInterfaceUses = new TypeMismatchSet();
+  }
+
+  private NewTypeInference(
+      AbstractCompiler compiler, WarningReporter warnings, Map<NTIScope, JSType> summaries) {
+    this.warnings = warnings;
     this.compiler = compiler;
     this.convention = compiler.getCodingConvention();
     this.envs = new LinkedHashMap<>();
-    this.summaries = new LinkedHashMap<>();
+    this.summaries = summaries;
     this.deferredChecks = new LinkedHashMap<>();
     this.ABSTRACT_METHOD_NAME = convention.getAbstractMethodName();
     this.reportUnknownTypes =
@@ -492,30 +538,15 @@ final class NewTypeInference implements CompilerPass {
   @Override
   public void process(Node externs, Node root) {
     try {
-      this.symbolTable = (GlobalTypeInfo) compiler.getSymbolTable();
-      this.commonTypes = symbolTable.getCommonTypes();
-      this.mismatches = symbolTable.getMismatches();
-      this.implicitInterfaceUses = symbolTable.getImplicitInterfaceUses();
-
-      this.BOOLEAN = this.commonTypes.BOOLEAN;
-      this.BOTTOM = this.commonTypes.BOTTOM;
-      this.FALSE_TYPE = this.commonTypes.FALSE_TYPE;
-      this.FALSY = this.commonTypes.FALSY;
-      this.NULL = this.commonTypes.NULL;
-      this.NULL_OR_UNDEFINED = this.commonTypes.NULL_OR_UNDEFINED;
-      this.NUMBER = this.commonTypes.NUMBER;
-      this.NUMBER_OR_STRING = this.commonTypes.NUMBER_OR_STRING;
-      this.STRING = this.commonTypes.STRING;
-      this.TOP = this.commonTypes.TOP;
-      this.TOP_OBJECT = this.commonTypes.getTopObject();
-      this.TRUE_TYPE = this.commonTypes.TRUE_TYPE;
-      this.TRUTHY = this.commonTypes.TRUTHY;
-      this.UNDEFINED = this.commonTypes.UNDEFINED;
-      this.UNKNOWN = this.commonTypes.UNKNOWN;
-
-      for (NTIScope scope : symbolTable.getScopes()) {
-        analyzeFunction(scope);
-        envs.clear();
+      initFromSymbolTable((GlobalTypeInfo) compiler.getSymbolTable());
+      int numParallelThreads = compiler.getOptions().numParallelThreads;
+      if (numParallelThreads > 1) {
+        analyzeFunctionsInParallel(numParallelThreads);
+      } else {
+        for (NTIScope scope : symbolTable.getScopes()) {
+          analyzeFunction(scope);
+          envs.clear();
+        }
       }
       for (DeferredCheck check : deferredChecks.values()) {
         check.runCheck(summaries, warnings);
@@ -532,6 +563,87 @@ final class NewTypeInference implements CompilerPass {
     }
   }
 
+  private void initFromSymbolTable(GlobalTypeInfo symbolTable) {
+    this.symbolTable = symbolTable;
+    this.commonTypes = symbolTable.getCommonTypes();
+    this.mismatches = symbolTable.getMismatches();
+    this.implicitInterfaceUses = symbolTable.getImplicitInterfaceUses();
+
+    this.BOOLEAN = this.commonTypes.BOOLEAN;
+    this.BOTTOM = this.commonTypes.BOTTOM;
+    this.FALSE_TYPE = this.commonTypes.FALSE_TYPE;
+    this.FALSY = this.commonTypes.FALSY;
+    this.NULL = this.commonTypes.NULL;
+    this.NULL_OR_UNDEFINED = this.commonTypes.NULL_OR_UNDEFINED;
+    this.NUMBER = this.commonTypes.NUMBER;
+    this.NUMBER_OR_STRING = this.commonTypes.NUMBER_OR_STRING;
+    this.STRING = this.commonTypes.STRING;
+    this.TOP = this.commonTypes.TOP;
+    this.TOP_OBJECT = this.commonTypes.getTopObject();
+    this.TRUE_TYPE = this.commonTypes.TRUE_TYPE;
+    this.TRUTHY = this.commonTypes.TRUTHY;
+    this.UNDEFINED = this.commonTypes.UNDEFINED;
+    this.UNKNOWN = this.commonTypes.UNKNOWN;
+  }
+
+  /**
+   * Analyzes the scopes on multiple threads. The analysis of a function needs the summaries of
+   * the functions defined in it, so a scope is scheduled one level after its deepest inner scope;
+   * the scopes of a level are independent from each other.
+   *
+   * <p>Each scope is analyzed by its own instance, and the results are merged in the order of
+   * {@link GlobalTypeInfo#getScopes}, so that warnings, mismatches and deferred checks come out
+   * exactly as in a sequential run.
+   */
+  private void analyzeFunctionsInParallel(int numParallelThreads) {
+    Map<NTIScope, Integer> levelOfScope = new LinkedHashMap<>();
+    List<List<Runnable>> levels = new ArrayList<>();
+    Map<NTIScope, NewTypeInference> analyzers = new LinkedHashMap<>();
+    // Inner scopes come before the scopes that contain them.
+    for (final NTIScope scope : symbolTable.getScopes()) {
+      Integer level = levelOfScope.get(scope);
+      if (level == null) {
+        level = 0;
+        levelOfScope.put(scope, level);
+      }
+      NTIScope parent = scope.getParent();
+      if (parent != null) {
+        Integer parentLevel = levelOfScope.get(parent);
+        if (parentLevel == null || parentLevel <= level) {
+          levelOfScope.put(parent, level + 1);
+        }
+      }
+      while (levels.size() <= level) {
+        levels.add(new ArrayList<Runnable>());
+      }
+      final NewTypeInference analyzer = new NewTypeInference(this);
+      analyzers.put(scope, analyzer);
+      levels.get(level).add(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            analyzer.analyzeFunction(scope);
+            analyzer.envs.clear();
+          } catch (RuntimeException e) {
+            throw new RuntimeException(e.getMessage() + "\nIn scope: " + scope, e);
+          }
+        }
+      });
+    }
+
+    new ParallelLevelExecutor("NewTypeInference", numParallelThreads).runLevels(levels);
+
+    for (NewTypeInference analyzer : analyzers.values()) {
+      analyzer.warnings.reportBuffered();
+      this.mismatches.addAll(analyzer.mismatches);
+      this.implicitInterfaceUses.addAll(analyzer.implicitInterfaceUses);
+      // The deferred checks of the analyzer report through it, from now on into the shared lists.
+      analyzer.mismatches = this.mismatches;
+      analyzer.implicitInterfaceUses = this.implicitInterfaceUses;
+      this.deferredChecks.putAll(analyzer.deferredChecks);
+    }
+  }
+
   static void updatePeakMem() {
     Runtime rt = Runtime.getRuntime();
     long currentUsedMem = (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024);
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A helper class to run tasks that depend on each other in levels: the tasks of a level are
+ * independent from each other and run in parallel, but only after all the tasks of the previous
+ * levels finished.
+ */
+class ParallelLevelExecutor {
+  // We use many recursive algorithms that use O(d) memory in the depth
+  // of the tree.
+  private static final long COMPILER_STACK_SIZE = (1 << 23); // About 8MB
+
+  private final String name;
+  private final int numParallelThreads;
+
+  ParallelLevelExecutor(String name, int numParallelThreads) {
+    this.name = name;
+    this.numParallelThreads = numParallelThreads;
+  }
+
+  /**
+   * Runs the given levels of tasks in order. If a task throws, the remaining levels are not run
+   * and the exception is rethrown.
+   */
+  void runLevels(List<? extends List<? extends Runnable>> levels) {
+    ThreadFactory threadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(null, r, "jscompiler-" + name, COMPILER_STACK_SIZE);
+          t.setDaemon(true);  // Do not prevent the JVM from exiting.
+          return t;
+        }
+    };
+    ThreadPoolExecutor poolExecutor = new ThreadPoolExecutor(
+        numParallelThreads,
+        numParallelThreads,
+        Integer.MAX_VALUE,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        threadFactory);
+    ListeningExecutorService executorService = MoreExecutors.listeningDecorator(poolExecutor);
+    try {
+      for (List<? extends Runnable> level : levels) {
+        List<ListenableFuture<?>> futureList = new ArrayList<>(level.size());
+        for (Runnable task : level) {
+          futureList.add(executorService.submit(task));
+        }
+        try {
+          Futures.allAsList(futureList).get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          } else if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+          }
+          throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    } finally {
+      poolExecutor.shutdownNow();
+    }
+  }
+}
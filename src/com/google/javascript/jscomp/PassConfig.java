@@ -86,6 +86,22 @@ public abstract class PassConfig {
     internalScopeCreator.patchGlobalScope(topScope, scriptRoot);
   }
 
+  /**
+   * Reuses a global scope that was saved with the state of an earlier compilation of the same
+   * program, instead of regenerating it. Scripts that changed since then can be patched into it
+   * with {@link #patchGlobalTypedScope}.
+   *
+   * @param compiler The compiler whose state was restored.
+   * @param globalScope The restored global scope.
+   */
+  void restoreGlobalTypedScope(AbstractCompiler compiler, TypedScope globalScope) {
+    internalScopeCreator = new TypedScopeCreator(compiler);
+    internalScopeCreator.restoreGlobalScope(globalScope);
+    typedScopeCreator = new MemoizedTypedScopeCreator(internalScopeCreator);
+    typedScopeCreator.memoize(globalScope);
+    topScope = globalScope;
+  }
+
   /**
    * Gets the scope creator for typed scopes.
    */
@@ -31,12 +31,18 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * A PerformanceTracker collects statistics about the runtime of each pass, and
@@ -46,6 +52,9 @@ import java.util.Map.Entry;
 public final class PerformanceTracker {
   private static final int DEFAULT_WHEN_SIZE_UNTRACKED = -1;
 
+  // The name under which the tracker reads the change timeline of the compiler.
+  private static final String CHANGE_TIMELINE_NAME = "PerformanceTracker";
+
   private final PrintStream output;
 
   private final Node jsRoot;
@@ -53,6 +62,10 @@ public final class PerformanceTracker {
 
   private final TracerMode mode;
 
+  // With TracerMode.INCREMENTAL_SIZE, tells which scripts changed since the last estimate. If
+  // null, every script is estimated again.
+  @Nullable private final AbstractCompiler compiler;
+
   // Keeps track of AST changes and computes code size estimation
   // if there is any.
   private final RecentChange codeChange = new RecentChange();
@@ -86,6 +99,9 @@ public final class PerformanceTracker {
   private int diff = 0;
   private int gzDiff = 0;
 
+  // With TracerMode.INCREMENTAL_SIZE, the latest size estimate of each script.
+  private Map<Node, SizeEstimate> scriptSizes = new HashMap<>();
+
   private final Deque<Stats> currentPass = new ArrayDeque<>();
 
   /** Cumulative stats for each compiler pass. */
@@ -94,9 +110,25 @@ public final class PerformanceTracker {
   /** Stats a single run of a compiler pass. */
   private final List<Stats> log = new ArrayList<>();
 
+  /**
+   * Time in milliseconds spent in the parts of a pass, such as the individual conformance rules,
+   * by pass name and part name. It is already counted in the runtime of the pass.
+   */
+  private final Map<String, Map<String, Long>> partRuntimes = new LinkedHashMap<>();
+
   PerformanceTracker(Node externsRoot, Node jsRoot, TracerMode mode, PrintStream printStream) {
+    this(null, externsRoot, jsRoot, mode, printStream);
+  }
+
+  PerformanceTracker(
+      @Nullable AbstractCompiler compiler,
+      Node externsRoot,
+      Node jsRoot,
+      TracerMode mode,
+      PrintStream printStream) {
     checkArgument(mode != TracerMode.OFF, "PerformanceTracker can't work without tracer data.");
     this.startTime = System.currentTimeMillis();
+    this.compiler = compiler;
     this.externsRoot = externsRoot;
     this.jsRoot = jsRoot;
     this.output = printStream == null ? System.out : printStream;
@@ -144,6 +176,24 @@ public final class PerformanceTracker {
     }
   }
 
+  /**
+   * Adds to the time spent in a part of the currently running pass, e.g. in one of the rules that
+   * the pass checks.
+   *
+   * @param partName short name of the part, unique within the pass
+   * @param runtime execution time in milliseconds
+   */
+  void recordPartRuntime(String partName, long runtime) {
+    String passName = this.currentPass.isEmpty() ? "" : this.currentPass.peek().pass;
+    Map<String, Long> parts = this.partRuntimes.get(passName);
+    if (parts == null) {
+      parts = new LinkedHashMap<>();
+      this.partRuntimes.put(passName, parts);
+    }
+    Long previous = parts.get(partName);
+    parts.put(partName, previous == null ? runtime : previous + runtime);
+  }
+
   private void recordParsingStop(Stats logStats) {
     recordInputCount();
     if (!tracksAstSize()) {
@@ -153,11 +203,10 @@ public final class PerformanceTracker {
     if (!tracksSize()) {
       return;
     }
-    PerformanceTrackerCodeSizeEstimator estimator =
-        PerformanceTrackerCodeSizeEstimator.estimate(this.jsRoot, tracksGzSize());
-    logStats.size = this.initCodeSize = this.codeSize = estimator.getCodeSize();
+    SizeEstimate estimate = estimateCodeSize();
+    logStats.size = this.initCodeSize = this.codeSize = estimate.size;
     if (tracksGzSize()) {
-      logStats.gzSize = this.initGzCodeSize = this.gzCodeSize = estimator.getZippedCodeSize();
+      logStats.gzSize = this.initGzCodeSize = this.gzCodeSize = estimate.gzSize;
     }
   }
 
@@ -168,18 +217,74 @@ public final class PerformanceTracker {
     if (!tracksSize()) {
       return;
     }
-    PerformanceTrackerCodeSizeEstimator estimator =
-        PerformanceTrackerCodeSizeEstimator.estimate(this.jsRoot, tracksGzSize());
-    newSize = estimator.getCodeSize();
+    SizeEstimate estimate = estimateCodeSize();
+    newSize = estimate.size;
     logStats.diff = this.codeSize - newSize;
     this.codeSize = logStats.size = newSize;
     if (tracksGzSize()) {
-      newSize = estimator.getZippedCodeSize();
+      newSize = estimate.gzSize;
       logStats.gzDiff = this.gzCodeSize - newSize;
       this.gzCodeSize = logStats.gzSize = newSize;
     }
   }
 
+  private SizeEstimate estimateCodeSize() {
+    if (this.mode != TracerMode.INCREMENTAL_SIZE) {
+      return new SizeEstimate(
+          PerformanceTrackerCodeSizeEstimator.estimate(this.jsRoot, tracksGzSize()));
+    }
+
+    // Printing and gzipping the whole program after every pass is what makes size tracking
+    // slow, so only the scripts that changed since their last estimate are printed again.
+    Map<Node, SizeEstimate> newScriptSizes = new HashMap<>();
+    int size = 0;
+    int gzSize = 0;
+    boolean statementNeedsEnded = false;
+    Set<Node> changedScripts = getChangedScripts();
+    for (Node script : this.jsRoot.children()) {
+      SizeEstimate estimate = this.scriptSizes.get(script);
+      if (estimate == null || changedScripts == null || changedScripts.contains(script)) {
+        estimate = new SizeEstimate(PerformanceTrackerCodeSizeEstimator.estimate(script, true));
+      }
+      newScriptSizes.put(script, estimate);
+      if (estimate.size > 0) {
+        // Printed on its own, a script leaves out the semicolon after its last statement. When
+        // the whole program is printed, the next script that prints anything adds it.
+        if (statementNeedsEnded) {
+          size++;
+        }
+        statementNeedsEnded = estimate.statementNeedsEnded;
+      }
+      size += estimate.size;
+      gzSize += estimate.gzSize;
+    }
+    this.scriptSizes = newScriptSizes;
+    return new SizeEstimate(size, gzSize, statementNeedsEnded);
+  }
+
+  /**
+   * Returns the scripts in which the compiler recorded a change since the previous call, or null
+   * if they are not known, e.g. on the first call.
+   */
+  @Nullable
+  private Set<Node> getChangedScripts() {
+    if (this.compiler == null) {
+      return null;
+    }
+    List<Node> changedScopeNodes = this.compiler.getChangedScopeNodesForPass(CHANGE_TIMELINE_NAME);
+    if (changedScopeNodes == null) {
+      return null;
+    }
+    Set<Node> changedScripts = new HashSet<>();
+    for (Node scopeNode : changedScopeNodes) {
+      Node script = NodeUtil.getEnclosingScript(scopeNode);
+      if (script != null) {
+        changedScripts.add(script);
+      }
+    }
+    return changedScripts;
+  }
+
   private void recordInputCount() {
     for (Node n : this.externsRoot.children()) {
       this.externSources += 1;
@@ -211,11 +316,13 @@ public final class PerformanceTracker {
   }
 
   public boolean tracksSize() {
-    return this.mode == TracerMode.RAW_SIZE || this.mode == TracerMode.ALL;
+    return this.mode == TracerMode.RAW_SIZE
+        || this.mode == TracerMode.ALL
+        || this.mode == TracerMode.INCREMENTAL_SIZE;
   }
 
   public boolean tracksGzSize() {
-    return this.mode == TracerMode.ALL;
+    return this.mode == TracerMode.ALL || this.mode == TracerMode.INCREMENTAL_SIZE;
   }
 
   public boolean tracksAstSize() {
@@ -271,6 +378,15 @@ public final class PerformanceTracker {
     return this.summary;
   }
 
+  /**
+   * Returns the time in milliseconds spent in each recorded part of the given pass, over all
+   * of its runs.
+   */
+  public ImmutableMap<String, Long> getPartRuntimes(String passName) {
+    Map<String, Long> parts = this.partRuntimes.get(passName);
+    return parts == null ? ImmutableMap.<String, Long>of() : ImmutableMap.copyOf(parts);
+  }
+
   private void calcTotalStats() {
     // This method only does work the first time it is called
     if (this.summary != null) {
@@ -378,6 +494,17 @@ public final class PerformanceTracker {
     }
     this.output.print("\n");
 
+    if (!this.partRuntimes.isEmpty()) {
+      this.output.print("Parts:\npass,part,runtime\n");
+      for (Entry<String, Map<String, Long>> pass : this.partRuntimes.entrySet()) {
+        for (Entry<String, Long> part : sortedByValue(pass.getValue().entrySet())) {
+          this.output.print(SimpleFormat.format(
+              "%s,%s,%d\n", pass.getKey(), part.getKey(), part.getValue()));
+        }
+      }
+      this.output.print("\n");
+    }
+
     this.output.print(Joiner.on("\n").join(
         "Log:",
         "pass,runtime,allocMem,codeChanged,astReduction,reduction,gzReduction,astSize,size,gzSize\n"));
@@ -398,6 +525,38 @@ public final class PerformanceTracker {
     }
   }
 
+  /** Returns the entries in decreasing order of their values. */
+  private static List<Entry<String, Long>> sortedByValue(Collection<Entry<String, Long>> entries) {
+    List<Entry<String, Long>> sorted = new ArrayList<>(entries);
+    Collections.sort(
+        sorted,
+        new Comparator<Entry<String, Long>>() {
+          @Override
+          public int compare(Entry<String, Long> e1, Entry<String, Long> e2) {
+            return Long.compare(e2.getValue(), e1.getValue());
+          }
+        });
+    return sorted;
+  }
+
+  /** A raw and gzipped code size estimate, of a single script or of the whole program. */
+  private static final class SizeEstimate {
+    final int size;
+    final int gzSize;
+    // Whether the printed code ends with a statement that still needs a semicolon.
+    final boolean statementNeedsEnded;
+
+    SizeEstimate(int size, int gzSize, boolean statementNeedsEnded) {
+      this.size = size;
+      this.gzSize = gzSize;
+      this.statementNeedsEnded = statementNeedsEnded;
+    }
+
+    SizeEstimate(PerformanceTrackerCodeSizeEstimator estimator) {
+      this(estimator.getCodeSize(), estimator.getZippedCodeSize(), estimator.statementNeedsEnded);
+    }
+  }
+
   /**
    * A Stats object contains statistics about a pass run, such as running time,
    * size changes, etc
@@ -47,10 +47,28 @@ class PrebuildAst {
   }
 
   void prebuild(List<CompilerInput> inputList) {
+    List<Runnable> tasks = new ArrayList<>(inputList.size());
+    // TODO(moz): Support canceling all parsing on the first halting error
+    for (final CompilerInput input : inputList) {
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          input.getAstRoot(compiler);
+        }
+      });
+    }
+    runInParallel("jscompiler-PrebuildAst", numParallelThreads, tasks);
+  }
+
+  /**
+   * Runs the tasks on a pool of {@code numParallelThreads} daemon threads with the compiler's
+   * stack size, and returns once all of them are done.
+   */
+  static void runInParallel(final String threadName, int numParallelThreads, List<Runnable> tasks) {
     ThreadFactory threadFactory = new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
-          Thread t = new Thread(null, r, "jscompiler-PrebuildAst", COMPILER_STACK_SIZE);
+          Thread t = new Thread(null, r, threadName, COMPILER_STACK_SIZE);
           t.setDaemon(true);  // Do not prevent the JVM from exiting.
           return t;
         }
@@ -63,15 +81,9 @@ class PrebuildAst {
         new LinkedBlockingQueue<Runnable>(),
         threadFactory);
     ListeningExecutorService executorService = MoreExecutors.listeningDecorator(poolExecutor);
-    List<ListenableFuture<?>> futureList = new ArrayList<>(inputList.size());
-    // TODO(moz): Support canceling all parsing on the first halting error
-    for (final CompilerInput input : inputList) {
-      futureList.add(executorService.submit(new Runnable() {
-        @Override
-        public void run() {
-          input.getAstRoot(compiler);
-        }
-      }));
+    List<ListenableFuture<?>> futureList = new ArrayList<>(tasks.size());
+    for (Runnable task : tasks) {
+      futureList.add(executorService.submit(task));
     }
 
     poolExecutor.shutdown();
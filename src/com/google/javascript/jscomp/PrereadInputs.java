@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A helper class to read the code of a list of {@link CompilerInput}s into memory. Source files
+ * are read lazily by whichever thread first asks for their code. Read them all now using multiple
+ * threads, so that the I/O and decoding of inputs on disk or in zip files overlap.
+ *
+ * <p>Read errors are ignored here; they surface again, in input order, when the compiler asks
+ * for the code of the failing inputs.
+ *
+ * <p>This doesn't hold more code in memory than reading sequentially: the compiler reads every
+ * input before parsing either way, and the {@link SourceFile.SourceRetention} of an input only
+ * applies once JsAst has parsed it. Inputs whose code is already dropped, because they were
+ * parsed by a previous compilation, are skipped, since their code would be released again right
+ * after being read.
+ */
+class PrereadInputs {
+  private final int numParallelThreads;
+
+  PrereadInputs(int numParallelThreads) {
+    this.numParallelThreads = numParallelThreads;
+  }
+
+  void preread(Iterable<CompilerInput> inputs) {
+    List<Runnable> tasks = new ArrayList<>();
+    for (final CompilerInput input : inputs) {
+      if (input.getSourceFile().getSourceRetention() == SourceFile.SourceRetention.DROP) {
+        continue;
+      }
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            input.getCode();
+          } catch (IOException e) {
+            // Reported by the caller when it reads this input again.
+          }
+        }
+      });
+    }
+    PrebuildAst.runInParallel("jscompiler-PrereadInputs", numParallelThreads, tasks);
+  }
+}
@@ -167,7 +167,7 @@ class ProcessDefines implements CompilerPass {
    */
   Map<String, DefineInfo> collectDefines(Node root) {
     if (namespace == null) {
-      namespace = new GlobalNamespace(compiler, root);
+      namespace = compiler.getGlobalNamespace(null, root);
     }
 
     // Find all the global names with a @define annotation
@@ -209,6 +209,8 @@ class ProcessDefines implements CompilerPass {
 
     CollectDefines pass = new CollectDefines(compiler, allDefines);
     NodeTraversal.traverseEs6(compiler, root, pass);
+    // The collection removes the refs of define assignments from their names.
+    compiler.invalidateGlobalNamespace();
     return pass.getAllDefines();
   }
 
@@ -32,10 +32,12 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
+import java.lang.ref.SoftReference;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -48,6 +50,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
 
 /**
  * An abstract representation of a source file that provides access to language-neutral features.
@@ -67,6 +70,27 @@ public class SourceFile implements StaticSourceFile, Serializable {
     public String getCode();
   }
 
+  /**
+   * How the source text of a file is held once it has been parsed. The text is only needed
+   * afterwards for error excerpts and source maps, so files that can re-read or regenerate it
+   * may give it up to lower the memory footprint of a large compilation.
+   */
+  public enum SourceRetention {
+    /** Keep the source text in memory for the rest of the compilation. */
+    KEEP,
+    /**
+     * Hold the source text through a soft reference, so that the garbage collector may reclaim
+     * it under memory pressure. It is reloaded on demand if it was collected. Files whose code
+     * comes from a {@link Generator} drop it instead.
+     */
+    SOFT,
+    /**
+     * Discard the source text, and reload it on demand. Reloaded text is then held like under
+     * SOFT, so that the many excerpts of a file with several errors don't each read it again.
+     */
+    DROP
+  }
+
   /**
    * Number of lines in the region returned by {@link #getRegion(int)}.
    * This length must be odd.
@@ -88,6 +112,8 @@ public class SourceFile implements StaticSourceFile, Serializable {
 
   private String code = null;
 
+  private SourceRetention retention = SourceRetention.KEEP;
+
   static final DiagnosticType DUPLICATE_ZIP_CONTENTS = DiagnosticType.warning(
       "JSC_DUPLICATE_ZIP_CONTENTS",
       "Two zip entries containing the same relative path.\n"
@@ -159,7 +185,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
    * @throws IOException
    */
   public String getCode() throws IOException {
-    return code;
+    return code != null ? code : getReleasedCode();
   }
 
 
@@ -186,6 +212,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
     } else {
       code = sourceCode;
     }
+    holdReleasedCode(null);
     resetLineOffsets();
   }
 
@@ -210,6 +237,59 @@ public class SourceFile implements StaticSourceFile, Serializable {
     return code != null;
   }
 
+  /**
+   * Whether this kind of SourceFile can reload its code after {@link #clearCachedSource()}.
+   * Only such files give up their code under a {@link SourceRetention} other than KEEP.
+   */
+  boolean canReloadCode() {
+    return false;
+  }
+
+  /**
+   * Returns the released code, if it is still held softly and wasn't collected yet.
+   * Subclasses that can hold on to it softly override this and {@link #holdReleasedCode}.
+   */
+  @Nullable
+  String getReleasedCode() {
+    return null;
+  }
+
+  /** Softly holds on to released code, or forgets it if {@code releasedCode} is null. */
+  void holdReleasedCode(@Nullable String releasedCode) {}
+
+  SourceRetention getSourceRetention() {
+    return retention;
+  }
+
+  /**
+   * Sets how the code of this file is held from now on, and releases it right away if
+   * the policy allows it. Line offsets are computed beforehand, so that position lookups
+   * don't force a reload.
+   */
+  synchronized void setSourceRetention(SourceRetention retention) {
+    this.retention = retention;
+    releaseCode(retention == SourceRetention.SOFT);
+  }
+
+  /**
+   * Gives up the in-memory code, if the current retention policy allows it, but holds on to it
+   * softly. Subclasses call this after reloading their code, so that no caller of
+   * {@link #getCode} pins it again.
+   */
+  synchronized void releaseCode() {
+    releaseCode(true);
+  }
+
+  private void releaseCode(boolean holdSoftly) {
+    if (retention == SourceRetention.KEEP || code == null || !canReloadCode()) {
+      return;
+    }
+    findLineOffsets();
+    String releasedCode = code;
+    code = null;
+    holdReleasedCode(holdSoftly ? releasedCode : null);
+  }
+
   /** Returns a unique name for the source file. */
   @Override
   public String getName() {
@@ -574,6 +654,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
       if (cachedCode == null) {
         cachedCode = generator.getCode();
         super.setCode(cachedCode);
+        releaseCode();
       }
       return cachedCode;
     }
@@ -584,6 +665,11 @@ public class SourceFile implements StaticSourceFile, Serializable {
     public void clearCachedSource() {
       super.setCode(null);
     }
+
+    @Override
+    boolean canReloadCode() {
+      return generator != null;
+    }
   }
 
   /**
@@ -595,6 +681,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
     private static final long serialVersionUID = 1L;
     private transient Path path;
     private transient Charset inputCharset = UTF_8;
+    private transient SoftReference<String> releasedCode = null;
 
     OnDisk(Path path, String originalPath, Charset c) {
       super(path.toString());
@@ -611,7 +698,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
 
       if (cachedCode == null) {
         try {
-          cachedCode = CharStreams.toString(getCodeReader());
+          cachedCode = readCode();
         } catch (java.nio.charset.MalformedInputException e) {
           throw new IOException("Failed to read: " + path + ", is this input UTF-8 encoded?", e);
         }
@@ -619,16 +706,24 @@ public class SourceFile implements StaticSourceFile, Serializable {
         super.setCode(cachedCode, Objects.equals(this.getCharset(), inputCharset));
         // Byte Order Mark can be removed by setCode
         cachedCode = super.getCode();
+        releaseCode();
       }
       return cachedCode;
     }
 
+    /** Reads and decodes the whole file in one go, rather than through a buffered reader. */
+    private String readCode() throws IOException {
+      ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+      // Unlike Charset#decode, a fresh decoder reports malformed input instead of replacing it.
+      return inputCharset.newDecoder().decode(bytes).toString();
+    }
+
     /**
      * Gets a reader for the code in this source file.
      */
     @Override
     public Reader getCodeReader() throws IOException {
-      if (hasSourceInMemory()) {
+      if (hasSourceInMemory() || getReleasedCode() != null) {
         return super.getCodeReader();
       } else {
         // If we haven't pulled the code into memory yet, don't.
@@ -643,6 +738,21 @@ public class SourceFile implements StaticSourceFile, Serializable {
       super.setCode(null);
     }
 
+    @Override
+    boolean canReloadCode() {
+      return path != null;
+    }
+
+    @Override
+    String getReleasedCode() {
+      return releasedCode != null ? releasedCode.get() : null;
+    }
+
+    @Override
+    void holdReleasedCode(String code) {
+      releasedCode = code != null ? new SoftReference<>(code) : null;
+    }
+
     /**
      * Store the Charset specification as the string version of the name,
      * rather than the Charset itself.  This allows us to serialize the
@@ -691,6 +801,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
   static class AtUrl extends SourceFile {
     private static final long serialVersionUID = 1L;
     private final URL url;
+    private transient SoftReference<String> releasedCode = null;
 
     // This is stored as a String, but passed in and out as a Charset so that
     // we can serialize the class.
@@ -723,6 +834,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
         super.setCode(cachedCode, Objects.equals(this.getCharset(), StandardCharsets.UTF_8));
         // Byte Order Mark can be removed by setCode
         cachedCode = super.getCode();
+        releaseCode();
       }
       return cachedCode;
     }
@@ -732,7 +844,7 @@ public class SourceFile implements StaticSourceFile, Serializable {
      */
     @Override
     public Reader getCodeReader() throws IOException {
-      if (hasSourceInMemory()) {
+      if (hasSourceInMemory() || getReleasedCode() != null) {
         return super.getCodeReader();
       } else {
         // If we haven't pulled the code into memory yet, don't.
@@ -747,6 +859,21 @@ public class SourceFile implements StaticSourceFile, Serializable {
       super.setCode(null);
     }
 
+    @Override
+    boolean canReloadCode() {
+      return true;
+    }
+
+    @Override
+    String getReleasedCode() {
+      return releasedCode != null ? releasedCode.get() : null;
+    }
+
+    @Override
+    void holdReleasedCode(String code) {
+      releasedCode = code != null ? new SoftReference<>(code) : null;
+    }
+
     /**
      * Store the Charset specification as the string version of the name,
      * rather than the Charset itself.  This allows us to serialize the
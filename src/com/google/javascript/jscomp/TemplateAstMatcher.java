@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * A matcher that can take an arbitrary AST and use it as a template to find
@@ -129,6 +130,42 @@ public final class TemplateAstMatcher {
     return false;
   }
 
+  /**
+   * Returns the token of the nodes that this template can match, or null if it can match nodes
+   * with different tokens, e.g. when the template is a single parameter.
+   */
+  @Nullable
+  public Token getRootToken() {
+    if (templateStart == null
+        || isTemplateParameterNode(templateStart)
+        || isTemplateParameterStringLiteralNode(templateStart)) {
+      return null;
+    } else if (isTemplateLocalNameNode(templateStart)) {
+      return Token.NAME;
+    }
+    return templateStart.getToken();
+  }
+
+  /** Returns the first node of the template AST sequence. */
+  @Nullable
+  Node getTemplateStart() {
+    return templateStart;
+  }
+
+  /**
+   * Whether a node of a template AST matches any expression subtree, whatever its shape, as long
+   * as the types match.
+   */
+  static boolean matchesAnyShape(Node template) {
+    return template.getToken() == TEMPLATE_TYPE_PARAM
+        || template.getToken() == TEMPLATE_STRING_LITERAL;
+  }
+
+  /** Whether a node of a template AST matches a NAME node with any name. */
+  static boolean matchesAnyName(Node template) {
+    return template.getToken() == TEMPLATE_LOCAL_NAME;
+  }
+
   /**
    * @return Whether the last match succeeded due to loose type information.
    */
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A set of {@link TemplateAstMatcher}s compiled into a single decision tree, to find the templates
+ * that match a node without trying each of them in turn.
+ *
+ * <p>The tree is keyed on the nodes of the templates in pre-order: on their token, their child
+ * count and, for names and strings, their string. A template parameter matches any subtree and a
+ * template local any name. Walking the tree along a node of the AST only leads to the templates
+ * whose shape may match it, and only those are then tried with {@link
+ * TemplateAstMatcher#matches}, which also compares the types.
+ *
+ * <p>Like the matchers themselves, this is not thread-safe.
+ */
+public final class TemplateAstMatcherTree {
+  private final ImmutableList<TemplateAstMatcher> matchers;
+  private final TreeNode root = new TreeNode();
+  // Matchers with an empty template, which match every node.
+  private final List<Integer> matchAnyNode = new ArrayList<>();
+
+  // The matchers whose template shape matches the node being looked up, reused between lookups.
+  private final List<Integer> candidates = new ArrayList<>();
+  private final boolean[] isCandidate;
+
+  public TemplateAstMatcherTree(List<TemplateAstMatcher> matchers) {
+    this.matchers = ImmutableList.copyOf(matchers);
+    this.isCandidate = new boolean[this.matchers.size()];
+    for (int i = 0; i < this.matchers.size(); i++) {
+      Node start = this.matchers.get(i).getTemplateStart();
+      if (start == null) {
+        matchAnyNode.add(i);
+      } else {
+        add(start).matchers.add(i);
+      }
+    }
+  }
+
+  /** Returns the matchers of this tree, in the order in which they were given. */
+  public ImmutableList<TemplateAstMatcher> getMatchers() {
+    return matchers;
+  }
+
+  /**
+   * Returns the index of the first matcher that matches the node, or -1 if none does. The matcher
+   * at that index holds the matches of its template parameters.
+   */
+  public int findFirstMatch(Node n) {
+    collectCandidates(n);
+    int match = -1;
+    for (int i = 0; i < candidates.size(); i++) {
+      int candidate = candidates.get(i);
+      if (matchers.get(candidate).matches(n)) {
+        match = candidate;
+        break;
+      }
+    }
+    clearCandidates();
+    return match;
+  }
+
+  /**
+   * Returns the matchers that match the node, in the order in which they were given. Each of them
+   * holds the matches of its template parameters.
+   */
+  public ImmutableList<TemplateAstMatcher> findMatches(Node n) {
+    collectCandidates(n);
+    ImmutableList<TemplateAstMatcher> matches = ImmutableList.of();
+    if (!candidates.isEmpty()) {
+      ImmutableList.Builder<TemplateAstMatcher> builder = ImmutableList.builder();
+      for (int i = 0; i < candidates.size(); i++) {
+        TemplateAstMatcher matcher = matchers.get(candidates.get(i));
+        if (matcher.matches(n)) {
+          builder.add(matcher);
+        }
+      }
+      matches = builder.build();
+    }
+    clearCandidates();
+    return matches;
+  }
+
+  /** Adds the template rooted at the given node to the tree, and returns the tree node it ends. */
+  private TreeNode add(Node templateRoot) {
+    TreeNode node = root;
+    Node n = templateRoot;
+    while (n != null) {
+      if (TemplateAstMatcher.matchesAnyShape(n)) {
+        if (node.anySubtree == null) {
+          node.anySubtree = new TreeNode();
+        }
+        node = node.anySubtree;
+        n = nextSkippingChildren(n, templateRoot);
+      } else {
+        Branch branch;
+        if (TemplateAstMatcher.matchesAnyName(n)) {
+          branch = node.getOrCreateBranch(Token.NAME, n.getChildCount());
+          if (branch.anyString == null) {
+            branch.anyString = new TreeNode();
+          }
+          node = branch.anyString;
+        } else {
+          branch = node.getOrCreateBranch(n.getToken(), n.getChildCount());
+          node = branch.getOrCreateChild(getKeyString(n));
+        }
+        n = next(n, templateRoot);
+      }
+    }
+    return node;
+  }
+
+  private void collectCandidates(Node n) {
+    for (int i = 0; i < matchAnyNode.size(); i++) {
+      addCandidate(matchAnyNode.get(i));
+    }
+    collectCandidates(root, n, n);
+    Collections.sort(candidates);
+  }
+
+  /**
+   * Walks the tree along the AST in pre-order, from {@code ast} to the end of the subtree rooted
+   * at {@code astRoot}, and records the templates at the end of each path it completes.
+   */
+  private void collectCandidates(TreeNode node, @Nullable Node ast, Node astRoot) {
+    if (ast == null) {
+      for (int i = 0; i < node.matchers.size(); i++) {
+        addCandidate(node.matchers.get(i));
+      }
+      return;
+    }
+    if (node.anySubtree != null) {
+      collectCandidates(node.anySubtree, nextSkippingChildren(ast, astRoot), astRoot);
+    }
+    Map<Integer, Branch> byChildCount = node.branches.get(ast.getToken());
+    if (byChildCount == null) {
+      return;
+    }
+    Branch branch = byChildCount.get(ast.getChildCount());
+    if (branch == null) {
+      return;
+    }
+    Node next = next(ast, astRoot);
+    String key = getKeyString(ast);
+    if (key != null && branch.byString != null) {
+      TreeNode child = branch.byString.get(key);
+      if (child != null) {
+        collectCandidates(child, next, astRoot);
+      }
+    }
+    if (branch.anyString != null) {
+      collectCandidates(branch.anyString, next, astRoot);
+    }
+  }
+
+  private void addCandidate(int i) {
+    if (!isCandidate[i]) {
+      isCandidate[i] = true;
+      candidates.add(i);
+    }
+  }
+
+  private void clearCandidates() {
+    for (int i = 0; i < candidates.size(); i++) {
+      isCandidate[candidates.get(i)] = false;
+    }
+    candidates.clear();
+  }
+
+  /** Returns the string that a node of the template must have in common with the AST, if any. */
+  @Nullable
+  private static String getKeyString(Node n) {
+    switch (n.getToken()) {
+      case NAME:
+      case STRING:
+      case STRING_KEY:
+        return n.getString();
+      default:
+        return null;
+    }
+  }
+
+  /** Returns the node after {@code n} in a pre-order walk of the subtree rooted at {@code root}. */
+  @Nullable
+  private static Node next(Node n, Node root) {
+    Node first = n.getFirstChild();
+    return first != null ? first : nextSkippingChildren(n, root);
+  }
+
+  /**
+   * Returns the node after the subtree rooted at {@code n} in a pre-order walk of the subtree
+   * rooted at {@code root}.
+   */
+  @Nullable
+  private static Node nextSkippingChildren(Node n, Node root) {
+    for (; n != root; n = n.getParent()) {
+      if (n.getNext() != null) {
+        return n.getNext();
+      }
+    }
+    return null;
+  }
+
+  /** A node of the decision tree. */
+  private static final class TreeNode {
+    // The matchers whose template ends at this node.
+    final List<Integer> matchers = new ArrayList<>();
+    // The next nodes after an AST node with a given token and child count.
+    final Map<Token, Map<Integer, Branch>> branches = new EnumMap<>(Token.class);
+    // The next node after skipping an AST subtree, for template parameters.
+    TreeNode anySubtree;
+
+    Branch getOrCreateBranch(Token token, int childCount) {
+      Map<Integer, Branch> byChildCount = branches.get(token);
+      if (byChildCount == null) {
+        byChildCount = new HashMap<>();
+        branches.put(token, byChildCount);
+      }
+      Branch branch = byChildCount.get(childCount);
+      if (branch == null) {
+        branch = new Branch();
+        byChildCount.put(childCount, branch);
+      }
+      return branch;
+    }
+  }
+
+  /** The next nodes after an AST node with a given token and child count, by its string. */
+  private static final class Branch {
+    Map<String, TreeNode> byString;
+    // For templates that don't depend on the string of the node.
+    TreeNode anyString;
+
+    TreeNode getOrCreateChild(@Nullable String key) {
+      if (key == null) {
+        if (anyString == null) {
+          anyString = new TreeNode();
+        }
+        return anyString;
+      }
+      if (byString == null) {
+        byString = new HashMap<>();
+      }
+      TreeNode child = byString.get(key);
+      if (child == null) {
+        child = new TreeNode();
+        byString.put(key, child);
+      }
+      return child;
+    }
+  }
+}
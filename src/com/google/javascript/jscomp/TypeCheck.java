@@ -53,6 +53,8 @@ import com.google.javascript.rhino.jstype.TemplateTypeMap;
 import com.google.javascript.rhino.jstype.TemplateTypeMapReplacer;
 import com.google.javascript.rhino.jstype.TemplatizedType;
 import com.google.javascript.rhino.jstype.TernaryValue;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -344,6 +346,9 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
   private int unknownCount = 0;
   private boolean inExterns;
 
+  // Warnings held back for the caller to report them later, or null to report them right away.
+  private final List<JSError> errorBuffer;
+
   private static final class SuggestionPair {
     private final String suggestion;
     final int distance;
@@ -368,6 +373,25 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
     this.reportUnknownTypes = ((Compiler) compiler).getOptions().enables(
         DiagnosticGroups.REPORT_UNKNOWN_TYPES);
     this.inferJSDocInfo = new InferJSDocInfo(compiler);
+    this.errorBuffer = null;
+  }
+
+  /**
+   * Creates an instance that checks a single script on behalf of {@code parent}, on a thread of
+   * its own. It collects its warnings, mismatches and statistics for the parent to merge them in
+   * script order.
+   */
+  private TypeCheck(TypeCheck parent) {
+    this.compiler = parent.compiler;
+    this.errorBuffer = new ArrayList<>();
+    this.validator = new TypeValidator(compiler, errorBuffer);
+    this.reverseInterpreter = parent.reverseInterpreter;
+    this.typeRegistry = parent.typeRegistry;
+    this.topScope = parent.topScope;
+    this.scopeCreator = parent.scopeCreator;
+    this.reportUnknownTypes = parent.reportUnknownTypes;
+    this.reportMissingProperties = parent.reportMissingProperties;
+    this.inExterns = parent.inExterns;
   }
 
   public TypeCheck(AbstractCompiler compiler,
@@ -428,9 +452,15 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
   void check(Node node, boolean externs) {
     checkNotNull(node);
 
-    NodeTraversal t = new NodeTraversal(compiler, this, scopeCreator);
     inExterns = externs;
-    t.traverseWithScope(node, topScope);
+    int numParallelThreads = compiler.getOptions().numParallelThreads;
+    if (numParallelThreads > 1 && node.isRoot() && node.hasMoreThanOneChild()
+        && !correctsSuperTypes(node)) {
+      checkScriptsInParallel(node, numParallelThreads);
+    } else {
+      NodeTraversal t = new NodeTraversal(compiler, this, scopeCreator);
+      t.traverseWithScope(node, topScope);
+    }
     if (externs) {
       inferJSDocInfo.process(node, null);
     } else {
@@ -438,21 +468,91 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
     }
   }
 
+  /**
+   * Checks each script under the given root on a thread pool. Every script is checked by its own
+   * TypeCheck with its own TypeValidator, and their results are merged in script order, so the
+   * warnings and mismatches come out as if the scripts had been checked one after another.
+   *
+   * <p>The root itself is not visited, since it has no type behavior.
+   */
+  private void checkScriptsInParallel(Node root, int numParallelThreads) {
+    List<TypeCheck> workers = new ArrayList<>();
+    List<Runnable> tasks = new ArrayList<>();
+    for (final Node script : root.children()) {
+      final TypeCheck worker = new TypeCheck(this);
+      workers.add(worker);
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          new NodeTraversal(compiler, worker, scopeCreator).traverseWithScope(script, topScope);
+        }
+      });
+    }
+    new ParallelLevelExecutor("TypeCheck", numParallelThreads)
+        .runLevels(Collections.singletonList(tasks));
+
+    for (TypeCheck worker : workers) {
+      for (JSError error : worker.errorBuffer) {
+        report(error);
+      }
+      validator.addMismatchesFrom(worker.validator);
+      typedCount += worker.typedCount;
+      nullCount += worker.nullCount;
+      unknownCount += worker.unknownCount;
+    }
+    // A sequential check leaves the mode of the last script it visited.
+    setSubtypingMode(root.getLastChild());
+  }
+
+  /**
+   * Returns whether checking the given root would correct the superclass of a type, because a
+   * class-defining call disagrees with the declared superclass. The correction changes the types
+   * that the rest of the root is checked against, so such roots are not checked in parallel.
+   */
+  private boolean correctsSuperTypes(Node root) {
+    final boolean[] corrects = {false};
+    NodeTraversal.Callback finder = new NodeTraversal.AbstractPostOrderCallback() {
+      @Override
+      public void visit(NodeTraversal t, Node n, Node parent) {
+        if (!corrects[0] && n.isCall()) {
+          InheritsCall call = getInheritsCall(t, n);
+          corrects[0] =
+              call != null && TypeValidator.isSuperTypeMismatch(call.superClass, call.subClass);
+        }
+      }
+    };
+    new NodeTraversal(compiler, finder, scopeCreator).traverseWithScope(root, topScope);
+    return corrects[0];
+  }
+
+  /** Sets the subtyping mode for checking the given script. */
+  private void setSubtypingMode(Node script) {
+    String filename = script.getSourceFileName();
+    if (filename != null && filename.endsWith(".java.js")) {
+      this.subtypingMode = SubtypingMode.IGNORE_NULL_UNDEFINED;
+    } else {
+      this.subtypingMode = SubtypingMode.NORMAL;
+    }
+    this.validator.setSubtypingMode(this.subtypingMode);
+  }
+
+  private void report(JSError error) {
+    if (errorBuffer != null) {
+      errorBuffer.add(error);
+    } else {
+      compiler.report(error);
+    }
+  }
+
   private void report(NodeTraversal t, Node n, DiagnosticType diagnosticType,
       String... arguments) {
-    t.report(n, diagnosticType, arguments);
+    report(t.makeError(n, diagnosticType, arguments));
   }
 
   @Override
   public boolean shouldTraverse(NodeTraversal t, Node n, Node parent) {
     if (n.isScript()) {
-      String filename = n.getSourceFileName();
-      if (filename != null && filename.endsWith(".java.js")) {
-        this.subtypingMode = SubtypingMode.IGNORE_NULL_UNDEFINED;
-      } else {
-        this.subtypingMode = SubtypingMode.NORMAL;
-      }
-      this.validator.setSubtypingMode(this.subtypingMode);
+      setSubtypingMode(n);
     }
     switch (n.getToken()) {
       case FUNCTION:
@@ -879,7 +979,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
       nullCount++;
     } else if (type.isUnknownType()) {
       if (reportUnknownTypes) {
-        compiler.report(t.makeError(n, UNKNOWN_EXPR_TYPE, getShortSource(n)));
+        report(t.makeError(n, UNKNOWN_EXPR_TYPE, getShortSource(n)));
       }
       unknownCount++;
     } else {
@@ -1236,7 +1336,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
         if (!declaredOverride && interfaceHasProperty && !"__proto__".equals(propertyName)) {
           // @override not present, but the property does override an interface
           // property
-          compiler.report(
+          report(
               t.makeError(
                   n,
                   HIDDEN_INTERFACE_PROPERTY,
@@ -1265,7 +1365,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
         && !"__proto__".equals(propertyName)) {
       // @override not present, but the property does override a superclass
       // property
-      compiler.report(
+      report(
           t.makeError(n, HIDDEN_SUPERCLASS_PROPERTY, propertyName, topInstanceType.toString()));
     }
 
@@ -1282,7 +1382,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
       }
 
       if (!propertyType.isSubtype(superClassPropType, this.subtypingMode)) {
-        compiler.report(
+        report(
             t.makeError(n, HIDDEN_SUPERCLASS_PROPERTY_MISMATCH,
                 propertyName, topInstanceType.toString(),
                 superClassPropType.toString(), propertyType.toString()));
@@ -1296,7 +1396,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
           if (!propertyType.isSubtype(superPropertyType, this.subtypingMode)) {
             topInstanceType = interfaceType.getConstructor().
                 getTopMostDefiningType(propertyName);
-            compiler.report(
+            report(
                 t.makeError(n, HIDDEN_SUPERCLASS_PROPERTY_MISMATCH,
                     propertyName, topInstanceType.toString(),
                     superPropertyType.toString(),
@@ -1308,7 +1408,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
         && !superClassHasProperty
         && !superInterfaceHasProperty) {
       // there is no superclass nor interface implementation
-      compiler.report(
+      report(
           t.makeError(n, UNKNOWN_OVERRIDE,
               propertyName, ctorType.getInstanceType().toString()));
     }
@@ -1411,14 +1511,14 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
       String abstractMethodMessage = (abstractMethodName != null)
          ? ", or " + abstractMethodName
          : "";
-      compiler.report(
+      report(
           t.makeError(object, INVALID_INTERFACE_MEMBER_DECLARATION,
               abstractMethodMessage));
     }
 
     if (assign.getLastChild().isFunction()
         && !NodeUtil.isEmptyBlock(assign.getLastChild().getLastChild())) {
-      compiler.report(
+      report(
           t.makeError(object, INTERFACE_METHOD_NOT_EMPTY,
               abstractMethodName));
     }
@@ -1688,7 +1788,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
                     .hasEqualCallType(oPropType.toMaybeFunctionType()))) {
           continue;
         }
-        compiler.report(
+        report(
             t.makeError(n, INCOMPATIBLE_EXTENDED_PROPERTY_TYPE,
                 functionName, name, oType.toString(),
                 interfaceType.toString()));
@@ -1715,7 +1815,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
       if (!Objects.equals(baseConstructor, getNativeType(OBJECT_FUNCTION_TYPE))
           && baseConstructor != null
           && baseConstructor.isInterface()) {
-        compiler.report(
+        report(
             t.makeError(n, CONFLICTING_EXTENDED_TYPE,
                         "constructor", functionPrivateName));
       } else {
@@ -1723,7 +1823,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
             && baseConstructor.getSource() != null
             && baseConstructor.getSource().getBooleanProp(Node.IS_ES6_CLASS)
             && !functionType.getSource().getBooleanProp(Node.IS_ES6_CLASS)) {
-          compiler.report(
+          report(
               t.makeError(
                   n,
                   ES5_CLASS_EXTENDING_ES6_CLASS,
@@ -1760,7 +1860,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
       for (ObjectType extInterface : functionType.getExtendedInterfaces()) {
         if (extInterface.getConstructor() != null
             && !extInterface.getConstructor().isInterface()) {
-          compiler.report(
+          report(
               t.makeError(n, CONFLICTING_EXTENDED_TYPE,
                           "interface", functionPrivateName));
         }
@@ -1786,7 +1886,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
           strPath += loopPath.get(i).getDisplayName() + " -> ";
         }
         strPath += Iterables.getLast(loopPath).getDisplayName();
-        compiler.report(t.makeError(n, INTERFACE_EXTENDS_LOOP,
+        report(t.makeError(n, INTERFACE_EXTENDS_LOOP,
             loopPath.get(0).getDisplayName(), strPath));
       }
     }
@@ -1798,19 +1898,43 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
    * to do this manually.
    */
   private void checkCallConventions(NodeTraversal t, Node n) {
+    InheritsCall call = getInheritsCall(t, n);
+    if (call != null) {
+      validator.expectSuperType(t, n, call.superClass, call.subClass);
+    }
+  }
+
+  /**
+   * Returns the classes related by the given call if it makes one inherit from the other, and
+   * null otherwise.
+   */
+  private InheritsCall getInheritsCall(NodeTraversal t, Node n) {
     SubclassRelationship relationship =
         compiler.getCodingConvention().getClassesDefinedByCall(n);
+    if (relationship == null) {
+      return null;
+    }
     TypedScope scope = t.getTypedScope();
-    if (relationship != null) {
-      ObjectType superClass = TypeValidator.getInstanceOfCtor(
-          scope.getVar(relationship.superclassName));
-      ObjectType subClass = TypeValidator.getInstanceOfCtor(
-          scope.getVar(relationship.subclassName));
-      if (relationship.type == SubclassType.INHERITS &&
-          superClass != null && !superClass.isEmptyType() &&
-          subClass != null && !subClass.isEmptyType()) {
-        validator.expectSuperType(t, n, superClass, subClass);
-      }
+    ObjectType superClass = TypeValidator.getInstanceOfCtor(
+        scope.getVar(relationship.superclassName));
+    ObjectType subClass = TypeValidator.getInstanceOfCtor(
+        scope.getVar(relationship.subclassName));
+    if (relationship.type == SubclassType.INHERITS &&
+        superClass != null && !superClass.isEmptyType() &&
+        subClass != null && !subClass.isEmptyType()) {
+      return new InheritsCall(superClass, subClass);
+    }
+    return null;
+  }
+
+  /** The instance types of a class-defining call that makes one class inherit from another. */
+  private static final class InheritsCall {
+    final ObjectType superClass;
+    final ObjectType subClass;
+
+    InheritsCall(ObjectType superClass, ObjectType subClass) {
+      this.superClass = superClass;
+      this.subClass = subClass;
     }
   }
 
@@ -2137,7 +2261,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
     JSDocInfo info = n.getJSDocInfo();
     if (info != null && (info.isImplicitCast() && !inExterns)) {
       String propName = n.isGetProp() ? n.getLastChild().getString() : "(missing)";
-      compiler.report(t.makeError(n, ILLEGAL_IMPLICIT_CAST, propName));
+      report(t.makeError(n, ILLEGAL_IMPLICIT_CAST, propName));
     }
 
     if (n.getJSType() == null) {
@@ -2180,7 +2304,7 @@ public final class TypeCheck implements NodeTraversal.Callback, CompilerPass {
       JSType realType = type.getRoot().getJSType();
       JSType objectWithBadKey = findObjectWithNonStringifiableKey(realType, new HashSet<JSType>());
       if (objectWithBadKey != null){
-        compiler.report(t.makeError(n, NON_STRINGIFIABLE_OBJECT_KEY, objectWithBadKey.toString()));
+        report(t.makeError(n, NON_STRINGIFIABLE_OBJECT_KEY, objectWithBadKey.toString()));
       }
     }
   }
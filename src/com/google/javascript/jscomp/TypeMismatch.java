@@ -21,8 +21,6 @@ import com.google.javascript.rhino.ObjectTypeI;
 import com.google.javascript.rhino.TypeI;
 import java.io.Serializable;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Objects;
 
 /**
  * Signals that the first type and the second type have been
@@ -48,7 +46,7 @@ class TypeMismatch implements Serializable {
   }
 
   static void registerIfMismatch(
-      List<TypeMismatch> mismatches, List<TypeMismatch> implicitInterfaceUses,
+      TypeMismatchSet mismatches, TypeMismatchSet implicitInterfaceUses,
       TypeI found, TypeI required, JSError error) {
     if (found != null && required != null && !found.isSubtypeWithoutStructuralTyping(required)) {
       registerMismatch(mismatches, implicitInterfaceUses, found, required, error);
@@ -56,7 +54,7 @@ class TypeMismatch implements Serializable {
   }
 
   static void registerMismatch(
-      List<TypeMismatch> mismatches, List<TypeMismatch> implicitInterfaceUses,
+      TypeMismatchSet mismatches, TypeMismatchSet implicitInterfaceUses,
       TypeI found, TypeI required, JSError error) {
     // Don't register a mismatch for differences in null or undefined or if the
     // code didn't downcast.
@@ -72,7 +70,10 @@ class TypeMismatch implements Serializable {
       return;
     }
 
-    mismatches.add(new TypeMismatch(found, required, error));
+    // If the pair was seen before, so were the mismatches between the parameter and return types.
+    if (!mismatches.add(new TypeMismatch(found, required, error))) {
+      return;
+    }
 
     if (found.isFunctionType() && required.isFunctionType()) {
       FunctionTypeI fnTypeA = found.toMaybeFunctionType();
@@ -90,7 +91,7 @@ class TypeMismatch implements Serializable {
   }
 
   static void recordImplicitUseOfNativeObject(
-      List<TypeMismatch> mismatches, Node src, TypeI sourceType, TypeI targetType) {
+      TypeMismatchSet mismatches, Node src, TypeI sourceType, TypeI targetType) {
     sourceType = sourceType.restrictByNotNullOrUndefined();
     targetType = targetType.restrictByNotNullOrUndefined();
     if (sourceType.isInstanceofObject()
@@ -104,7 +105,7 @@ class TypeMismatch implements Serializable {
   }
 
   static void recordImplicitInterfaceUses(
-      List<TypeMismatch> implicitInterfaceUses, Node src, TypeI sourceType, TypeI targetType) {
+      TypeMismatchSet implicitInterfaceUses, Node src, TypeI sourceType, TypeI targetType) {
     sourceType = removeNullUndefinedAndTemplates(sourceType);
     targetType = removeNullUndefinedAndTemplates(targetType);
     if (targetType.isUnknownType()) {
@@ -143,7 +144,8 @@ class TypeMismatch implements Serializable {
   }
 
   @Override public int hashCode() {
-    return Objects.hash(typeA, typeB);
+    // Symmetric, like equals.
+    return typeA.hashCode() + typeB.hashCode();
   }
 
   @Override public String toString() {
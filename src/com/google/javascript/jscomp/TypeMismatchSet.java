@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The type mismatches recorded during type checking, with each pair of types kept only once.
+ *
+ * <p>Large programs use the same pair of types interchangeably in thousands of places, and the
+ * passes that consume the mismatches only care about which types were involved. Iterating the set
+ * gives the first mismatch recorded for each pair, in the order the pairs were first seen. For
+ * diagnostics, the set also counts how often each pair was recorded and keeps the errors of the
+ * first few occurrences.
+ */
+final class TypeMismatchSet implements Iterable<TypeMismatch>, Serializable {
+  /** The number of errors kept for each pair of types, including the first one. */
+  static final int MAX_SAMPLES_PER_PAIR = 10;
+
+  private final Map<TypeMismatch, Occurrences> mismatches = new LinkedHashMap<>();
+  private int totalCount = 0;
+
+  /** How often a pair of types was recorded, and where. */
+  private static final class Occurrences implements Serializable {
+    final TypeMismatch first;
+    int count = 0;
+    // Created when the pair is recorded a second time.
+    List<JSError> samples = null;
+
+    Occurrences(TypeMismatch first) {
+      this.first = first;
+    }
+
+    void add(JSError src) {
+      count++;
+      if (count == 1) {
+        return;
+      }
+      if (samples == null) {
+        samples = new ArrayList<>();
+        samples.add(first.src);
+      }
+      if (samples.size() < MAX_SAMPLES_PER_PAIR) {
+        samples.add(src);
+      }
+    }
+  }
+
+  /**
+   * Records a mismatch.
+   *
+   * @return Whether this is the first time the pair of types of {@code mismatch} was recorded.
+   */
+  boolean add(TypeMismatch mismatch) {
+    totalCount++;
+    Occurrences occurrences = mismatches.get(mismatch);
+    boolean isNew = occurrences == null;
+    if (isNew) {
+      occurrences = new Occurrences(mismatch);
+      mismatches.put(mismatch, occurrences);
+    }
+    occurrences.add(mismatch.src);
+    return isNew;
+  }
+
+  /** Records the mismatches of {@code other} after the ones already in this set. */
+  void addAll(TypeMismatchSet other) {
+    addAllExcept(other, Collections.<String>emptySet());
+  }
+
+  /**
+   * Records the mismatches of {@code other} after the ones already in this set, except for the
+   * occurrences in the given source files.
+   *
+   * <p>A pair of types is only left out if all its occurrences are known to be in those files.
+   * Beyond {@link #MAX_SAMPLES_PER_PAIR}, the errors of a pair are not kept, so such a pair is
+   * kept even if it might only occur there: the passes that consume the mismatches are safe with
+   * an extra pair, but not with a missing one.
+   */
+  void addAllExcept(TypeMismatchSet other, Set<String> sourceNames) {
+    for (Occurrences theirs : other.mismatches.values()) {
+      List<JSError> samples = other.getSampleErrors(theirs.first);
+      List<JSError> kept = new ArrayList<>(samples.size());
+      for (JSError src : samples) {
+        if (!sourceNames.contains(src.sourceName)) {
+          kept.add(src);
+        }
+      }
+      // The occurrences whose errors weren't kept.
+      int unknownCount = theirs.count - samples.size();
+      if (kept.isEmpty() && unknownCount == 0) {
+        continue;
+      }
+      Occurrences ours = mismatches.get(theirs.first);
+      if (ours == null) {
+        TypeMismatch first = theirs.first;
+        if (!kept.isEmpty() && kept.get(0) != first.src) {
+          first = new TypeMismatch(first.typeA, first.typeB, kept.get(0));
+        }
+        ours = new Occurrences(first);
+        mismatches.put(first, ours);
+      }
+      for (JSError src : kept) {
+        ours.add(src);
+      }
+      ours.count += unknownCount;
+      totalCount += kept.size() + unknownCount;
+    }
+  }
+
+  @Override
+  public Iterator<TypeMismatch> iterator() {
+    final Iterator<Occurrences> it = mismatches.values().iterator();
+    return new Iterator<TypeMismatch>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public TypeMismatch next() {
+        return it.next().first;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /** Returns the number of distinct pairs of types. */
+  int size() {
+    return mismatches.size();
+  }
+
+  boolean isEmpty() {
+    return mismatches.isEmpty();
+  }
+
+  /** Returns the number of mismatches recorded, counting each occurrence of a pair. */
+  int getTotalCount() {
+    return totalCount;
+  }
+
+  /** Returns how often the pair of types of {@code mismatch} was recorded. */
+  int getCount(TypeMismatch mismatch) {
+    Occurrences occurrences = mismatches.get(mismatch);
+    return occurrences == null ? 0 : occurrences.count;
+  }
+
+  /**
+   * Returns the errors of up to {@link #MAX_SAMPLES_PER_PAIR} occurrences of the pair of types of
+   * {@code mismatch}, in the order they were recorded.
+   */
+  List<JSError> getSampleErrors(TypeMismatch mismatch) {
+    Occurrences occurrences = mismatches.get(mismatch);
+    if (occurrences == null) {
+      return Collections.emptyList();
+    } else if (occurrences.samples == null) {
+      return Collections.singletonList(occurrences.first.src);
+    }
+    return Collections.unmodifiableList(occurrences.samples);
+  }
+}
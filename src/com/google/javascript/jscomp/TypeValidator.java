@@ -46,7 +46,6 @@ import com.google.javascript.rhino.jstype.TemplateTypeMapReplacer;
 import com.google.javascript.rhino.jstype.UnknownType;
 import java.io.Serializable;
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -77,9 +76,12 @@ class TypeValidator implements Serializable {
   // TODO(nicksantos): Provide accessors to better filter the list of type
   // mismatches. For example, if we pass (Cake|null) where only Cake is
   // allowed, that doesn't mean we should invalidate all Cakes.
-  private final List<TypeMismatch> mismatches = new ArrayList<>();
+  private final TypeMismatchSet mismatches = new TypeMismatchSet();
   // the detection logic of this one is similar to this.mismatches
-  private final List<TypeMismatch> implicitInterfaceUses = new ArrayList<>();
+  private final TypeMismatchSet implicitInterfaceUses = new TypeMismatchSet();
+
+  // Warnings held back for the caller to report them later, or null to report them right away.
+  @Nullable private final transient List<JSError> errorBuffer;
 
   // User warnings
   private static final String FOUND_REQUIRED =
@@ -163,7 +165,17 @@ class TypeValidator implements Serializable {
       ILLEGAL_PROPERTY_ACCESS);
 
   TypeValidator(AbstractCompiler compiler) {
+    this(compiler, null);
+  }
+
+  /**
+   * Creates a validator that adds its warnings to {@code errorBuffer} instead of reporting them.
+   * TypeCheck uses one for each script that it checks in parallel, and merges them back with
+   * {@link #addMismatchesFrom}.
+   */
+  TypeValidator(AbstractCompiler compiler, @Nullable List<JSError> errorBuffer) {
     this.compiler = compiler;
+    this.errorBuffer = errorBuffer;
     this.typeRegistry = compiler.getTypeRegistry();
     this.allValueTypes = typeRegistry.createUnionType(
         STRING_TYPE, NUMBER_TYPE, BOOLEAN_TYPE, NULL_TYPE, VOID_TYPE);
@@ -196,27 +208,47 @@ class TypeValidator implements Serializable {
    * Gets a list of type violations.
    *
    * For each violation, one element is the expected type and the other is
-   * the type that is actually found. Order is not significant.
+   * the type that is actually found. Order is not significant. Each pair
+   * of types is included once, no matter how often it was found.
    *
    * NOTE(dimvar): Even though TypeMismatch is a pair, the passes that call this
    * method never use it as a pair; they just add both its elements to a set
    * of invalidating types. Consider just maintaining a set of types here
    * instead of a set of type pairs.
    */
-  Iterable<TypeMismatch> getMismatches() {
+  TypeMismatchSet getMismatches() {
     return mismatches;
   }
 
+  /** Adds the mismatches and implicit interface uses recorded by {@code other} to this one. */
+  void addMismatchesFrom(TypeValidator other) {
+    mismatches.addAll(other.mismatches);
+    implicitInterfaceUses.addAll(other.implicitInterfaceUses);
+  }
+
+  /**
+   * Adds the mismatches and implicit interface uses recorded by {@code other} to this one, except
+   * for those in the given source files (see {@link TypeMismatchSet#addAllExcept}).
+   */
+  void addMismatchesFrom(TypeValidator other, Set<String> excludedSourceNames) {
+    mismatches.addAllExcept(other.mismatches, excludedSourceNames);
+    implicitInterfaceUses.addAllExcept(other.implicitInterfaceUses, excludedSourceNames);
+  }
+
   void setSubtypingMode(SubtypingMode mode) {
     this.subtypingMode = mode;
   }
 
+  SubtypingMode getSubtypingMode() {
+    return subtypingMode;
+  }
+
   /**
    * all uses of implicitly implemented interfaces,
    * captured during type validation and type checking
    * (uses of explicitly @implemented structural interfaces are excluded)
    */
-  public Iterable<TypeMismatch> getImplicitInterfaceUses() {
+  public TypeMismatchSet getImplicitInterfaceUses() {
     return implicitInterfaceUses;
   }
 
@@ -527,16 +559,8 @@ class TypeValidator implements Serializable {
   void expectSuperType(NodeTraversal t, Node n, ObjectType superObject,
       ObjectType subObject) {
     FunctionType subCtor = subObject.getConstructor();
-    ObjectType implicitProto = subObject.getImplicitPrototype();
-    ObjectType declaredSuper =
-        implicitProto == null ? null : implicitProto.getImplicitPrototype();
-    if (declaredSuper != null && declaredSuper.isTemplatizedType()) {
-      declaredSuper =
-          declaredSuper.toMaybeTemplatizedType().getReferencedType();
-    }
-    if (declaredSuper != null &&
-        !(superObject instanceof UnknownType) &&
-        !declaredSuper.isEquivalentTo(superObject)) {
+    ObjectType declaredSuper = getDeclaredSuperType(subObject);
+    if (isSuperTypeMismatch(superObject, subObject)) {
       if (declaredSuper.isEquivalentTo(getNativeType(OBJECT_TYPE))) {
         TypeMismatch.registerMismatch(this.mismatches, this.implicitInterfaceUses,
             superObject, declaredSuper,
@@ -548,11 +572,37 @@ class TypeValidator implements Serializable {
 
       // Correct the super type.
       if (!subCtor.hasCachedValues()) {
+        // TypeCheck only checks scripts in parallel when no correction is needed, since types
+        // must not change under the other workers.
+        checkState(errorBuffer == null, "Superclass of %s corrected in a parallel check", subCtor);
         subCtor.setPrototypeBasedOn(superObject);
       }
     }
   }
 
+  /**
+   * Returns whether {@code superObject} is not the declared superclass of {@code subObject},
+   * which makes {@link #expectSuperType} warn and correct the superclass.
+   */
+  static boolean isSuperTypeMismatch(ObjectType superObject, ObjectType subObject) {
+    ObjectType declaredSuper = getDeclaredSuperType(subObject);
+    return declaredSuper != null
+        && !(superObject instanceof UnknownType)
+        && !declaredSuper.isEquivalentTo(superObject);
+  }
+
+  @Nullable
+  private static ObjectType getDeclaredSuperType(ObjectType subObject) {
+    ObjectType implicitProto = subObject.getImplicitPrototype();
+    ObjectType declaredSuper =
+        implicitProto == null ? null : implicitProto.getImplicitPrototype();
+    if (declaredSuper != null && declaredSuper.isTemplatizedType()) {
+      declaredSuper =
+          declaredSuper.toMaybeTemplatizedType().getReferencedType();
+    }
+    return declaredSuper;
+  }
+
   /**
    * Expect that the first type can be cast to the second type. The first type
    * must have some relationship with the second.
@@ -883,7 +933,11 @@ class TypeValidator implements Serializable {
   }
 
   private JSError report(JSError error) {
-    compiler.report(error);
+    if (errorBuffer != null) {
+      errorBuffer.add(error);
+    } else {
+      compiler.report(error);
+    }
     return error;
   }
 }
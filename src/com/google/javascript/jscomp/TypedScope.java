@@ -258,7 +258,8 @@ public class TypedScope extends Scope implements StaticTypedScope<JSType>, TypeI
     void resolveTypes();
   }
 
-  private TypeResolver typeResolver;
+  // Not saved with the compiler state: types are resolved before the scope is serialized.
+  private transient TypeResolver typeResolver;
 
   /** Resolve all type references. Only used on typed scopes. */
   void resolveTypes() {
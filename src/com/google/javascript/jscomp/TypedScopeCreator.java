@@ -263,6 +263,21 @@ final class TypedScopeCreator implements ScopeCreator {
     return newScope;
   }
 
+  /**
+   * Prepares this creator to patch a global scope that was created by an earlier compilation of
+   * the same program, and restored along with the rest of the compiler state.
+   *
+   * @param globalScope The restored global scope.
+   */
+  void restoreGlobalScope(TypedScope globalScope) {
+    checkState(globalScope.isGlobal());
+    checkState(functionAnalysisResults.isEmpty());
+    // The first-order analysis is not part of the saved state, but it doesn't need types.
+    Node root = globalScope.getRootNode();
+    (new FirstOrderFunctionAnalyzer(compiler, functionAnalysisResults))
+        .process(root.getFirstChild(), root.getLastChild());
+  }
+
   /**
    * Patches a given global scope by removing variables previously declared in
    * a script and re-traversing a new version of that script.
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.hash.Hashing;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.Node;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * The global typed scope of a compilation, saved along with the rest of the compiler state by
+ * {@link Compiler#saveState}, and a fingerprint of the code of each script it was built from.
+ *
+ * <p>After the state is restored, the fingerprints tell which scripts changed since then. Only
+ * those scripts and the scripts that depend on them need to be type checked again (see
+ * {@link Compiler#reinferChangedScripts}); the global scope, the type registry and the types on
+ * the AST of all other scripts are reused as they are.
+ */
+final class TypedScopeSnapshot implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final TypedScope globalScope;
+
+  // The fingerprint of each script, by name.
+  private final Map<String, String> fingerprints;
+
+  private TypedScopeSnapshot(TypedScope globalScope, Map<String, String> fingerprints) {
+    this.globalScope = globalScope;
+    this.fingerprints = fingerprints;
+  }
+
+  /** Takes a snapshot of the given global scope, which was built from the given inputs. */
+  @GwtIncompatible("com.google.common.hash.Hashing")
+  static TypedScopeSnapshot create(TypedScope globalScope, List<CompilerInput> inputs)
+      throws IOException {
+    checkState(globalScope.isGlobal());
+    Map<String, String> fingerprints = new LinkedHashMap<>();
+    for (CompilerInput input : inputs) {
+      fingerprints.put(input.getName(), fingerprint(input.getSourceFile()));
+    }
+    return new TypedScopeSnapshot(globalScope, fingerprints);
+  }
+
+  TypedScope getGlobalScope() {
+    return globalScope;
+  }
+
+  /**
+   * Returns the given files whose code changed since the snapshot was taken, and records their
+   * current code as the new baseline. Files that were not part of the snapshot are ignored.
+   */
+  @GwtIncompatible("com.google.common.hash.Hashing")
+  List<SourceFile> updateChangedFiles(List<SourceFile> files) throws IOException {
+    List<SourceFile> changed = new ArrayList<>();
+    for (SourceFile file : files) {
+      String oldFingerprint = fingerprints.get(file.getName());
+      if (oldFingerprint == null) {
+        continue;
+      }
+      String newFingerprint = fingerprint(file);
+      if (!newFingerprint.equals(oldFingerprint)) {
+        fingerprints.put(file.getName(), newFingerprint);
+        changed.add(file);
+      }
+    }
+    return changed;
+  }
+
+  @GwtIncompatible("com.google.common.hash.Hashing")
+  private static String fingerprint(SourceFile file) throws IOException {
+    return Hashing.murmur3_128().hashUnencodedChars(file.getCode()).toString();
+  }
+
+  /**
+   * Returns the given changed inputs and all inputs that depend on them, directly or not, in the
+   * order of {@code inputs}.
+   *
+   * <p>An input depends on the inputs that provide a namespace that it requires, and on the inputs
+   * that define a name that it refers to, in its code or its JSDoc, even without a require. An
+   * input refers to a name if it uses the name itself, a property of it, or a namespace that
+   * contains it. The names that a changed input defines are taken from both its old and its new
+   * version, so inputs that use a name that it no longer defines are checked again too.
+   *
+   * <p>An input that doesn't provide anything declares plain globals, which may be used without a
+   * require; every input that comes after it, and that can see its globals according to the
+   * module graph, is considered a dependent.
+   *
+   * @param changed The changed inputs, which still hold their old AST, and their new AST.
+   */
+  static List<CompilerInput> withDependents(
+      Map<CompilerInput, Node> changed,
+      List<CompilerInput> inputs,
+      @Nullable JSModuleGraph moduleGraph,
+      AbstractCompiler compiler) {
+    Multimap<String, CompilerInput> inputsByRequire = LinkedHashMultimap.create();
+    // The inputs by each name they refer to, and by each namespace that contains such a name.
+    Multimap<String, CompilerInput> inputsByReference = HashMultimap.create();
+    Multimap<String, CompilerInput> inputsByReferencePrefix = HashMultimap.create();
+    for (CompilerInput input : inputs) {
+      for (String require : input.getRequires()) {
+        inputsByRequire.put(require, input);
+      }
+      for (String reference : getReferencedNames(input.getAstRoot(compiler))) {
+        inputsByReference.put(reference, input);
+        for (String prefix = reference; prefix != null; prefix = getNamespace(prefix)) {
+          inputsByReferencePrefix.put(prefix, input);
+        }
+      }
+    }
+
+    Set<CompilerInput> affected = new HashSet<>(changed.keySet());
+    Deque<CompilerInput> worklist = new ArrayDeque<>(changed.keySet());
+    while (!worklist.isEmpty()) {
+      CompilerInput input = worklist.remove();
+      Collection<String> provides = input.getProvides();
+      Set<CompilerInput> dependents = new LinkedHashSet<>();
+      if (provides.isEmpty()) {
+        dependents.addAll(getInputsThatSeeGlobalsOf(input, inputs, moduleGraph));
+      }
+      Set<String> definedNames = new HashSet<>(provides);
+      getDefinedNames(input.getAstRoot(compiler), definedNames);
+      Node newRoot = changed.get(input);
+      if (newRoot != null) {
+        getDefinedNames(newRoot, definedNames);
+      }
+      for (String provide : provides) {
+        dependents.addAll(inputsByRequire.get(provide));
+      }
+      for (String name : definedNames) {
+        dependents.addAll(inputsByReferencePrefix.get(name));
+        for (String namespace = getNamespace(name);
+            namespace != null;
+            namespace = getNamespace(namespace)) {
+          dependents.addAll(inputsByReference.get(namespace));
+        }
+      }
+      for (CompilerInput dependent : dependents) {
+        if (affected.add(dependent)) {
+          worklist.add(dependent);
+        }
+      }
+    }
+
+    List<CompilerInput> result = new ArrayList<>(affected.size());
+    for (CompilerInput input : inputs) {
+      if (affected.contains(input)) {
+        result.add(input);
+      }
+    }
+    return result;
+  }
+
+  /** Returns the namespace that contains the given qualified name, or null if it is a root. */
+  @Nullable
+  private static String getNamespace(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot == -1 ? null : name.substring(0, dot);
+  }
+
+  /**
+   * Returns the qualified names that the given script refers to: the longest qualified names in
+   * its code, and the type names in its JSDoc.
+   */
+  private static Set<String> getReferencedNames(Node script) {
+    final Set<String> names = new HashSet<>();
+    NodeUtil.visitPreOrder(script, new NodeUtil.Visitor() {
+      @Override
+      public void visit(Node n) {
+        if (n.isQualifiedName()
+            && !(n.getParent().isGetProp() && n.getParent().getFirstChild() == n)) {
+          names.add(n.getQualifiedName());
+        }
+        JSDocInfo info = n.getJSDocInfo();
+        if (info != null) {
+          for (Node typeNode : info.getTypeNodes()) {
+            addTypeNames(typeNode, names);
+          }
+        }
+      }
+    });
+    return names;
+  }
+
+  private static void addTypeNames(Node typeNode, Set<String> names) {
+    if (typeNode.isString()) {
+      names.add(typeNode.getString());
+    }
+    for (Node child = typeNode.getFirstChild(); child != null; child = child.getNext()) {
+      addTypeNames(child, names);
+    }
+  }
+
+  /**
+   * Adds the names that the given script defines at its top level: its declared variables,
+   * functions and classes, and the qualified names that it assigns.
+   */
+  private static void getDefinedNames(Node script, Set<String> names) {
+    for (Node statement = script.getFirstChild();
+        statement != null;
+        statement = statement.getNext()) {
+      if (NodeUtil.isNameDeclaration(statement)) {
+        for (Node name = statement.getFirstChild(); name != null; name = name.getNext()) {
+          if (name.isName()) {
+            names.add(name.getString());
+          }
+        }
+      } else if ((statement.isFunction() || statement.isClass())
+          && !statement.getFirstChild().getString().isEmpty()) {
+        names.add(statement.getFirstChild().getString());
+      } else if (statement.isExprResult()
+          && statement.getFirstChild().isAssign()
+          && statement.getFirstChild().getFirstChild().isQualifiedName()) {
+        names.add(statement.getFirstChild().getFirstChild().getQualifiedName());
+      }
+    }
+  }
+
+  private static List<CompilerInput> getInputsThatSeeGlobalsOf(
+      CompilerInput input, List<CompilerInput> inputs, @Nullable JSModuleGraph moduleGraph) {
+    List<CompilerInput> result = new ArrayList<>();
+    JSModule module = input.getModule();
+    for (CompilerInput other : inputs.subList(inputs.indexOf(input) + 1, inputs.size())) {
+      JSModule otherModule = other.getModule();
+      if (moduleGraph == null
+          || module == null
+          || otherModule == null
+          || module == otherModule
+          || moduleGraph.dependsOn(otherModule, module)) {
+        result.add(other);
+      }
+    }
+    return result;
+  }
+}
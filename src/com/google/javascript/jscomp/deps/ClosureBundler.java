@@ -16,22 +16,33 @@
 package com.google.javascript.jscomp.deps;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.io.CharSource;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.javascript.jscomp.transpile.TranspileResult;
 import com.google.javascript.jscomp.transpile.Transpiler;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A utility class to assist in creating JS bundle files.
  */
 public final class ClosureBundler {
 
+  // The most inputs that appendAllTo reads and transpiles ahead of the one it is writing.
+  private static final int MAX_PENDING_INPUTS = 64;
+
   private final Transpiler transpiler;
 
   private final EvalMode mode;
@@ -103,10 +114,67 @@ public final class ClosureBundler {
       Appendable out,
       DependencyInfo info,
       CharSource content) throws IOException {
+    append(out, info, transpile(path, content.read()));
+  }
+
+  /**
+   * Appends the contents of all the given inputs, in iteration order, to the supplied
+   * appendable. The inputs are read and transpiled concurrently on the given executor, while
+   * those that are done are written out in order. Each input is transpiled with its path
+   * relative to Closure's base.js, if it has one, which is also the path to pass to
+   * {@link #getSourceMap}.
+   */
+  public void appendAllTo(
+      Appendable out,
+      Map<? extends DependencyInfo, ? extends CharSource> inputs,
+      ExecutorService executor) throws IOException {
+    Iterator<? extends Map.Entry<? extends DependencyInfo, ? extends CharSource>> toSubmit =
+        inputs.entrySet().iterator();
+    ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+    ArrayDeque<DependencyInfo> pendingInfos = new ArrayDeque<>();
+    try {
+      while (toSubmit.hasNext() || !pending.isEmpty()) {
+        while (toSubmit.hasNext() && pending.size() < MAX_PENDING_INPUTS) {
+          Map.Entry<? extends DependencyInfo, ? extends CharSource> input = toSubmit.next();
+          pending.add(executor.submit(transpileTask(input.getKey(), input.getValue())));
+          pendingInfos.add(input.getKey());
+        }
+        append(out, pendingInfos.remove(), getUninterruptibly(pending.remove()));
+      }
+    } finally {
+      for (Future<String> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private Callable<String> transpileTask(final DependencyInfo info, final CharSource content) {
+    final String inputPath = info.getPathRelativeToClosureBase() != null
+        ? info.getPathRelativeToClosureBase()
+        : path;
+    return new Callable<String>() {
+      @Override
+      public String call() throws IOException {
+        return transpile(inputPath, content.read());
+      }
+    };
+  }
+
+  private static String getUninterruptibly(Future<String> future) throws IOException {
+    try {
+      return Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class);
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private void append(Appendable out, DependencyInfo info, String transpiled)
+      throws IOException {
     if (info.isModule()) {
-      mode.appendGoogModule(transpile(content.read()), out, sourceUrl);
+      mode.appendGoogModule(transpiled, out, sourceUrl);
     } else {
-      mode.appendTraditional(transpile(content.read()), out, sourceUrl);
+      mode.appendTraditional(transpiled, out, sourceUrl);
     }
   }
 
@@ -125,7 +193,7 @@ public final class ClosureBundler {
     return Strings.nullToEmpty(sourceMapCache.get(path));
   }
 
-  private String transpile(String s) {
+  private String transpile(String path, String s) {
     TranspileResult result = transpiler.transpile(Paths.get(path), s);
     sourceMapCache.put(path, result.sourceMap());
     return result.transpiled();
@@ -178,7 +246,7 @@ public final class ClosureBundler {
   private enum EscapeMode {
     ESCAPED {
       @Override void append(String s, Appendable out) throws IOException {
-        out.append(SourceCodeEscapers.javascriptEscaper().escape(s));
+        SourceCodeEscapers.appendJavascriptEscaped(s, out);
       }
     },
     NORMAL {
@@ -195,9 +263,10 @@ public final class ClosureBundler {
     if (sourceUrl == null) {
       return;
     }
-    String toAppend = "\n//# sourceURL=" + sourceUrl + "\n";
     // Don't go through #append. That method relies on #transformInput,
     // but source URLs generally aren't valid JS inputs.
-    mode.append(toAppend, out);
+    mode.append("\n//# sourceURL=", out);
+    mode.append(sourceUrl, out);
+    mode.append("\n", out);
   }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.deps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of the dependency information of JS files, keyed by the hash of their content, so that
+ * {@link DepsGenerator} only parses the files that changed since the previous run. The cache can
+ * be saved to a file and loaded again by a later run.
+ *
+ * <p>There is one entry per closure-relative path. An entry is only used for a file with the same
+ * name, path and content, parsed with a {@link ModuleLoader} that resolves imports the same way,
+ * since the provides and requires of ES6 modules depend on the path of the file and on the
+ * resolution of its imports. The load flags are resolved when the cache is saved, so a hit in a
+ * later run also skips the full parse that determines the language of the file.
+ */
+@GwtIncompatible("java.io")
+public final class DependencyInfoCache implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger logger = Logger.getLogger(DependencyInfoCache.class.getName());
+
+  private static final class Entry implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    final String contentHash;
+    final String resolution;
+    // Lazily parsed until the entry is saved, so that caching a file doesn't parse it in full.
+    DependencyInfo info;
+
+    Entry(String contentHash, String resolution, DependencyInfo info) {
+      this.contentHash = contentHash;
+      this.resolution = resolution;
+      this.info = info;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      if (!(info instanceof SimpleDependencyInfo)) {
+        info =
+            new SimpleDependencyInfo(
+                info.getPathRelativeToClosureBase(),
+                info.getName(),
+                info.getProvides(),
+                info.getRequires(),
+                info.getLoadFlags());
+      }
+      out.defaultWriteObject();
+    }
+  }
+
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private transient int hitCount = 0;
+  private transient int missCount = 0;
+
+  public DependencyInfoCache() {}
+
+  /**
+   * Loads a cache saved by {@link #save}. Returns an empty cache if the file does not exist or
+   * was written by an incompatible version of this class.
+   */
+  public static DependencyInfoCache load(File file) throws IOException {
+    if (!file.exists()) {
+      return new DependencyInfoCache();
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      return (DependencyInfoCache) in.readObject();
+    } catch (ClassNotFoundException | ClassCastException | ObjectStreamException e) {
+      logger.warning("Ignoring unreadable dependency cache " + file + ": " + e);
+      return new DependencyInfoCache();
+    }
+  }
+
+  /**
+   * Saves this cache so that a later run can {@link #load} it. Files whose load flags were not
+   * needed yet are parsed in full now.
+   */
+  public synchronized void save(File file) throws IOException {
+    try (ObjectOutputStream out =
+        new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeObject(this);
+    }
+  }
+
+  /** Returns the hash that identifies the given content in the cache. */
+  static String hash(String code) {
+    return Hashing.sha256().hashString(code, UTF_8).toString();
+  }
+
+  /**
+   * Returns what identifies the way the given loader resolves imports in the cache: its
+   * resolution mode, module roots and package.json main entries.
+   */
+  static String describeResolution(ModuleLoader loader) {
+    return loader.getResolutionMode()
+        + " " + loader.getModuleRootPaths()
+        + " " + loader.getPackageJsonMainEntries();
+  }
+
+  /**
+   * Returns the cached dependency information of a file with the given name, closure-relative
+   * path, content hash and import resolution, or null if it is not cached.
+   */
+  @Nullable
+  synchronized DependencyInfo get(
+      String name, String pathRelativeToClosure, String contentHash, String resolution) {
+    Entry entry = entries.get(pathRelativeToClosure);
+    if (entry != null
+        && entry.contentHash.equals(contentHash)
+        && entry.resolution.equals(resolution)
+        && entry.info.getName().equals(name)) {
+      hitCount++;
+      return entry.info;
+    }
+    missCount++;
+    return null;
+  }
+
+  /**
+   * Caches the dependency information of a file with the given content hash and import
+   * resolution.
+   */
+  synchronized void put(String contentHash, String resolution, DependencyInfo info) {
+    entries.put(info.getPathRelativeToClosureBase(), new Entry(contentHash, resolution, info));
+  }
+
+  /** Removes the entries of all paths that are not in the given collection. */
+  synchronized void retainPaths(Set<String> pathsRelativeToClosure) {
+    for (Iterator<String> it = entries.keySet().iterator(); it.hasNext(); ) {
+      if (!pathsRelativeToClosure.contains(it.next())) {
+        it.remove();
+      }
+    }
+  }
+
+  /** Returns the number of cached files. */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /** Returns the number of lookups that found an entry since this cache was created or loaded. */
+  public synchronized int getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of lookups that missed since this cache was created or loaded. */
+  public synchronized int getMissCount() {
+    return missCount;
+  }
+}
@@ -16,12 +16,17 @@
 
 package com.google.javascript.jscomp.deps;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Function;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.javascript.jscomp.BasicErrorManager;
 import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.Compiler;
 import com.google.javascript.jscomp.CompilerOptions;
@@ -42,6 +47,11 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -68,6 +78,9 @@ public class DepsGenerator {
   private final InclusionStrategy mergeStrategy;
   private final ModuleLoader loader;
   final ErrorManager errorManager;
+  private DependencyInfoCache cache = null;
+  private int parseThreadCount = 1;
+  private boolean useTokenParser = false;
 
   static final DiagnosticType SAME_FILE_WARNING = DiagnosticType.warning(
       "DEPS_SAME_FILE",
@@ -111,6 +124,32 @@ public class DepsGenerator {
     this.loader = loader;
   }
 
+  /**
+   * Sets a cache of the dependency information of the sources. Sources whose content is cached
+   * are not parsed again, and the cache is updated with the sources that are parsed. Entries of
+   * files that are no longer sources are removed.
+   */
+  public DepsGenerator setDependencyInfoCache(DependencyInfoCache cache) {
+    this.cache = cache;
+    return this;
+  }
+
+  /** Sets the number of threads that parse the sources that are not cached. */
+  public DepsGenerator setParseThreadCount(int parseThreadCount) {
+    checkArgument(parseThreadCount > 0, "Invalid thread count: %s", parseThreadCount);
+    this.parseThreadCount = parseThreadCount;
+    return this;
+  }
+
+  /**
+   * Sets whether to extract the dependencies of the sources with {@link JsFileTokenParser}
+   * instead of {@link JsFileParser}.
+   */
+  public DepsGenerator setUseTokenParser(boolean useTokenParser) {
+    this.useTokenParser = useTokenParser;
+    return this;
+  }
+
   /**
    * Performs the parsing inputs and writing of outputs.
    * @throws IOException Occurs upon an IO error.
@@ -323,12 +362,8 @@ public class DepsGenerator {
    */
   private Map<String, DependencyInfo> parseSources(
       Set<String> preparsedFiles) throws IOException {
-    Map<String, DependencyInfo> parsedFiles = new LinkedHashMap<>();
-    JsFileParser jsParser = new JsFileParser(errorManager).setModuleLoader(loader);
-    Compiler compiler = new Compiler();
-    compiler.init(
-        ImmutableList.<SourceFile>of(), ImmutableList.<SourceFile>of(), new CompilerOptions());
-
+    List<SourceFile> files = new ArrayList<>();
+    List<String> closureRelativePaths = new ArrayList<>();
     for (SourceFile file : srcs) {
       String closureRelativePath =
           PathUtil.makeRelative(
@@ -338,21 +373,161 @@ public class DepsGenerator {
       }
       if (InclusionStrategy.WHEN_IN_SRCS == mergeStrategy ||
           !preparsedFiles.contains(closureRelativePath)) {
-        DependencyInfo depInfo =
-            jsParser.parseFile(
-                file.getName(), closureRelativePath,
-                file.getCode());
-        depInfo = new LazyParsedDependencyInfo(depInfo, new JsAst(file), compiler);
-
-        // Kick the source out of memory.
-        file.clearCachedSource();
-        parsedFiles.put(closureRelativePath, depInfo);
+        files.add(file);
+        closureRelativePaths.add(closureRelativePath);
+      }
+    }
+
+    // Look up the sources in the cache, and collect those that have to be parsed.
+    DependencyInfo[] depInfos = new DependencyInfo[files.size()];
+    String[] contentHashes = new String[files.size()];
+    String resolution = cache != null ? DependencyInfoCache.describeResolution(loader) : null;
+    List<Integer> misses = new ArrayList<>();
+    for (int i = 0; i < files.size(); i++) {
+      if (cache != null) {
+        SourceFile file = files.get(i);
+        contentHashes[i] = DependencyInfoCache.hash(file.getCode());
+        depInfos[i] = cache.get(
+            file.getName(), closureRelativePaths.get(i), contentHashes[i], resolution);
       }
+      if (depInfos[i] == null) {
+        misses.add(i);
+      } else {
+        files.get(i).clearCachedSource();
+      }
+    }
+
+    // Only cache the sources that were parsed without errors or warnings, so that they are
+    // reported again by the next run.
+    boolean[] cacheable = new boolean[files.size()];
+    if (parseThreadCount == 1 || misses.size() < 2) {
+      parseFiles(misses, files, closureRelativePaths, depInfos, cacheable, false, errorManager);
+    } else {
+      parseFilesInParallel(misses, files, closureRelativePaths, depInfos, cacheable);
     }
 
+    Map<String, DependencyInfo> parsedFiles = new LinkedHashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      if (cache != null && cacheable[i]) {
+        cache.put(contentHashes[i], resolution, depInfos[i]);
+      }
+      parsedFiles.put(closureRelativePaths.get(i), depInfos[i]);
+    }
+    if (cache != null) {
+      cache.retainPaths(new HashSet<>(closureRelativePaths));
+    }
     return parsedFiles;
   }
 
+  /**
+   * Parses the files with the given indices, and stores their dependency information in
+   * {@code depInfos}. The load flags, which take a full parse, are only determined when they are
+   * needed, unless {@code resolveLoadFlags} is set.
+   */
+  private void parseFiles(
+      List<Integer> indices,
+      List<SourceFile> files,
+      List<String> closureRelativePaths,
+      DependencyInfo[] depInfos,
+      boolean[] cacheable,
+      boolean resolveLoadFlags,
+      ErrorManager errorManager) throws IOException {
+    JsFileParser jsParser = new JsFileParser(errorManager).setModuleLoader(loader);
+    JsFileTokenParser tokenParser = new JsFileTokenParser(errorManager).setModuleLoader(loader);
+    Compiler compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(), ImmutableList.<SourceFile>of(), new CompilerOptions());
+
+    for (int i : indices) {
+      SourceFile file = files.get(i);
+      int reportCount = errorManager.getErrorCount() + errorManager.getWarningCount();
+      DependencyInfo depInfo = useTokenParser
+          ? tokenParser.parseFile(file.getName(), closureRelativePaths.get(i), file.getCode())
+          : jsParser.parseFile(file.getName(), closureRelativePaths.get(i), file.getCode());
+      depInfo = new LazyParsedDependencyInfo(depInfo, new JsAst(file), compiler);
+      if (resolveLoadFlags) {
+        depInfo.getLoadFlags();
+      }
+
+      // Kick the source out of memory.
+      file.clearCachedSource();
+      depInfos[i] = depInfo;
+      cacheable[i] =
+          reportCount == errorManager.getErrorCount() + errorManager.getWarningCount();
+    }
+  }
+
+  /**
+   * Parses the files with the given indices on {@link #parseThreadCount} threads. Each thread
+   * parses a contiguous chunk of the files and collects its own diagnostics, which are then
+   * reported in the order of the chunks, and within a chunk in the order they were found. The
+   * written deps need the load flags of every file, so the threads also do the full parses that
+   * determine them, rather than leaving them to the sequential output.
+   */
+  private void parseFilesInParallel(
+      List<Integer> indices,
+      final List<SourceFile> files,
+      final List<String> closureRelativePaths,
+      final DependencyInfo[] depInfos,
+      final boolean[] cacheable) throws IOException {
+    int chunkSize = (indices.size() + parseThreadCount - 1) / parseThreadCount;
+    List<List<Integer>> chunks = Lists.partition(indices, chunkSize);
+    ExecutorService executor = Executors.newFixedThreadPool(chunks.size());
+    try {
+      List<Future<RecordingErrorManager>> futures = new ArrayList<>();
+      for (final List<Integer> chunk : chunks) {
+        futures.add(executor.submit(new Callable<RecordingErrorManager>() {
+          @Override
+          public RecordingErrorManager call() throws IOException {
+            RecordingErrorManager chunkErrors = new RecordingErrorManager();
+            parseFiles(chunk, files, closureRelativePaths, depInfos, cacheable, true, chunkErrors);
+            return chunkErrors;
+          }
+        }));
+      }
+
+      for (Future<RecordingErrorManager> future : futures) {
+        getUninterruptibly(future).replayTo(errorManager);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Records the diagnostics reported by one parsing thread, in order, to replay them later. */
+  private static final class RecordingErrorManager extends BasicErrorManager {
+    private final List<CheckLevel> levels = new ArrayList<>();
+    private final List<JSError> diagnostics = new ArrayList<>();
+
+    @Override
+    public void report(CheckLevel level, JSError error) {
+      super.report(level, error);
+      levels.add(level);
+      diagnostics.add(error);
+    }
+
+    void replayTo(ErrorManager errorManager) {
+      for (int i = 0; i < diagnostics.size(); i++) {
+        errorManager.report(levels.get(i), diagnostics.get(i));
+      }
+    }
+
+    @Override
+    public void println(CheckLevel level, JSError error) {}
+
+    @Override
+    protected void printSummary() {}
+  }
+
+  private static <T> T getUninterruptibly(Future<T> future) throws IOException {
+    try {
+      return Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class);
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
   /**
    * Creates the content to put into the output deps.js file. If mergeDeps is
    * true, then all of the dependency information in the providedDeps will be
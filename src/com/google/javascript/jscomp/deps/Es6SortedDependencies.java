@@ -20,19 +20,14 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.Multimap;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * A sorted list of inputs following the ES6 module ordering spec.
@@ -48,48 +43,79 @@ import java.util.Set;
  * <p>
  * Also exposes other information about the inputs, like which inputs
  * do not provide symbols.
+ * <p>
+ * Internally, the inputs are numbered and the dependency graph is kept as
+ * arrays of input numbers, so that sorting and pruning are linear in the
+ * size of the graph and never recurse, however long the chains of
+ * dependencies are.
  *
  * @author stalcup@google.com (John Stalcup)
  */
 public final class Es6SortedDependencies<INPUT extends DependencyInfo>
     implements SortedDependencies<INPUT> {
 
+  // The distinct inputs, in user-provided order. The index of an input in this list is the
+  // number that identifies it in the dependency graph.
   private final List<INPUT> userOrderedInputs = new ArrayList<>();
   private final List<INPUT> importOrderedInputs = new ArrayList<>();
-  private final Set<INPUT> completedInputs = new HashSet<>();
+  private final Map<INPUT, Integer> indexByInput = new HashMap<>();
   private final Map<String, INPUT> nonExportingInputs = new LinkedHashMap<>();
-  private final Map<String, INPUT> exportingInputBySymbolName = new HashMap<>();
-  // Maps an input A to the inputs it depends on, ie, inputs that provide stuff that A requires.
-  private final Multimap<INPUT, INPUT> importedInputByImportingInput = LinkedHashMultimap.create();
+  private final Map<String, Integer> exportingIndexBySymbolName = new HashMap<>();
+  // The indices of the inputs that each input depends on, ie, inputs that provide stuff that it
+  // requires, in the order of its requires.
+  private final int[][] importedIndicesByIndex;
+  // The position of each input in importOrderedInputs.
+  private final int[] sortedPositionByIndex;
 
   public Es6SortedDependencies(List<INPUT> userOrderedInputs) {
-    this.userOrderedInputs.addAll(userOrderedInputs);
+    for (INPUT input : userOrderedInputs) {
+      if (!indexByInput.containsKey(input)) {
+        indexByInput.put(input, this.userOrderedInputs.size());
+        this.userOrderedInputs.add(input);
+      }
+    }
+    int inputCount = this.userOrderedInputs.size();
+    this.importedIndicesByIndex = new int[inputCount][];
+    this.sortedPositionByIndex = new int[inputCount];
     processInputs();
   }
 
   @Override
   public List<INPUT> getDependenciesOf(List<INPUT> rootInputs, boolean sorted) {
-    checkArgument(userOrderedInputs.containsAll(rootInputs));
-
-    Set<INPUT> includedInputs = new HashSet<>();
-    Deque<INPUT> worklist = new ArrayDeque<>(rootInputs);
-    while (!worklist.isEmpty()) {
-      INPUT input = worklist.pop();
-      if (includedInputs.add(input)) {
-        for (String symbolName : input.getRequires()) {
-          INPUT importedSymbolName = exportingInputBySymbolName.get(symbolName);
-          if (importedSymbolName != null) {
-            worklist.add(importedSymbolName);
-          }
+    int[] worklist = new int[userOrderedInputs.size()];
+    int worklistSize = 0;
+    boolean[] included = new boolean[userOrderedInputs.size()];
+    for (INPUT rootInput : rootInputs) {
+      Integer index = indexByInput.get(rootInput);
+      checkArgument(index != null);
+      if (!included[index]) {
+        included[index] = true;
+        worklist[worklistSize++] = index;
+      }
+    }
+
+    // Every included input is added to the worklist exactly once, so when the traversal is done
+    // the worklist holds all of them.
+    for (int next = 0; next < worklistSize; next++) {
+      for (int imported : importedIndicesByIndex[worklist[next]]) {
+        if (!included[imported]) {
+          included[imported] = true;
+          worklist[worklistSize++] = imported;
         }
       }
     }
 
+    // Put the included inputs in the requested order by sorting their positions in it.
+    int[] positions = new int[worklistSize];
+    for (int i = 0; i < worklistSize; i++) {
+      positions[i] = sorted ? sortedPositionByIndex[worklist[i]] : worklist[i];
+    }
+    Arrays.sort(positions);
+
     ImmutableList.Builder<INPUT> builder = ImmutableList.builder();
-    for (INPUT input : (sorted ? importOrderedInputs : userOrderedInputs)) {
-      if (includedInputs.contains(input)) {
-        builder.add(input);
-      }
+    List<INPUT> order = sorted ? importOrderedInputs : userOrderedInputs;
+    for (int position : positions) {
+      builder.add(order.get(position));
     }
     return builder.build();
   }
@@ -121,30 +147,60 @@ public final class Es6SortedDependencies<INPUT extends DependencyInfo>
 
   @Override
   public INPUT maybeGetInputProviding(String symbol) {
-    if (exportingInputBySymbolName.containsKey(symbol)) {
-      return exportingInputBySymbolName.get(symbol);
+    Integer index = exportingIndexBySymbolName.get(symbol);
+    if (index != null) {
+      return userOrderedInputs.get(index);
     }
 
     return nonExportingInputs.get(ModuleNames.fileToModuleName(symbol));
   }
 
-  private void orderInput(INPUT input) {
-    if (completedInputs.contains(input)) {
-      return;
-    }
-
-    completedInputs.add(input);
-    for (INPUT importedInput : importedInputByImportingInput.get(input)) {
-      orderInput(importedInput);
+  /**
+   * Orders the inputs so that each comes after the inputs it imports, by a depth-first traversal
+   * from each input in user-provided order that emits inputs after their imports. An input is
+   * marked as completed as soon as the traversal reaches it, which breaks circular imports.
+   */
+  private void orderInputs() {
+    int inputCount = userOrderedInputs.size();
+    boolean[] completed = new boolean[inputCount];
+    // The path from the root of the current traversal, and for each input on it, the index of
+    // the next of its imports to visit.
+    int[] path = new int[inputCount];
+    int[] nextImport = new int[inputCount];
+
+    for (int root = 0; root < inputCount; root++) {
+      if (completed[root]) {
+        continue;
+      }
+      completed[root] = true;
+      int depth = 0;
+      path[0] = root;
+      nextImport[0] = 0;
+      while (depth >= 0) {
+        int current = path[depth];
+        int[] imports = importedIndicesByIndex[current];
+        if (nextImport[depth] < imports.length) {
+          int imported = imports[nextImport[depth]++];
+          if (!completed[imported]) {
+            completed[imported] = true;
+            depth++;
+            path[depth] = imported;
+            nextImport[depth] = 0;
+          }
+        } else {
+          // Emit an input after its imports have been emitted.
+          sortedPositionByIndex[current] = importOrderedInputs.size();
+          importOrderedInputs.add(userOrderedInputs.get(current));
+          depth--;
+        }
+      }
     }
-
-    // Emit an input after its imports have been emitted.
-    importOrderedInputs.add(input);
   }
 
   private void processInputs() {
     // Index.
-    for (INPUT userOrderedInput : userOrderedInputs) {
+    for (int index = 0; index < userOrderedInputs.size(); index++) {
+      INPUT userOrderedInput = userOrderedInputs.get(index);
       Collection<String> provides = userOrderedInput.getProvides();
       String firstProvide = Iterables.getFirst(provides, null);
       if (firstProvide == null
@@ -159,28 +215,30 @@ public final class Es6SortedDependencies<INPUT extends DependencyInfo>
             ModuleNames.fileToModuleName(userOrderedInput.getName()), userOrderedInput);
       }
       for (String providedSymbolName : userOrderedInput.getProvides()) {
-        exportingInputBySymbolName.put(providedSymbolName, userOrderedInput);
+        exportingIndexBySymbolName.put(providedSymbolName, index);
       }
     }
-    for (INPUT userOrderedInput : userOrderedInputs) {
-      for (String symbolName : userOrderedInput.getRequires()) {
-        INPUT importedInput = exportingInputBySymbolName.get(symbolName);
-        if (importedInput != null) {
-          importedInputByImportingInput.put(userOrderedInput, importedInput);
+
+    // Link. An input that requires several symbols of the same input only imports it once.
+    int[] lastImportedBy = new int[userOrderedInputs.size()];
+    Arrays.fill(lastImportedBy, -1);
+    int[] imports = new int[16];
+    for (int index = 0; index < userOrderedInputs.size(); index++) {
+      int importCount = 0;
+      for (String symbolName : userOrderedInputs.get(index).getRequires()) {
+        Integer imported = exportingIndexBySymbolName.get(symbolName);
+        if (imported != null && lastImportedBy[imported] != index) {
+          lastImportedBy[imported] = index;
+          if (importCount == imports.length) {
+            imports = Arrays.copyOf(imports, 2 * importCount);
+          }
+          imports[importCount++] = imported;
         }
       }
+      importedIndicesByIndex[index] = Arrays.copyOf(imports, importCount);
     }
 
     // Order.
-    // For each input, traverse in user-provided order.
-    for (INPUT userOrderedInput : userOrderedInputs) {
-      // Traverse the graph starting from this input and record any
-      // newly-reached inputs.
-      orderInput(userOrderedInput);
-    }
-
-    // Free temporary indexes.
-    completedInputs.clear();
-    importedInputByImportingInput.clear();
+    orderInputs();
   }
 }
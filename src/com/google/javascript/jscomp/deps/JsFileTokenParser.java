@@ -0,0 +1,884 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.javascript.jscomp.deps;
+
+import com.google.javascript.jscomp.CheckLevel;
+import com.google.javascript.jscomp.ErrorManager;
+import com.google.javascript.jscomp.JSError;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A parser that extracts the same dependency information as {@link JsFileParser}, but from the
+ * tokens of the file rather than by matching regular expressions against each line. It reads the
+ * file in a single pass, so comments, strings, template literals and regular expressions can't be
+ * mistaken for dependencies, and calls and imports that span several lines are found.
+ *
+ * <p>The tokenizer only distinguishes the tokens that matter for dependencies, and never
+ * allocates strings for names, which makes it several times faster than the compiler's
+ * {@link com.google.javascript.jscomp.parsing.parser.Scanner}.
+ *
+ * <p>In shortcut mode, the parser stops at the first statement after the header of the file,
+ * that is the first statement that neither declares a dependency nor is a directive, so it
+ * usually only reads the first few lines of a file.
+ */
+public final class JsFileTokenParser {
+
+  private static final Logger logger = Logger.getLogger(JsFileTokenParser.class.getName());
+
+  private enum ModuleType {
+    NON_MODULE,
+    UNWRAPPED_GOOG_MODULE,
+    WRAPPED_GOOG_MODULE,
+    ES6_MODULE,
+  }
+
+  /** What the parser expects in the rest of an import or export declaration. */
+  private enum DeclarationState {
+    NONE,
+    IMPORT,
+    EXPORT,
+    BEFORE_FROM,
+    FROM,
+    EXPORT_NAMES,
+    AFTER_EXPORT_NAMES,
+  }
+
+  private final ErrorManager errorManager;
+  private ModuleLoader loader = ModuleLoader.EMPTY;
+
+  /** Whether to provide/require the root namespace. */
+  private boolean includeGoogBase = false;
+
+  private boolean shortcutMode = false;
+
+  /** The info for the file we are currently parsing. */
+  private String filePath;
+  private Tokenizer tokenizer;
+  private List<String> provides;
+  private List<String> requires;
+  private boolean fileHasProvidesOrRequires;
+  private ModuleLoader.ModulePath file;
+  private ModuleType moduleType;
+
+  /** The last tokens of the file, as kinds and source ranges in ring buffers. */
+  private static final int HISTORY_SIZE = 8;
+  private final Kind[] historyKinds = new Kind[HISTORY_SIZE];
+  private final int[] historyStarts = new int[HISTORY_SIZE];
+  private final int[] historyEnds = new int[HISTORY_SIZE];
+  private int tokenCount;
+
+  /** The goog call whose argument is expected next, if any. */
+  private String pendingGoogCall;
+  private DeclarationState declarationState;
+
+  /** The state of the current statement, for the shortcut mode. */
+  private int statementTokenCount;
+  private boolean statementIsDirective;
+  private boolean statementHasDependency;
+
+  /**
+   * Constructor
+   *
+   * @param errorManager Handles parse errors.
+   */
+  public JsFileTokenParser(ErrorManager errorManager) {
+    this.errorManager = errorManager;
+  }
+
+  /**
+   * Sets whether we should create implicit provides and requires of the root namespace.
+   *
+   * @return this for easy chaining.
+   * @see JsFileParser#setIncludeGoogBase
+   */
+  public JsFileTokenParser setIncludeGoogBase(boolean include) {
+    includeGoogBase = include;
+    return this;
+  }
+
+  /**
+   * Sets a list of "module root" URIs, which allow relativizing filenames for modules.
+   *
+   * @return this for easy chaining.
+   */
+  public JsFileTokenParser setModuleLoader(ModuleLoader loader) {
+    this.loader = loader;
+    return this;
+  }
+
+  /**
+   * In shortcut mode, the parser stops reading at the first statement that follows the
+   * dependency declarations of the file.
+   *
+   * @return this for easy chaining.
+   */
+  public JsFileTokenParser setShortcutMode(boolean mode) {
+    this.shortcutMode = mode;
+    return this;
+  }
+
+  /**
+   * Parses the given file and returns the dependency information that it contained.
+   *
+   * @param filePath Path to the file to parse.
+   * @param closureRelativePath Path of the file relative to closure.
+   * @param fileContents The contents to parse.
+   * @return A DependencyInfo containing all provides/requires found in the file.
+   */
+  public DependencyInfo parseFile(String filePath, String closureRelativePath,
+      String fileContents) {
+    this.filePath = filePath;
+    this.tokenizer = new Tokenizer(fileContents);
+    this.provides = new ArrayList<>();
+    this.requires = new ArrayList<>();
+    this.fileHasProvidesOrRequires = false;
+    this.file = loader.resolve(filePath);
+    this.moduleType = ModuleType.NON_MODULE;
+    this.tokenCount = 0;
+    this.pendingGoogCall = null;
+    this.declarationState = DeclarationState.NONE;
+
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine("Parsing Source: " + filePath);
+    }
+    try {
+      doParse();
+    } finally {
+      this.tokenizer = null;
+    }
+
+    if (moduleType == ModuleType.ES6_MODULE) {
+      provides.add(file.toModuleName());
+    }
+
+    Map<String, String> loadFlags = new LinkedHashMap<>();
+    switch (moduleType) {
+      case UNWRAPPED_GOOG_MODULE:
+        loadFlags.put("module", "goog");
+        break;
+      case ES6_MODULE:
+        loadFlags.put("module", "es6");
+        break;
+      default:
+        // Nothing to do here.
+    }
+
+    DependencyInfo dependencyInfo = new SimpleDependencyInfo(
+        closureRelativePath, filePath, provides, requires, loadFlags);
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine("DepInfo: " + dependencyInfo);
+    }
+    return dependencyInfo;
+  }
+
+  private void doParse() {
+    String contents = tokenizer.contents;
+    if (!shortcutMode && !includeGoogBase && !containsName(contents, "goog")
+        && !containsName(contents, "import") && !containsName(contents, "export")) {
+      // Nothing to find; this is the common case of plain scripts and CommonJS modules, whose
+      // "exports" doesn't count. In shortcut mode, reading the first statement is cheaper than
+      // searching the whole file.
+      return;
+    }
+    startStatement();
+    while (true) {
+      Kind kind = tokenizer.next();
+      if (kind == Kind.END_OF_FILE) {
+        return;
+      }
+      // The depth of the token, before it is opened or after it is closed.
+      int depth = kind.opens() ? tokenizer.depth - 1 : tokenizer.depth;
+      if (depth == 0 && tokenizer.lineTerminatorBefore && statementTokenCount > 0
+          && pendingGoogCall == null && declarationState == DeclarationState.NONE
+          && kind.startsStatement() && historyKind(0).endsStatement()) {
+        // The statement relied on automatic semicolon insertion.
+        if (isEndOfHeader()) {
+          return;
+        }
+        startStatement();
+      }
+      boolean statementStart = statementTokenCount++ == 0;
+      if (statementStart) {
+        statementIsDirective = kind == Kind.STRING;
+      }
+
+      if (pendingGoogCall != null) {
+        parseGoogCallArgument(kind);
+      }
+      if (declarationState != DeclarationState.NONE) {
+        parseDeclaration(kind, depth);
+      }
+
+      switch (kind) {
+        case SEMI_COLON:
+          if (includeGoogBase && tokenCount == 4 && isBaseJsStart()) {
+            // base.js can't provide or require anything else.
+            provides.add("goog");
+            return;
+          }
+          if (statementTokenCount > 1 && isEndOfHeader()) {
+            return;
+          }
+          startStatement();
+          break;
+        case OPEN_PAREN:
+          if (isGoogMethod(0)) {
+            startGoogCall();
+          }
+          break;
+        case NAME:
+          if (tokenizer.is("setTestOnly") ? isGoogProperty()
+              : tokenizer.is("declareLegacyNamespace")
+                  && historyKind(0) == Kind.PERIOD && isGoogMethod(1) && history(1, "module")) {
+            statementIsDirective = true;
+          } else if (depth == 0 && historyKind(0) != Kind.PERIOD
+              // Declarations like classes and functions don't end with a semicolon, and
+              // neither do statements that rely on automatic semicolon insertion.
+              && (statementStart || historyKind(0) == Kind.CLOSE_CURLY
+                  || tokenizer.lineTerminatorBefore)) {
+            if (tokenizer.is("import")) {
+              declarationState = DeclarationState.IMPORT;
+            } else if (tokenizer.is("export")) {
+              setModuleType(ModuleType.ES6_MODULE);
+              statementHasDependency = true;
+              declarationState = DeclarationState.EXPORT;
+            }
+          }
+          break;
+        default:
+          break;
+      }
+      record(kind);
+    }
+  }
+
+  /** Whether {@code name} occurs in the contents outside of a longer name. */
+  private static boolean containsName(String contents, String name) {
+    for (int index = contents.indexOf(name); index != -1;
+        index = contents.indexOf(name, index + 1)) {
+      int end = index + name.length();
+      if ((index == 0 || !Tokenizer.isNamePart(contents.charAt(index - 1)))
+          && (end == contents.length() || !Tokenizer.isNamePart(contents.charAt(end)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Whether the shortcut mode stops after the current statement. */
+  private boolean isEndOfHeader() {
+    return shortcutMode && !statementHasDependency && !statementIsDirective;
+  }
+
+  private void startStatement() {
+    statementTokenCount = 0;
+    statementIsDirective = false;
+    statementHasDependency = false;
+    declarationState = DeclarationState.NONE;
+  }
+
+  /** Called for the open paren of a goog.foo( call. */
+  private void startGoogCall() {
+    String method = historyText(0);
+    switch (method) {
+      case "loadModule":
+        statementHasDependency = true;
+        pendingGoogCall = method;
+        return;
+      case "provide":
+      case "module":
+      case "require":
+      case "addDependency":
+        break;
+      default:
+        return;
+    }
+    statementHasDependency = true;
+    if (includeGoogBase && !fileHasProvidesOrRequires) {
+      fileHasProvidesOrRequires = true;
+      requires.add("goog");
+    }
+    if (method.equals("module") && moduleType != ModuleType.WRAPPED_GOOG_MODULE) {
+      setModuleType(ModuleType.UNWRAPPED_GOOG_MODULE);
+    }
+    if (!method.equals("addDependency")) {
+      pendingGoogCall = method;
+    }
+  }
+
+  /** Called for the token after the open paren of a goog.foo( call. */
+  private void parseGoogCallArgument(Kind kind) {
+    String method = pendingGoogCall;
+    pendingGoogCall = null;
+    if (method.equals("loadModule")) {
+      if (kind == Kind.NAME && tokenizer.is("function")) {
+        setModuleType(ModuleType.WRAPPED_GOOG_MODULE);
+      }
+      return;
+    }
+    if (kind != Kind.STRING) {
+      reportParseError("Syntax error in JS String literal");
+      return;
+    }
+    String arg = tokenizer.stringValue();
+    if (method.equals("require")) {
+      // goog is always implicit.
+      if (!"goog".equals(arg)) {
+        requires.add(arg);
+      }
+    } else {
+      provides.add(arg);
+    }
+  }
+
+  /** Called for the tokens of an import or export declaration. */
+  private void parseDeclaration(Kind kind, int depth) {
+    switch (declarationState) {
+      case IMPORT:
+        if (kind == Kind.OPEN_PAREN || kind == Kind.PERIOD) {
+          // A dynamic import() or import.meta, which may appear in scripts.
+          declarationState = DeclarationState.NONE;
+          return;
+        }
+        setModuleType(ModuleType.ES6_MODULE);
+        statementHasDependency = true;
+        if (kind == Kind.STRING) {
+          addEs6Require(tokenizer.stringValue());
+          declarationState = DeclarationState.NONE;
+        } else {
+          declarationState = DeclarationState.BEFORE_FROM;
+        }
+        return;
+      case EXPORT:
+        if (kind == Kind.STAR) {
+          declarationState = DeclarationState.BEFORE_FROM;
+        } else if (kind == Kind.OPEN_CURLY) {
+          declarationState = DeclarationState.EXPORT_NAMES;
+        } else {
+          declarationState = DeclarationState.NONE;
+        }
+        return;
+      case EXPORT_NAMES:
+        if (kind == Kind.CLOSE_CURLY && depth == 0) {
+          declarationState = DeclarationState.AFTER_EXPORT_NAMES;
+        }
+        return;
+      case AFTER_EXPORT_NAMES:
+        declarationState =
+            isFrom(kind) ? DeclarationState.FROM : DeclarationState.NONE;
+        return;
+      case BEFORE_FROM:
+        if (isFrom(kind)) {
+          declarationState = DeclarationState.FROM;
+        }
+        return;
+      case FROM:
+        if (kind == Kind.STRING) {
+          addEs6Require(tokenizer.stringValue());
+          declarationState = DeclarationState.NONE;
+        } else if (!isFrom(kind)) {
+          // "from" was one of the imported names.
+          declarationState = DeclarationState.BEFORE_FROM;
+        }
+        return;
+      default:
+        throw new IllegalStateException("Unexpected state " + declarationState);
+    }
+  }
+
+  private boolean isFrom(Kind kind) {
+    return kind == Kind.NAME && tokenizer.is("from");
+  }
+
+  private void addEs6Require(String arg) {
+    if (arg.startsWith("goog:")) {
+      requires.add(arg.substring(5)); // cut off the "goog:" prefix
+    } else {
+      ModuleLoader.ModulePath path = file.resolveJsModule(arg);
+      if (path == null) {
+        path = file.resolveModuleAsPath(arg);
+      }
+      requires.add(path.toModuleName());
+    }
+  }
+
+  private void setModuleType(ModuleType type) {
+    if (moduleType != type && moduleType != ModuleType.NON_MODULE) {
+      errorManager.report(
+          CheckLevel.WARNING, JSError.make(ModuleLoader.MODULE_CONFLICT, file.toString()));
+    }
+    moduleType = type;
+  }
+
+  /** Adds the current token to the history. */
+  private void record(Kind kind) {
+    int slot = tokenCount++ & (HISTORY_SIZE - 1);
+    historyKinds[slot] = kind;
+    historyStarts[slot] = tokenizer.start;
+    historyEnds[slot] = tokenizer.end;
+  }
+
+  /** Returns the kind of the token {@code index} tokens back in the history, if any. */
+  private Kind historyKind(int index) {
+    return index < tokenCount ? historyKinds[slot(index)] : null;
+  }
+
+  private int slot(int index) {
+    return (tokenCount - 1 - index) & (HISTORY_SIZE - 1);
+  }
+
+  /** Whether the token {@code index} tokens back in the history is the given name. */
+  private boolean history(int index, String name) {
+    if (historyKind(index) != Kind.NAME) {
+      return false;
+    }
+    int slot = slot(index);
+    return historyEnds[slot] - historyStarts[slot] == name.length()
+        && tokenizer.contents.startsWith(name, historyStarts[slot]);
+  }
+
+  private String historyText(int index) {
+    int slot = slot(index);
+    return tokenizer.contents.substring(historyStarts[slot], historyEnds[slot]);
+  }
+
+  /**
+   * Whether the tokens from {@code index} tokens back in the history are "goog" "." NAME, and the
+   * "goog" is not a property.
+   */
+  private boolean isGoogMethod(int index) {
+    return historyKind(index) == Kind.NAME
+        && historyKind(index + 1) == Kind.PERIOD
+        && history(index + 2, "goog")
+        && historyKind(index + 3) != Kind.PERIOD;
+  }
+
+  /** Whether the current token is a property of goog. */
+  private boolean isGoogProperty() {
+    return historyKind(0) == Kind.PERIOD
+        && history(1, "goog")
+        && historyKind(2) != Kind.PERIOD;
+  }
+
+  /** Whether the file starts with "var COMPILED = false", like base.js. */
+  private boolean isBaseJsStart() {
+    return history(3, "var")
+        && history(2, "COMPILED")
+        && historyKind(1) == Kind.EQUAL
+        && history(0, "false");
+  }
+
+  private void reportParseError(String message) {
+    String contents = tokenizer.contents;
+    int lineStart = contents.lastIndexOf('\n', tokenizer.start - 1) + 1;
+    int lineEnd = contents.indexOf('\n', tokenizer.start);
+    int lineNum = 1;
+    for (int i = 0; i < lineStart; i++) {
+      if (contents.charAt(i) == '\n') {
+        lineNum++;
+      }
+    }
+    errorManager.report(
+        CheckLevel.ERROR,
+        JSError.make(filePath, lineNum, tokenizer.start - lineStart,
+            JsFileLineParser.PARSE_ERROR, message,
+            contents.substring(lineStart, lineEnd == -1 ? contents.length() : lineEnd)));
+  }
+
+  /** The kinds of tokens that the tokenizer distinguishes. */
+  private enum Kind {
+    END_OF_FILE,
+    NAME,
+    NUMBER,
+    STRING,
+    REGULAR_EXPRESSION,
+    /** A template literal without substitutions, or the part after the last substitution. */
+    TEMPLATE_END,
+    /** The part of a template literal before a substitution. */
+    TEMPLATE_PART,
+    OPEN_CURLY,
+    CLOSE_CURLY,
+    OPEN_PAREN,
+    CLOSE_PAREN,
+    OPEN_SQUARE,
+    CLOSE_SQUARE,
+    SEMI_COLON,
+    COMMA,
+    PERIOD,
+    EQUAL,
+    STAR,
+    INCREMENT,
+    OPERATOR;
+
+    boolean opens() {
+      return this == OPEN_CURLY || this == OPEN_PAREN || this == OPEN_SQUARE
+          || this == TEMPLATE_PART;
+    }
+
+    /** Whether a statement can end with this kind of token. */
+    boolean endsStatement() {
+      switch (this) {
+        case NAME:
+        case NUMBER:
+        case STRING:
+        case REGULAR_EXPRESSION:
+        case TEMPLATE_END:
+        case CLOSE_CURLY:
+        case CLOSE_PAREN:
+        case CLOSE_SQUARE:
+        case INCREMENT:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    /**
+     * Whether this kind of token starts a new statement when it follows the end of a statement
+     * on a new line, rather than continuing the expression before it.
+     */
+    boolean startsStatement() {
+      return this == NAME || this == NUMBER || this == STRING || this == INCREMENT;
+    }
+  }
+
+  /**
+   * Splits JavaScript into the tokens that matter for dependencies. Like the compiler's
+   * scanner, it decides whether a slash starts a regular expression from the previous token,
+   * which is right for all but contrived code.
+   */
+  private static final class Tokenizer {
+    // The keywords after which a slash starts a regular expression.
+    private static final String[] KEYWORDS_BEFORE_EXPRESSION = {
+      "await", "case", "delete", "do", "else", "in", "instanceof", "new", "of", "return",
+      "throw", "typeof", "void", "yield"
+    };
+
+    private static final String OPERATOR_CHARS = "=<>!&|^%+-*~?:";
+
+    // Flags of the ASCII characters, to classify them with a single lookup.
+    private static final byte NAME_PART = 1;
+    private static final byte OPERATOR_PART = 2;
+    private static final byte[] ASCII_FLAGS = new byte[128];
+
+    static {
+      for (char c = 'a'; c <= 'z'; c++) {
+        ASCII_FLAGS[c] |= NAME_PART;
+        ASCII_FLAGS[Character.toUpperCase(c)] |= NAME_PART;
+      }
+      for (char c = '0'; c <= '9'; c++) {
+        ASCII_FLAGS[c] |= NAME_PART;
+      }
+      ASCII_FLAGS['$'] |= NAME_PART;
+      ASCII_FLAGS['_'] |= NAME_PART;
+      ASCII_FLAGS['\\'] |= NAME_PART;
+      for (int i = 0; i < OPERATOR_CHARS.length(); i++) {
+        ASCII_FLAGS[OPERATOR_CHARS.charAt(i)] |= OPERATOR_PART;
+      }
+    }
+
+    final String contents;
+    private final int length;
+    private int pos = 0;
+
+    /** The current token. */
+    int start;
+    int end;
+    private Kind kind;
+    /** Whether there is a line break between the previous token and the current one. */
+    boolean lineTerminatorBefore;
+    private int previousStart;
+    private int previousEnd;
+
+    /** The number of open parens, brackets, braces and template substitutions. */
+    int depth = 0;
+    // Whether the open curly brace at each depth starts a template substitution.
+    private final BitSet templateSubstitutions = new BitSet();
+
+    Tokenizer(String contents) {
+      this.contents = contents;
+      this.length = contents.length();
+    }
+
+    /** Whether the current token is the given name. */
+    boolean is(String name) {
+      return end - start == name.length() && contents.startsWith(name, start);
+    }
+
+    /** Returns the value of the current string literal, without its quotes. */
+    String stringValue() {
+      return contents.substring(start + 1, Math.max(start + 1, end - 1));
+    }
+
+    Kind next() {
+      Kind previous = kind;
+      previousStart = start;
+      previousEnd = end;
+      kind = scan(previous);
+      end = pos;
+      return kind;
+    }
+
+    private Kind scan(Kind previous) {
+      skipWhitespaceAndComments();
+      start = pos;
+      if (pos >= length) {
+        return Kind.END_OF_FILE;
+      }
+      char c = contents.charAt(pos++);
+      switch (c) {
+        case '{':
+          templateSubstitutions.clear(depth++);
+          return Kind.OPEN_CURLY;
+        case '}':
+          if (depth > 0 && templateSubstitutions.get(--depth)) {
+            return scanTemplate();
+          }
+          return Kind.CLOSE_CURLY;
+        case '(':
+          depth++;
+          return Kind.OPEN_PAREN;
+        case ')':
+          depth = Math.max(depth - 1, 0);
+          return Kind.CLOSE_PAREN;
+        case '[':
+          depth++;
+          return Kind.OPEN_SQUARE;
+        case ']':
+          depth = Math.max(depth - 1, 0);
+          return Kind.CLOSE_SQUARE;
+        case ';':
+          return Kind.SEMI_COLON;
+        case ',':
+          return Kind.COMMA;
+        case '\'':
+        case '"':
+          skipString(c);
+          return Kind.STRING;
+        case '`':
+          return scanTemplate();
+        case '/':
+          if (allowsRegularExpression(previous)) {
+            skipRegularExpression();
+            return Kind.REGULAR_EXPRESSION;
+          }
+          skipOperator();
+          return Kind.OPERATOR;
+        case '.':
+          if (pos < length && isDigit(contents.charAt(pos))) {
+            skipNumber();
+            return Kind.NUMBER;
+          }
+          while (pos < length && contents.charAt(pos) == '.') {
+            pos++;  // spread
+          }
+          return pos - start == 1 ? Kind.PERIOD : Kind.OPERATOR;
+        default:
+          break;
+      }
+      if (isDigit(c)) {
+        skipNumber();
+        return Kind.NUMBER;
+      } else if (isOperatorPart(c)) {
+        skipOperator();
+        if (pos - start == 1) {
+          return c == '=' ? Kind.EQUAL : c == '*' ? Kind.STAR : Kind.OPERATOR;
+        }
+        return pos - start == 2 && (c == '+' || c == '-') && contents.charAt(start + 1) == c
+            ? Kind.INCREMENT : Kind.OPERATOR;
+      } else if (isNamePart(c)) {
+        while (pos < length && isNamePart(contents.charAt(pos))) {
+          pos++;
+        }
+        return Kind.NAME;
+      }
+      return Kind.OPERATOR;
+    }
+
+    private boolean allowsRegularExpression(Kind previous) {
+      if (previous == null) {
+        return true;
+      }
+      switch (previous) {
+        case NAME:
+          for (String keyword : KEYWORDS_BEFORE_EXPRESSION) {
+            if (previousEnd - previousStart == keyword.length()
+                && contents.startsWith(keyword, previousStart)) {
+              return true;
+            }
+          }
+          return false;
+        case NUMBER:
+        case STRING:
+        case REGULAR_EXPRESSION:
+        case TEMPLATE_END:
+        case CLOSE_PAREN:
+        case CLOSE_SQUARE:
+        case INCREMENT:
+          return false;
+        default:
+          return true;
+      }
+    }
+
+    private void skipWhitespaceAndComments() {
+      lineTerminatorBefore = false;
+      while (pos < length) {
+        char c = contents.charAt(pos);
+        if (c == '/' && pos + 1 < length) {
+          char next = contents.charAt(pos + 1);
+          if (next == '/') {
+            skipToLineEnd();
+            continue;
+          } else if (next == '*') {
+            int commentEnd = contents.indexOf("*/", pos + 2);
+            commentEnd = commentEnd == -1 ? length : commentEnd + 2;
+            if (!lineTerminatorBefore) {
+              lineTerminatorBefore = containsLineTerminator(pos + 2, commentEnd);
+            }
+            pos = commentEnd;
+            continue;
+          }
+          return;
+        } else if (c == '<' && contents.startsWith("<!--", pos)) {
+          skipToLineEnd();
+        } else if (c <= ' ') {
+          lineTerminatorBefore |= c == '\n' || c == '\r';
+          pos++;
+        } else if (c > 127
+            && (c == '\u00A0' || c == '\uFEFF' || Character.isWhitespace(c))) {
+          lineTerminatorBefore |= isLineTerminator(c);
+          pos++;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private void skipToLineEnd() {
+      while (pos < length && !isLineTerminator(contents.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    private void skipString(char quote) {
+      while (pos < length) {
+        char c = contents.charAt(pos++);
+        if (c == quote || c == '\n' || c == '\r') {
+          return;
+        } else if (c == '\\' && pos < length) {
+          pos++;
+        }
+      }
+    }
+
+    /** Scans the rest of a template literal, up to its end or next substitution. */
+    private Kind scanTemplate() {
+      while (pos < length) {
+        char c = contents.charAt(pos++);
+        if (c == '`') {
+          return Kind.TEMPLATE_END;
+        } else if (c == '\\' && pos < length) {
+          pos++;
+        } else if (c == '$' && pos < length && contents.charAt(pos) == '{') {
+          pos++;
+          templateSubstitutions.set(depth++);
+          return Kind.TEMPLATE_PART;
+        }
+      }
+      return Kind.TEMPLATE_END;
+    }
+
+    private void skipRegularExpression() {
+      boolean inClass = false;
+      while (pos < length) {
+        char c = contents.charAt(pos++);
+        if (isLineTerminator(c)) {
+          return;
+        } else if (c == '\\' && pos < length) {
+          pos++;
+        } else if (c == '[') {
+          inClass = true;
+        } else if (c == ']') {
+          inClass = false;
+        } else if (c == '/' && !inClass) {
+          break;
+        }
+      }
+      // flags
+      while (pos < length && isNamePart(contents.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    private void skipNumber() {
+      while (pos < length) {
+        char c = contents.charAt(pos);
+        if (isNamePart(c) || c == '.') {
+          pos++;
+        } else if ((c == '+' || c == '-')
+            && (contents.charAt(pos - 1) == 'e' || contents.charAt(pos - 1) == 'E')
+            && !contents.startsWith("0x", start) && !contents.startsWith("0X", start)) {
+          pos++;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private void skipOperator() {
+      while (pos < length && isOperatorPart(contents.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    /** Whether the given range of the contents contains a line terminator. */
+    private boolean containsLineTerminator(int from, int to) {
+      for (int i = from; i < to; i++) {
+        if (isLineTerminator(contents.charAt(i))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static boolean isDigit(char c) {
+      return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNamePart(char c) {
+      return c < 128
+          ? (ASCII_FLAGS[c] & NAME_PART) != 0
+          : Character.isUnicodeIdentifierPart(c);
+    }
+
+    private static boolean isOperatorPart(char c) {
+      return c < 128 && (ASCII_FLAGS[c] & OPERATOR_PART) != 0;
+    }
+
+    private static boolean isLineTerminator(char c) {
+      return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029';
+    }
+  }
+}
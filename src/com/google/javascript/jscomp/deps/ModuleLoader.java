@@ -31,7 +31,10 @@ import com.google.javascript.jscomp.JSError;
 import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
 /**
@@ -68,8 +71,20 @@ public final class ModuleLoader {
   /** Used to canonicalize paths before resolution. */
   private final PathResolver pathResolver;
 
+  private final ResolutionMode resolutionMode;
   private final ModuleResolver moduleResolver;
 
+  /**
+   * Module addresses resolved by {@link ModulePath#resolveJsModule}, keyed by the directory of the
+   * importing script and the address it imports, since resolution depends on nothing else. Shared
+   * by all the threads that use this loader.
+   */
+  private final Map<ResolutionKey, String> resolutionCache = new ConcurrentHashMap<>();
+  private final AtomicLong resolutionCacheHits = new AtomicLong();
+  private final AtomicLong resolutionCacheMisses = new AtomicLong();
+  /** The number of warnings the resolver has reported, to tell which resolutions failed. */
+  private final AtomicLong reportedWarnings = new AtomicLong();
+
   /**
    * Creates an instance of the module loader which can be used to locate ES6 and CommonJS modules.
    *
@@ -86,13 +101,15 @@ public final class ModuleLoader {
     checkNotNull(inputs);
     checkNotNull(pathResolver);
     this.pathResolver = pathResolver;
-    this.errorHandler = errorHandler == null ? new NoopErrorHandler() : errorHandler;
+    this.errorHandler =
+        new CountingErrorHandler(errorHandler == null ? new NoopErrorHandler() : errorHandler);
     this.moduleRootPaths = createRootPaths(moduleRoots, pathResolver);
     this.modulePaths =
         resolvePaths(
             Iterables.transform(Iterables.transform(inputs, UNWRAP_DEPENDENCY_INFO), pathResolver),
             moduleRootPaths);
 
+    this.resolutionMode = resolutionMode;
     switch (resolutionMode) {
       case BROWSER:
         this.moduleResolver =
@@ -133,6 +150,24 @@ public final class ModuleLoader {
     return this.moduleResolver.getPackageJsonMainEntries();
   }
 
+  ResolutionMode getResolutionMode() {
+    return resolutionMode;
+  }
+
+  ImmutableList<String> getModuleRootPaths() {
+    return moduleRootPaths;
+  }
+
+  /** Returns the number of module resolutions that were answered from the cache. */
+  public long getResolutionCacheHitCount() {
+    return resolutionCacheHits.get();
+  }
+
+  /** Returns the number of module resolutions that had to run the resolution algorithm. */
+  public long getResolutionCacheMissCount() {
+    return resolutionCacheMisses.get();
+  }
+
   /**
    * A path to a module.  Provides access to the module's closurized name
    * and a way to resolve relative paths.
@@ -187,8 +222,24 @@ public final class ModuleLoader {
     @Nullable
     public ModulePath resolveJsModule(
         String moduleAddress, String sourcename, int lineno, int colno) {
-      String loadAddress =
+      ResolutionKey key = new ResolutionKey(
+          path.substring(0, path.lastIndexOf(MODULE_SLASH) + MODULE_SLASH.length()),
+          moduleAddress);
+      String loadAddress = resolutionCache.get(key);
+      if (loadAddress != null) {
+        resolutionCacheHits.incrementAndGet();
+        return new ModulePath(loadAddress);
+      }
+
+      resolutionCacheMisses.incrementAndGet();
+      long warningsBefore = reportedWarnings.get();
+      loadAddress =
           moduleResolver.resolveJsModule(this.path, moduleAddress, sourcename, lineno, colno);
+      // Resolutions that reported a warning are not cached, so that the warning is reported
+      // for every import that fails. A warning from another thread only costs a cache entry.
+      if (loadAddress != null && reportedWarnings.get() == warningsBefore) {
+        resolutionCache.put(key, loadAddress);
+      }
 
       if (loadAddress != null) {
         return new ModulePath(loadAddress);
@@ -378,4 +429,41 @@ public final class ModuleLoader {
   private final class NoopErrorHandler implements ErrorHandler {
     public void report(CheckLevel level, JSError error) {}
   }
+
+  /** Counts the warnings reported by the module resolver before passing them on. */
+  private final class CountingErrorHandler implements ErrorHandler {
+    private final ErrorHandler delegate;
+
+    CountingErrorHandler(ErrorHandler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void report(CheckLevel level, JSError error) {
+      reportedWarnings.incrementAndGet();
+      delegate.report(level, error);
+    }
+  }
+
+  private static final class ResolutionKey {
+    private final String directory;
+    private final String moduleAddress;
+
+    ResolutionKey(String directory, String moduleAddress) {
+      this.directory = directory;
+      this.moduleAddress = moduleAddress;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof ResolutionKey
+          && ((ResolutionKey) other).directory.equals(directory)
+          && ((ResolutionKey) other).moduleAddress.equals(moduleAddress);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(directory, moduleAddress);
+    }
+  }
 }
@@ -19,14 +19,10 @@ package com.google.javascript.jscomp.deps;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableSortedSet;
 import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.ErrorHandler;
 import com.google.javascript.jscomp.JSError;
-import java.util.Comparator;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import javax.annotation.Nullable;
 
 /**
@@ -46,8 +42,8 @@ public class NodeModuleResolver extends ModuleResolver {
   /** Named modules found in node_modules folders */
   private final ImmutableMap<String, String> packageJsonMainEntries;
 
-  /** Named modules found in node_modules folders */
-  private final ImmutableSortedSet<String> nodeModulesFolders;
+  /** Folders that contain a node_modules sub-folder, each with a trailing slash. */
+  private final ImmutableSet<String> nodeModulesFolders;
 
   /**
    * Build a list of node module paths. Given the following path:
@@ -60,25 +56,11 @@ public class NodeModuleResolver extends ModuleResolver {
    *
    * @param modulePaths Set of all module paths where the key is the module path normalized to have
    *     a leading slash
-   * @return A sorted set with the longest paths first where each entry is the folder containing a
-   *     node_modules sub-folder.
+   * @return A set where each entry is the folder containing a node_modules sub-folder.
    */
-  private static ImmutableSortedSet<String> buildNodeModulesFoldersRegistry(
+  private static ImmutableSet<String> buildNodeModulesFoldersRegistry(
       Iterable<String> modulePaths) {
-    SortedSet<String> registry =
-        new TreeSet<>(
-            new Comparator<String>() {
-              @Override
-              public int compare(String a, String b) {
-                // Order longest path first
-                int comparison = Integer.compare(b.length(), a.length());
-                if (comparison != 0) {
-                  return comparison;
-                }
-
-                return a.compareTo(b);
-              }
-            });
+    ImmutableSet.Builder<String> registry = ImmutableSet.builder();
 
     // For each modulePath, find all the node_modules folders
     // There might be more than one:
@@ -100,7 +82,7 @@ public class NodeModuleResolver extends ModuleResolver {
       }
     }
 
-    return ImmutableSortedSet.copyOfSorted(registry);
+    return registry.build();
   }
 
   public NodeModuleResolver(
@@ -207,12 +189,18 @@ public class NodeModuleResolver extends ModuleResolver {
 
   @Nullable
   private String resolveJsModuleFromRegistry(String scriptAddress, String moduleAddress) {
-    for (String nodeModulesFolder : nodeModulesFolders) {
-      String normalizedScriptAddress =
-          (ModuleLoader.isAmbiguousIdentifier(scriptAddress) ? ModuleLoader.MODULE_SLASH : "")
-              + scriptAddress;
-
-      if (!normalizedScriptAddress.startsWith(nodeModulesFolder)) {
+    String normalizedScriptAddress =
+        (ModuleLoader.isAmbiguousIdentifier(scriptAddress) ? ModuleLoader.MODULE_SLASH : "")
+            + scriptAddress;
+
+    // The node_modules folders that can be used are those that contain the script, nearest
+    // first. Since the registry only holds folders, they are found by probing each ancestor
+    // of the script rather than by checking every folder in the registry.
+    for (int end = normalizedScriptAddress.lastIndexOf(ModuleLoader.MODULE_SLASH);
+        end >= 0;
+        end = normalizedScriptAddress.lastIndexOf(ModuleLoader.MODULE_SLASH, end - 1)) {
+      String nodeModulesFolder = normalizedScriptAddress.substring(0, end + 1);
+      if (!nodeModulesFolders.contains(nodeModulesFolder)) {
         continue;
       }
 
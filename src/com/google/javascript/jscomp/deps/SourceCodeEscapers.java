@@ -17,6 +17,7 @@ package com.google.javascript.jscomp.deps;
 
 import com.google.common.escape.ArrayBasedCharEscaper;
 import com.google.common.escape.Escaper;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -50,6 +51,39 @@ public final class SourceCodeEscapers {
     return JAVASCRIPT_ESCAPER;
   }
 
+  /**
+   * Appends the given characters to {@code out}, escaped the same way as by
+   * {@link #javascriptEscaper()}, but without building the escaped string first.
+   * Runs of characters that need no escaping are appended as they are.
+   */
+  public static void appendJavascriptEscaped(CharSequence s, Appendable out)
+      throws IOException {
+    int unescapedStart = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      String replacement = c < JAVASCRIPT_REPLACEMENTS.length ? JAVASCRIPT_REPLACEMENTS[c] : null;
+      if (replacement == null && c >= PRINTABLE_ASCII_MIN && c <= PRINTABLE_ASCII_MAX) {
+        continue;
+      }
+      out.append(s, unescapedStart, i);
+      unescapedStart = i + 1;
+      if (replacement != null) {
+        out.append(replacement);
+      } else if (c < 0x100) {
+        out.append('\\').append('x')
+            .append(HEX_DIGITS[c >>> 4]).append(HEX_DIGITS[c & 0xF]);
+      } else {
+        out.append('\\').append('u')
+            .append(HEX_DIGITS[c >>> 12]).append(HEX_DIGITS[(c >>> 8) & 0xF])
+            .append(HEX_DIGITS[(c >>> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
+      }
+    }
+    out.append(s, unescapedStart, s.length());
+  }
+
+  /** The replacements of the javascript escaper, indexed by the ASCII character they replace. */
+  private static final String[] JAVASCRIPT_REPLACEMENTS = new String[PRINTABLE_ASCII_MAX + 1];
+
   /**
    * An Escaper for javascript strings. Turns all non-ASCII characters into
    * ASCII javascript escape sequences.
@@ -69,6 +103,9 @@ public final class SourceCodeEscapers {
     jsMap.put('\f', "\\f");
     jsMap.put('\r', "\\r");
     jsMap.put('\\', "\\\\");
+    for (Map.Entry<Character, String> replacement : jsMap.entrySet()) {
+      JAVASCRIPT_REPLACEMENTS[replacement.getKey()] = replacement.getValue();
+    }
     JAVASCRIPT_ESCAPER = new ArrayBasedCharEscaper(
         jsMap, PRINTABLE_ASCII_MIN, PRINTABLE_ASCII_MAX) {
           @Override
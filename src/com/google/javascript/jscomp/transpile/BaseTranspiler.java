@@ -18,6 +18,8 @@ package com.google.javascript.jscomp.transpile;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.Compiler;
@@ -26,6 +28,7 @@ import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.jscomp.DiagnosticGroup;
 import com.google.javascript.jscomp.DiagnosticType;
 import com.google.javascript.jscomp.ErrorFormat;
+import com.google.javascript.jscomp.ExternsSnapshot;
 import com.google.javascript.jscomp.JSError;
 import com.google.javascript.jscomp.MessageFormatter;
 import com.google.javascript.jscomp.PropertyRenamingPolicy;
@@ -34,6 +37,8 @@ import com.google.javascript.jscomp.SourceFile;
 import com.google.javascript.jscomp.VariableRenamingPolicy;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Basic Transpiler implementation for outputting ES5 code.
@@ -83,13 +88,24 @@ public final class BaseTranspiler implements Transpiler {
    * details of the Compiler itself.  Also works around the fact
    * that the Compiler is not thread-safe (since we may do multiple
    * transpiles concurrently), so we supply a fresh instance each
-   * time when we're in single-file mode.
+   * time when we're in single-file mode.  What can be shared between
+   * compilations is kept warm: the externs are parsed only once, and
+   * each runtime library is only compiled once.
    */
   public static class CompilerSupplier {
+    private final Supplier<ExternsSnapshot> externs =
+        Suppliers.memoize(new Supplier<ExternsSnapshot>() {
+          @Override
+          public ExternsSnapshot get() {
+            return ExternsSnapshot.parse(ImmutableList.of(EXTERNS), options());
+          }
+        });
+    private final ConcurrentMap<String, String> runtimes = new ConcurrentHashMap<>();
+
     public CompileResult compile(Path path, String code) {
       Compiler compiler = compiler();
-      Result result =
-          compiler.compile(EXTERNS, SourceFile.fromCode(path.toString(), code), options());
+      Result result = compiler.compile(
+          externs.get(), ImmutableList.of(SourceFile.fromCode(path.toString(), code)), options());
       String source = compiler.toSource();
       StringBuilder sourceMap = new StringBuilder();
       if (result.sourceMap != null) {
@@ -108,10 +124,20 @@ public final class BaseTranspiler implements Transpiler {
     }
 
     public String runtime(String library) {
+      String runtime = runtimes.get(library);
+      if (runtime == null) {
+        // Concurrent callers may both compile the library, but they agree on the result.
+        runtime = compileRuntime(library);
+        runtimes.putIfAbsent(library, runtime);
+      }
+      return runtime;
+    }
+
+    private String compileRuntime(String library) {
       Compiler compiler = compiler();
       CompilerOptions options = options();
       options.setForceLibraryInjection(ImmutableList.of(library));
-      compiler.compile(EXTERNS, EMPTY, options);
+      compiler.compile(externs.get(), ImmutableList.of(EMPTY), options);
       return compiler.toSource();
     }
 
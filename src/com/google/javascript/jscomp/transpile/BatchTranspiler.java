@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.transpile;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A transpiler for servers that transpile many files, either one per request or in batches.
+ * Batches are transpiled concurrently on the given executor, and the latency of every file is
+ * recorded in a {@link LatencyHistogram}, so that tail latencies can be monitored.
+ *
+ * <p>The delegate must be thread-safe, as {@link BaseTranspiler} and {@link CachingTranspiler}
+ * are.
+ */
+public final class BatchTranspiler implements Transpiler {
+
+  private final Transpiler delegate;
+  private final ExecutorService executor;
+  private final Ticker ticker;
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  public BatchTranspiler(Transpiler delegate, ExecutorService executor) {
+    this(delegate, executor, Ticker.systemTicker());
+  }
+
+  BatchTranspiler(Transpiler delegate, ExecutorService executor, Ticker ticker) {
+    this.delegate = checkNotNull(delegate);
+    this.executor = checkNotNull(executor);
+    this.ticker = checkNotNull(ticker);
+  }
+
+  @Override
+  public TranspileResult transpile(Path path, String code) {
+    long start = ticker.read();
+    try {
+      return delegate.transpile(path, code);
+    } finally {
+      latencies.record(ticker.read() - start);
+    }
+  }
+
+  /**
+   * Transpiles the given files, keyed by path, concurrently.  Returns the results in the
+   * iteration order of the files.  If any file fails to transpile, the exception of the first
+   * such file is rethrown once the whole batch is done.
+   */
+  public ImmutableMap<Path, TranspileResult> transpileAll(Map<Path, String> files) {
+    List<Future<TranspileResult>> futures = new ArrayList<>(files.size());
+    for (final Map.Entry<Path, String> file : files.entrySet()) {
+      futures.add(executor.submit(new Callable<TranspileResult>() {
+        @Override
+        public TranspileResult call() {
+          return transpile(file.getKey(), file.getValue());
+        }
+      }));
+    }
+
+    ImmutableMap.Builder<Path, TranspileResult> results = ImmutableMap.builder();
+    RuntimeException failure = null;
+    int i = 0;
+    for (Path path : files.keySet()) {
+      try {
+        results.put(path, Uninterruptibles.getUninterruptibly(futures.get(i++)));
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof RuntimeException
+              ? (RuntimeException) e.getCause()
+              : new IllegalStateException(e.getCause());
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results.build();
+  }
+
+  @Override
+  public String runtime() {
+    return delegate.runtime();
+  }
+
+  /** Returns the latencies of all the files transpiled so far. */
+  public LatencyHistogram getLatencyHistogram() {
+    return latencies;
+  }
+
+  /**
+   * A lock-free histogram of latencies, in buckets whose bounds grow in powers of two from one
+   * microsecond.  Percentiles are reported as the upper bound of the bucket they fall into, so
+   * they overestimate by at most a factor of two.
+   */
+  public static final class LatencyHistogram {
+    // Bucket i holds latencies of less than 2^i microseconds; the last one holds the rest.
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+      long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+      int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+      counts.incrementAndGet(bucket);
+      count.incrementAndGet();
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+        max = maxNanos.get();
+      }
+    }
+
+    /** Returns the number of latencies recorded. */
+    public long getCount() {
+      return count.get();
+    }
+
+    /** Returns the highest latency recorded, in microseconds. */
+    public long getMaxMicros() {
+      return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded latencies, in
+     * microseconds, or 0 if none were recorded.
+     */
+    public long getPercentileMicros(double percentile) {
+      checkArgument(percentile > 0 && percentile <= 100, "Invalid percentile: %s", percentile);
+      long total = 0;
+      long[] snapshot = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+        snapshot[i] = counts.get(i);
+        total += snapshot[i];
+      }
+      long rank = (long) Math.ceil(total * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += snapshot[i];
+        if (seen >= rank && seen > 0) {
+          // The last bucket is unbounded, so report the actual maximum instead.
+          return i == BUCKETS - 1 ? getMaxMicros() : Math.min(1L << i, getMaxMicros());
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "LatencyHistogram{count=%d, p50=%dus, p90=%dus, p99=%dus, max=%dus}",
+          getCount(),
+          getPercentileMicros(50),
+          getPercentileMicros(90),
+          getPercentileMicros(99),
+          getMaxMicros());
+    }
+  }
+}
@@ -17,35 +17,70 @@
 package com.google.javascript.jscomp.transpile;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
 
 /**
  * A transpiler implementation that delegates to a lower-level
  * implementation on a cache miss.  Passed a CacheBuilder to
  * allow specifying maximum size and other requirements externally.
+ *
+ * <p>Entries are keyed by a hash of the path and code rather than by
+ * the code itself.  Optionally, the in-memory cache is backed by a
+ * size-bounded directory on disk, so that transpilations survive
+ * restarts.
  */
 public final class CachingTranspiler implements Transpiler {
 
-  private final LoadingCache<Key, TranspileResult> cache;
+  private final Transpiler delegate;
+  private final Cache<HashCode, TranspileResult> cache;
+  @Nullable private final TranspileDiskCache diskCache;
   private final Supplier<String> runtime;
 
   public CachingTranspiler(
-      final Transpiler delegate, CacheBuilder<Object, ? super TranspileResult> builder) {
-    checkNotNull(delegate);
-    this.cache = builder.build(new CacheLoader<Key, TranspileResult>() {
-      @Override
-      public TranspileResult load(Key key) {
-        return delegate.transpile(key.path, key.code);
-      }
-    });
+      Transpiler delegate, CacheBuilder<Object, ? super TranspileResult> builder) {
+    this(delegate, builder.<HashCode, TranspileResult>build(), null);
+  }
+
+  /**
+   * Creates a two-tier cache.  The in-memory tier holds roughly {@code maxMemoryBytes}
+   * of transpile results.  Its misses fall through to files in the given directory,
+   * holding at most {@code maxDiskBytes}, before reaching the delegate.  Entries on
+   * disk are not invalidated when the delegate changes, so the directory should be
+   * specific to the compiler version and transpilation options.
+   */
+  public CachingTranspiler(
+      Transpiler delegate, long maxMemoryBytes, Path directory, long maxDiskBytes)
+      throws IOException {
+    this(
+        delegate,
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxMemoryBytes)
+            .weigher(WEIGHER)
+            .<HashCode, TranspileResult>build(),
+        new TranspileDiskCache(directory, maxDiskBytes));
+  }
+
+  private CachingTranspiler(
+      final Transpiler delegate,
+      Cache<HashCode, TranspileResult> cache,
+      @Nullable TranspileDiskCache diskCache) {
+    this.delegate = checkNotNull(delegate);
+    this.cache = cache;
+    this.diskCache = diskCache;
     this.runtime = Suppliers.memoize(new Supplier<String>() {
       @Override
       public String get() {
@@ -55,9 +90,26 @@ public final class CachingTranspiler implements Transpiler {
   }
 
   @Override
-  public TranspileResult transpile(Path path, String code) {
+  public TranspileResult transpile(final Path path, final String code) {
+    final HashCode key = hash(path, code);
     try {
-      return cache.getUnchecked(new Key(path, code));
+      return cache.get(key, new Callable<TranspileResult>() {
+        @Override
+        public TranspileResult call() {
+          TranspileResult result =
+              diskCache != null ? diskCache.get(key.toString(), path, code) : null;
+          if (result == null) {
+            result = delegate.transpile(path, code);
+            if (diskCache != null) {
+              diskCache.put(key.toString(), result);
+            }
+          }
+          return result;
+        }
+      });
+    } catch (ExecutionException e) {
+      // The loader does not throw checked exceptions.
+      throw new AssertionError(e);
     } catch (UncheckedExecutionException e) {
       if (e.getCause() instanceof IllegalStateException) {
         // If transpilation fails due to a parse error we can get an UncheckedExecutionException.
@@ -75,21 +127,26 @@ public final class CachingTranspiler implements Transpiler {
     return runtime.get();
   }
 
-  private static final class Key {
-    private final Path path;
-    private final String code;
-    Key(Path path, String code) {
-      this.path = checkNotNull(path);
-      this.code = checkNotNull(code);
-    }
-    @Override
-    public boolean equals(Object other) {
-      return other instanceof Key
-          && ((Key) other).path.equals(path) && ((Key) other).code.equals(code);
-    }
-    @Override
-    public int hashCode() {
-      return Objects.hash(path, code);
-    }
+  private static HashCode hash(Path path, String code) {
+    String pathString = path.toString();
+    return Hashing.sha256().newHasher()
+        .putInt(pathString.length())
+        .putString(pathString, UTF_8)
+        .putString(code, UTF_8)
+        .hash();
   }
+
+  /** Weighs entries by the approximate number of bytes they retain. */
+  private static final Weigher<HashCode, TranspileResult> WEIGHER =
+      new Weigher<HashCode, TranspileResult>() {
+        @Override
+        public int weigh(HashCode key, TranspileResult value) {
+          int chars = value.original().length() + value.sourceMap().length();
+          // Untranspiled results usually share the original string.
+          if (value.transpiled() != value.original()) {
+            chars += value.transpiled().length();
+          }
+          return 2 * chars + 64;
+        }
+      };
 }
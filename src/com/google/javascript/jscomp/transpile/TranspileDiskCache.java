@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.transpile;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Striped;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import javax.annotation.Nullable;
+
+/**
+ * The on-disk tier of a {@link CachingTranspiler}. Each entry is a file in a single directory,
+ * named by the hash of the path and code it was transpiled from, that holds the transpiled code
+ * and its source map. The total size of the files is bounded, and the least recently used ones are
+ * deleted first. Recency survives restarts through the files' modification times.
+ *
+ * <p>The cache is best effort: entries that cannot be read or written are treated as misses.
+ *
+ * <p>Reads and writes of an entry hold a lock striped by its file name, so that transpilations of
+ * different files do not wait on each other's disk I/O. The index of sizes is guarded by this
+ * object's monitor, which is only held briefly and never while acquiring a striped lock.
+ */
+final class TranspileDiskCache {
+
+  private static final String SUFFIX = ".transpiled";
+  private static final int FORMAT_VERSION = 1;
+
+  private final Path directory;
+  private final long maxBytes;
+  private final Striped<Lock> locks = Striped.lock(64);
+
+  /** The size of each entry file, by file name, from least to most recently used. */
+  private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes = 0;
+
+  TranspileDiskCache(Path directory, long maxBytes) throws IOException {
+    checkArgument(maxBytes >= 0, "maxBytes must not be negative: %s", maxBytes);
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    Files.createDirectories(directory);
+    loadIndex();
+  }
+
+  /** Indexes the entries already in the directory, oldest first. */
+  private void loadIndex() throws IOException {
+    final Map<Path, FileTime> times = new LinkedHashMap<>();
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path file : stream) {
+        times.put(file, Files.getLastModifiedTime(file));
+        files.add(file);
+      }
+    }
+    Collections.sort(files, new Comparator<Path>() {
+      @Override
+      public int compare(Path a, Path b) {
+        return times.get(a).compareTo(times.get(b));
+      }
+    });
+    for (Path file : files) {
+      long size = Files.size(file);
+      sizes.put(file.getFileName().toString(), size);
+      totalBytes += size;
+    }
+    for (String name : evict()) {
+      deleteQuietly(directory.resolve(name));
+    }
+  }
+
+  /**
+   * Returns the result of transpiling the given code, as stored under the given hash, or null if
+   * there is none.
+   */
+  @Nullable
+  TranspileResult get(String hash, Path path, String code) {
+    String name = hash + SUFFIX;
+    synchronized (this) {
+      if (sizes.get(name) == null) {
+        return null;
+      }
+    }
+    Path file = directory.resolve(name);
+    Lock lock = locks.get(name);
+    lock.lock();
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        remove(name);
+        return null;
+      }
+      // Untranspiled code is stored as a marker rather than as a second copy.
+      String transpiled = in.readBoolean() ? readString(in) : code;
+      String sourceMap = readString(in);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return new TranspileResult(path, code, transpiled, sourceMap);
+    } catch (IOException e) {
+      remove(name);
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Stores a result under the given hash, evicting old entries to stay within the size limit. */
+  void put(String hash, TranspileResult result) {
+    String name = hash + SUFFIX;
+    Path file = directory.resolve(name);
+    List<String> evicted;
+    Lock lock = locks.get(name);
+    lock.lock();
+    try {
+      // Write to a temporary file first so that readers never see a partial entry.
+      Path temp = Files.createTempFile(directory, hash, ".tmp");
+      try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeBoolean(result.wasTranspiled());
+        if (result.wasTranspiled()) {
+          writeString(out, result.transpiled());
+        }
+        writeString(out, result.sourceMap());
+      } catch (IOException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      }
+      Files.move(
+          temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      long size = Files.size(file);
+      synchronized (this) {
+        Long previous = sizes.put(name, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        evicted = evict();
+      }
+    } catch (IOException e) {
+      remove(name);
+      return;
+    } finally {
+      lock.unlock();
+    }
+    for (String eldest : evicted) {
+      Lock eldestLock = locks.get(eldest);
+      eldestLock.lock();
+      try {
+        // The entry may have been written again since it was evicted.
+        synchronized (this) {
+          if (sizes.containsKey(eldest)) {
+            continue;
+          }
+        }
+        deleteQuietly(directory.resolve(eldest));
+      } finally {
+        eldestLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Drops the least recently used entries from the index until the cache is within its size
+   * limit, and returns their names. The caller deletes their files.
+   */
+  private List<String> evict() {
+    List<String> evicted = new ArrayList<>();
+    Iterator<Map.Entry<String, Long>> it = sizes.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, Long> eldest = it.next();
+      it.remove();
+      totalBytes -= eldest.getValue();
+      evicted.add(eldest.getKey());
+    }
+    return evicted;
+  }
+
+  /** Removes an entry. The caller holds the entry's striped lock. */
+  private void remove(String name) {
+    synchronized (this) {
+      Long size = sizes.remove(name);
+      if (size != null) {
+        totalBytes -= size;
+      }
+    }
+    deleteQuietly(directory.resolve(name));
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // The file will be indexed again, and retried, the next time the cache is opened.
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int size() {
+    return sizes.size();
+  }
+
+  @VisibleForTesting
+  synchronized long totalBytes() {
+    return totalBytes;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  // DataOutputStream.writeUTF is limited to 64K, which transpiled files routinely exceed.
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
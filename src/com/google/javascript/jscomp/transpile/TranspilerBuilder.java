@@ -17,6 +17,8 @@
 package com.google.javascript.jscomp.transpile;
 
 import com.google.common.cache.CacheBuilder;
+import java.io.IOException;
+import java.nio.file.Path;
 import javax.annotation.CheckReturnValue;
 
 /**
@@ -70,6 +72,19 @@ public final class TranspilerBuilder {
     return new TranspilerBuilder(new CachingTranspiler(transpiler, builder));
   }
 
+  /**
+   * Returns a TranspilerBuilder with cached transpilations, keeping roughly
+   * {@code maxMemoryBytes} of them in memory and up to {@code maxDiskBytes}
+   * in the given directory, where they survive restarts.  Note that the
+   * builder itself is not changed.
+   */
+  @CheckReturnValue
+  public TranspilerBuilder caching(long maxMemoryBytes, Path directory, long maxDiskBytes)
+      throws IOException {
+    return new TranspilerBuilder(
+        new CachingTranspiler(transpiler, maxMemoryBytes, directory, maxDiskBytes));
+  }
+
   /**
    * Returns the built Transpiler.
    */
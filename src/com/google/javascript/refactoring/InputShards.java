@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.refactoring;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.javascript.jscomp.ErrorManager;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.jscomp.deps.DependencyInfo;
+import com.google.javascript.jscomp.deps.JsFileParser;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the inputs of a refactoring into shards that can be compiled separately.
+ *
+ * <p>Each input is the target of exactly one shard, the one whose fixes are kept for it. The
+ * targets are split in input order into shards of about the same size, since nearby files tend to
+ * share dependencies. A shard also compiles the transitive closure of the goog.requires of its
+ * targets, found with the regex-based {@link JsFileParser}, so that types resolve as in a full
+ * compilation; inputs that provide nothing are treated as global scripts and compiled with every
+ * shard. The compiler sorts the inputs of each shard by their dependencies as usual.
+ */
+final class InputShards {
+
+  /** The inputs of a shard, and the names of those it looks for matches in. */
+  static final class Shard {
+    final ImmutableList<SourceFile> inputs;
+    final ImmutableSet<String> targets;
+
+    Shard(ImmutableList<SourceFile> inputs, ImmutableSet<String> targets) {
+      this.inputs = inputs;
+      this.targets = targets;
+    }
+  }
+
+  private InputShards() {}
+
+  /** Splits the inputs into at most {@code shardCount} non-empty shards. */
+  static ImmutableList<Shard> partition(
+      List<SourceFile> inputs, int shardCount, ErrorManager errorManager) {
+    checkArgument(shardCount > 0, "Invalid shard count: %s", shardCount);
+    List<DependencyInfo> deps = new ArrayList<>(inputs.size());
+    Map<String, Integer> providers = new HashMap<>();
+    List<Integer> globalScripts = new ArrayList<>();
+    JsFileParser parser = new JsFileParser(errorManager);
+    for (int i = 0; i < inputs.size(); i++) {
+      SourceFile input = inputs.get(i);
+      DependencyInfo info = parser.parseFile(input.getName(), input.getName(), getCode(input));
+      deps.add(info);
+      if (info.getProvides().isEmpty()) {
+        globalScripts.add(i);
+      }
+      for (String provide : info.getProvides()) {
+        if (!providers.containsKey(provide)) {
+          providers.put(provide, i);
+        }
+      }
+    }
+
+    ImmutableList.Builder<Shard> shards = ImmutableList.builder();
+    int shardSize = (inputs.size() + shardCount - 1) / shardCount;
+    for (int start = 0; start < inputs.size(); start += shardSize) {
+      int end = Math.min(start + shardSize, inputs.size());
+      boolean[] included = new boolean[inputs.size()];
+      for (int i : globalScripts) {
+        included[i] = true;
+      }
+      ImmutableSet.Builder<String> targets = ImmutableSet.builder();
+      Deque<Integer> worklist = new ArrayDeque<>();
+      for (int i = start; i < end; i++) {
+        targets.add(inputs.get(i).getName());
+        included[i] = true;
+        worklist.add(i);
+      }
+      while (!worklist.isEmpty()) {
+        for (String require : deps.get(worklist.remove()).getRequires()) {
+          Integer provider = providers.get(require);
+          if (provider != null && !included[provider]) {
+            included[provider] = true;
+            worklist.add(provider);
+          }
+        }
+      }
+
+      ImmutableList.Builder<SourceFile> shardInputs = ImmutableList.builder();
+      for (int i = 0; i < inputs.size(); i++) {
+        if (included[i]) {
+          shardInputs.add(inputs.get(i));
+        }
+      }
+      shards.add(new Shard(shardInputs.build(), targets.build()));
+    }
+    return shards.build();
+  }
+
+  private static String getCode(SourceFile input) {
+    try {
+      return input.getCode();
+    } catch (IOException e) {
+      // The compiler of the shard reports the error when it reads the input.
+      return "";
+    }
+  }
+}
@@ -23,7 +23,9 @@ import com.google.javascript.rhino.Node;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 /**
  * A compiler node traversal callback that invokes matchers against every node and
@@ -35,12 +37,20 @@ final class JsFlumeCallback implements Callback {
 
   private final Scanner scanner;
   private final Pattern includeFilePattern;
+  // The names of the only files to look for matches in, or null to look in all files.
+  @Nullable private final Set<String> includeFiles;
   private final List<Match> matches = new ArrayList<>();
   private final List<SuggestedFix> fixes = new ArrayList<>();
 
   JsFlumeCallback(Scanner scanner, Pattern includeFilePattern) {
+    this(scanner, includeFilePattern, null);
+  }
+
+  JsFlumeCallback(
+      Scanner scanner, Pattern includeFilePattern, @Nullable Set<String> includeFiles) {
     this.scanner = scanner;
     this.includeFilePattern = includeFilePattern;
+    this.includeFiles = includeFiles;
   }
 
   List<Match> getMatches() {
@@ -57,6 +67,9 @@ final class JsFlumeCallback implements Callback {
       return false;
     }
     String filename = n.getSourceFileName();
+    if (includeFiles != null && n.isScript() && !includeFiles.contains(filename)) {
+      return false;
+    }
     if (includeFilePattern != null
         && !Strings.isNullOrEmpty(includeFilePattern.pattern())
         && !Strings.isNullOrEmpty(filename)) {
@@ -47,6 +47,11 @@ public final class JsSourceMatcher implements Matcher {
     return matcher.matches(n);
   }
 
+  /** Returns the matcher of the template AST that this matches with. */
+  TemplateAstMatcher getTemplateAstMatcher() {
+    return matcher;
+  }
+
   /**
    * Returns a map from named template node strings to Nodes that were the
    * equivalent matches from the last matched template.
@@ -16,58 +16,164 @@
 
 package com.google.javascript.refactoring;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
 import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.Compiler;
 import com.google.javascript.jscomp.CompilerOptions;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.jscomp.DependencyOptions;
 import com.google.javascript.jscomp.DiagnosticGroups;
+import com.google.javascript.jscomp.ExternsSnapshot;
+import com.google.javascript.jscomp.LoggerErrorManager;
 import com.google.javascript.jscomp.NodeTraversal;
 import com.google.javascript.jscomp.SourceFile;
 import com.google.javascript.jscomp.parsing.Config;
+import com.google.javascript.refactoring.InputShards.Shard;
 import com.google.javascript.rhino.Node;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 /**
  * Primary driver of a refactoring. This class collects the inputs, runs the refactoring over
  * the compiled input, and then collects the suggested fixes based on the refactoring.
  *
+ * <p>By default all inputs are compiled together. With {@link Builder#withSharding}, they are
+ * split into shards (see {@link InputShards}) that are compiled separately, possibly in parallel,
+ * which bounds the memory used by a refactoring of a very large code base. The externs are then
+ * parsed once and shared by all shards. The fixes of the shards are returned in shard order, so
+ * they don't depend on which shard finished first. Note that {@link Scanner#processAllMatches} is
+ * called once per shard, with the matches of that shard.
+ *
  * @author mknichel@google.com (Mark Knichel)
  */
 public final class RefactoringDriver {
 
-  private final Scanner scanner;
-  private final Compiler compiler;
-  private final Node rootNode;
-
-  private RefactoringDriver(
-      Scanner scanner,
-      List<SourceFile> inputs,
-      List<SourceFile> externs,
-      CompilerOptions compilerOptions) {
-    this.scanner = scanner;
-    this.compiler = createCompiler(inputs, externs, compilerOptions);
-    this.rootNode = this.compiler.getRoot();
+  /** Receives the progress of a sharded refactoring. */
+  public interface ProgressListener {
+    /** Called when a shard is done, on the thread that ran it. */
+    void shardDone(int doneShards, int totalShards);
+  }
+
+  private static final Logger logger = Logger.getLogger(RefactoringDriver.class.getName());
+
+  // The compiler runs many recursive algorithms; give the threads of the shards the same stack
+  // size that the compiler gives its own thread.
+  private static final long SHARD_STACK_SIZE = 1 << 24;
+
+  private final Supplier<? extends Scanner> scanners;
+  private final ImmutableList<SourceFile> inputs;
+  private final ImmutableList<SourceFile> externs;
+  private final Supplier<CompilerOptions> compilerOptions;
+  private final int shardCount;
+  private final int threadCount;
+  @Nullable private final ProgressListener progressListener;
+
+  // The scanner and compiler of all inputs, if they are not sharded.
+  @Nullable private final Scanner scanner;
+  @Nullable private final Compiler compiler;
+
+  private RefactoringDriver(Builder builder) {
+    this.scanners = builder.scanners;
+    this.inputs = builder.inputs.build();
+    this.externs = builder.externs.build();
+    this.compilerOptions = builder.compilerOptions;
+    this.shardCount = builder.shardCount;
+    this.threadCount = builder.threadCount;
+    this.progressListener = builder.progressListener;
+    if (shardCount == 0) {
+      this.scanner = scanners.get();
+      this.compiler = createCompiler(inputs, externs, compilerOptions.get());
+    } else {
+      this.scanner = null;
+      this.compiler = null;
+    }
   }
 
   /**
    * Run the refactoring and return any suggested fixes as a result.
    */
   public List<SuggestedFix> drive(Pattern includeFilePattern) {
-    JsFlumeCallback callback = new JsFlumeCallback(scanner, includeFilePattern);
-    NodeTraversal.traverseEs6(compiler, rootNode, callback);
+    if (compiler == null) {
+      return driveShards(includeFilePattern);
+    }
+    return drive(scanner, compiler, includeFilePattern, null);
+  }
+
+  private static List<SuggestedFix> drive(
+      Scanner scanner, Compiler compiler, Pattern includeFilePattern,
+      @Nullable Shard shard) {
+    JsFlumeCallback callback = new JsFlumeCallback(
+        scanner, includeFilePattern, shard == null ? null : shard.targets);
+    NodeTraversal.traverseEs6(compiler, compiler.getRoot(), callback);
     List<SuggestedFix> fixes = callback.getFixes();
     fixes.addAll(scanner.processAllMatches(callback.getMatches()));
     return fixes;
   }
 
+  private List<SuggestedFix> driveShards(final Pattern includeFilePattern) {
+    final ExternsSnapshot externsSnapshot =
+        ExternsSnapshot.parse(externs, compilerOptions.get());
+    final ImmutableList<Shard> shards =
+        InputShards.partition(inputs, shardCount, new LoggerErrorManager(logger));
+    final AtomicInteger doneShards = new AtomicInteger();
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(null, r, "jscompiler-RefactoringDriver", SHARD_STACK_SIZE);
+        t.setDaemon(true);  // Do not prevent the JVM from exiting.
+        return t;
+      }
+    });
+    try {
+      List<Future<List<SuggestedFix>>> futures = new ArrayList<>(shards.size());
+      for (final Shard shard : shards) {
+        futures.add(executor.submit(new Callable<List<SuggestedFix>>() {
+          @Override
+          public List<SuggestedFix> call() {
+            Compiler shardCompiler = new Compiler();
+            shardCompiler.disableThreads();
+            shardCompiler.compile(externsSnapshot, shard.inputs, compilerOptions.get());
+            List<SuggestedFix> fixes =
+                drive(scanners.get(), shardCompiler, includeFilePattern, shard);
+            if (progressListener != null) {
+              progressListener.shardDone(doneShards.incrementAndGet(), shards.size());
+            }
+            return fixes;
+          }
+        }));
+      }
+
+      // Collect the fixes in shard order, to make the result deterministic.
+      List<SuggestedFix> fixes = new ArrayList<>();
+      for (Future<List<SuggestedFix>> future : futures) {
+        fixes.addAll(Futures.getUnchecked(future));
+      }
+      return fixes;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Run the refactoring and return any suggested fixes as a result.
    */
@@ -75,7 +181,9 @@ public final class RefactoringDriver {
     return drive(null);
   }
 
+  /** Returns the compiler of all inputs. Not available when the inputs are sharded. */
   public Compiler getCompiler() {
+    checkState(compiler != null, "The inputs are compiled in shards.");
     return compiler;
   }
 
@@ -125,13 +233,33 @@ public final class RefactoringDriver {
           }
         };
 
-    private final Scanner scanner;
+    private final Supplier<? extends Scanner> scanners;
+    private final boolean scannerIsShared;
     private final ImmutableList.Builder<SourceFile> inputs = ImmutableList.builder();
     private final ImmutableList.Builder<SourceFile> externs = ImmutableList.builder();
-    private CompilerOptions compilerOptions = getCompilerOptions();
+    private Supplier<CompilerOptions> compilerOptions = new Supplier<CompilerOptions>() {
+      @Override
+      public CompilerOptions get() {
+        return getCompilerOptions();
+      }
+    };
+    private boolean compilerOptionsAreShared = false;
+    private int shardCount = 0;
+    private int threadCount = 1;
+    private ProgressListener progressListener = null;
 
     public Builder(Scanner scanner) {
-      this.scanner = scanner;
+      this.scanners = Suppliers.ofInstance(checkNotNull(scanner));
+      this.scannerIsShared = true;
+    }
+
+    /**
+     * Creates a builder that gets a new scanner from the factory for each compilation, which
+     * allows shards to run in parallel.
+     */
+    public Builder(Supplier<? extends Scanner> scannerFactory) {
+      this.scanners = checkNotNull(scannerFactory);
+      this.scannerIsShared = false;
     }
 
     public Builder addExternsFromFile(String filename) {
@@ -179,12 +307,48 @@ public final class RefactoringDriver {
     }
 
     public Builder withCompilerOptions(CompilerOptions compilerOptions) {
-      this.compilerOptions = checkNotNull(compilerOptions);
+      this.compilerOptions = Suppliers.ofInstance(checkNotNull(compilerOptions));
+      this.compilerOptionsAreShared = true;
+      return this;
+    }
+
+    /**
+     * Uses new options from the factory for each compilation, which allows shards to run in
+     * parallel: the compiler updates its options when it is initialized.
+     */
+    public Builder withCompilerOptions(Supplier<CompilerOptions> compilerOptionsFactory) {
+      this.compilerOptions = checkNotNull(compilerOptionsFactory);
+      this.compilerOptionsAreShared = false;
+      return this;
+    }
+
+    /**
+     * Splits the inputs into {@code shardCount} shards that are compiled separately, on up to
+     * {@code threadCount} threads. More than one shard needs a scanner factory, since scanners
+     * such as {@link RefasterJsScanner} keep state that depends on the compiler they first ran
+     * with. Running shards in parallel also needs an options factory, if options are given.
+     */
+    public Builder withSharding(int shardCount, int threadCount) {
+      checkArgument(shardCount > 0, "Invalid shard count: %s", shardCount);
+      checkArgument(threadCount > 0, "Invalid thread count: %s", threadCount);
+      this.shardCount = shardCount;
+      this.threadCount = threadCount;
+      return this;
+    }
+
+    public Builder withProgressListener(ProgressListener progressListener) {
+      this.progressListener = checkNotNull(progressListener);
       return this;
     }
 
     public RefactoringDriver build() {
-      return new RefactoringDriver(scanner, inputs.build(), externs.build(), compilerOptions);
+      checkState(
+          shardCount <= 1 || !scannerIsShared,
+          "More than one shard needs a scanner factory, to get a new scanner for each shard.");
+      checkState(
+          threadCount == 1 || (!scannerIsShared && !compilerOptionsAreShared),
+          "Shards can only run in parallel with a scanner factory and an options factory.");
+      return new RefactoringDriver(this);
     }
   }
 }
@@ -28,6 +28,8 @@ import com.google.javascript.jscomp.AbstractCompiler;
 import com.google.javascript.jscomp.JsAst;
 import com.google.javascript.jscomp.NodeUtil;
 import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.jscomp.TemplateAstMatcher;
+import com.google.javascript.jscomp.TemplateAstMatcherTree;
 import com.google.javascript.jscomp.TypeMatchingStrategy;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.Node;
@@ -63,6 +65,9 @@ public final class RefasterJsScanner extends Scanner {
   /** All templates that were found in the template file. */
   private ImmutableList<RefasterJsTemplate> templates;
 
+  /** The before-templates of all templates, compiled into a single tree to match them at once. */
+  private TemplateAstMatcherTree templateTree;
+
   /** The RefasterJsTemplate that matched the last Match. */
   private RefasterJsTemplate matchedTemplate;
 
@@ -107,6 +112,7 @@ public final class RefasterJsScanner extends Scanner {
    */
   public void clearTemplates() {
     templates = null;
+    templateTree = null;
     matchedTemplate = null;
   }
 
@@ -118,14 +124,9 @@ public final class RefasterJsScanner extends Scanner {
         throw new RuntimeException(e);
       }
     }
-    matchedTemplate = null;
-    for (RefasterJsTemplate template : templates) {
-      if (template.matcher.matches(node, metadata)) {
-        matchedTemplate = template;
-        return true;
-      }
-    }
-    return false;
+    int match = templateTree.findFirstMatch(node);
+    matchedTemplate = match == -1 ? null : templates.get(match);
+    return matchedTemplate != null;
   }
 
   @Override
@@ -276,6 +277,12 @@ public final class RefasterJsScanner extends Scanner {
               afterTemplates.get(templateName)));
     }
     this.templates = builder.build();
+
+    ImmutableList.Builder<TemplateAstMatcher> matchers = ImmutableList.builder();
+    for (RefasterJsTemplate template : templates) {
+      matchers.add(template.matcher.getTemplateAstMatcher());
+    }
+    this.templateTree = new TemplateAstMatcherTree(matchers.build());
   }
 
   /** Class that holds the before and after templates for a given RefasterJs refactoring. */
@@ -0,0 +1,318 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Google Inc.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package com.google.javascript.rhino.jstype;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A map from strings to values that iterates in key order, like a {@link TreeMap}, but stores
+ * small maps in two parallel sorted arrays. Most object types have only a handful of own
+ * properties, and an array slot takes a fraction of the memory of a tree entry. Maps that grow
+ * past {@link #MAX_ARRAY_SIZE} entries switch to a TreeMap, so that adding to them stays cheap.
+ *
+ * <p>The views returned by {@link #keySet}, {@link #values} and {@link #entrySet} are live, but
+ * don't support removal. Like those of a TreeMap, their iterators fail fast with a {@link
+ * ConcurrentModificationException} if entries are added or removed while iterating.
+ */
+final class CompactSortedMap<V> extends AbstractMap<String, V> implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  static final int MAX_ARRAY_SIZE = 32;
+
+  private static final String[] NO_KEYS = new String[0];
+  private static final Object[] NO_VALUES = new Object[0];
+
+  // Sorted keys and their values, in the first size slots. Unused once the map is a tree.
+  private String[] keys = NO_KEYS;
+  private Object[] values = NO_VALUES;
+  private int size = 0;
+
+  // The entries of a large map, or null while they fit in the arrays.
+  private TreeMap<String, V> tree = null;
+
+  // Counts the additions and removals of entries, for the iterators of the views.
+  private transient int modCount = 0;
+
+  @Override
+  public int size() {
+    return tree != null ? tree.size() : size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return tree != null ? tree.containsKey(key) : indexOf(key) >= 0;
+  }
+
+  @Override
+  public V get(Object key) {
+    if (tree != null) {
+      return tree.get(key);
+    }
+    int index = indexOf(key);
+    return index >= 0 ? valueAt(index) : null;
+  }
+
+  @Override
+  public V put(String key, V value) {
+    if (tree != null) {
+      int oldSize = tree.size();
+      V old = tree.put(key, value);
+      if (tree.size() != oldSize) {
+        modCount++;
+      }
+      return old;
+    }
+    int index = search(key);
+    if (index >= 0) {
+      V old = valueAt(index);
+      values[index] = value;
+      return old;
+    }
+    modCount++;
+    if (size == MAX_ARRAY_SIZE) {
+      tree = new TreeMap<>(this);
+      keys = NO_KEYS;
+      values = NO_VALUES;
+      size = 0;
+      return tree.put(key, value);
+    }
+    int insertAt = -index - 1;
+    if (size == keys.length) {
+      int capacity = Math.min(MAX_ARRAY_SIZE, Math.max(2, 2 * size));
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+    System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+    keys[insertAt] = key;
+    values[insertAt] = value;
+    size++;
+    return null;
+  }
+
+  @Override
+  public V remove(Object key) {
+    if (tree != null) {
+      if (!tree.containsKey(key)) {
+        return null;
+      }
+      modCount++;
+      return tree.remove(key);
+    }
+    int index = indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    modCount++;
+    V old = valueAt(index);
+    size--;
+    System.arraycopy(keys, index + 1, keys, index, size - index);
+    System.arraycopy(values, index + 1, values, index, size - index);
+    keys[size] = null;
+    values[size] = null;
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    modCount++;
+    tree = null;
+    keys = NO_KEYS;
+    values = NO_VALUES;
+    size = 0;
+  }
+
+  /**
+   * Returns a rough estimate of the memory taken by this map, in bytes, not counting the keys
+   * and values themselves. Assumes compressed references.
+   */
+  long estimateMemory() {
+    if (tree != null) {
+      // The map and its tree: a header and six fields, plus 40 bytes per entry.
+      return 16 + 48 + 40L * tree.size();
+    }
+    // The map, plus two array headers and one reference per slot.
+    return 32 + (keys.length == 0 ? 0 : 2 * (16 + 4L * keys.length));
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return new AbstractSet<String>() {
+      @Override
+      public int size() {
+        return CompactSortedMap.this.size();
+      }
+
+      @Override
+      public boolean contains(Object key) {
+        return containsKey(key);
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+        return new EntryIterator<String>() {
+          @Override
+          String get(String key, V value) {
+            return key;
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  public Collection<V> values() {
+    return new AbstractCollection<V>() {
+      @Override
+      public int size() {
+        return CompactSortedMap.this.size();
+      }
+
+      @Override
+      public Iterator<V> iterator() {
+        return new EntryIterator<V>() {
+          @Override
+          V get(String key, V value) {
+            return value;
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<String, V>> entrySet() {
+    return new AbstractSet<Map.Entry<String, V>>() {
+      @Override
+      public int size() {
+        return CompactSortedMap.this.size();
+      }
+
+      @Override
+      public Iterator<Map.Entry<String, V>> iterator() {
+        return new EntryIterator<Map.Entry<String, V>>() {
+          @Override
+          Map.Entry<String, V> get(String key, V value) {
+            return new SimpleImmutableEntry<>(key, value);
+          }
+        };
+      }
+    };
+  }
+
+  private int indexOf(Object key) {
+    return key instanceof String ? search((String) key) : -1;
+  }
+
+  /**
+   * Returns the index of the key if it is in the arrays, and otherwise {@code -(insertion point)
+   * - 1}, like {@link Arrays#binarySearch}.
+   */
+  private int search(String key) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = keys[mid].compareTo(key);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(int index) {
+    return (V) values[index];
+  }
+
+  /**
+   * Iterates over the entries of the map, in the arrays or the tree, whichever holds them when
+   * the iteration starts.
+   */
+  private abstract class EntryIterator<T> implements Iterator<T> {
+    private final int expectedModCount = modCount;
+    private final Iterator<Map.Entry<String, V>> treeIterator =
+        tree != null ? tree.entrySet().iterator() : null;
+    private int next = 0;
+
+    abstract T get(String key, V value);
+
+    @Override
+    public boolean hasNext() {
+      return treeIterator != null ? treeIterator.hasNext() : next < size;
+    }
+
+    @Override
+    public T next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (treeIterator != null) {
+        Map.Entry<String, V> entry = treeIterator.next();
+        return get(entry.getKey(), entry.getValue());
+      }
+      int index = next++;
+      return get(keys[index], valueAt(index));
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -407,6 +407,11 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
     return getPrototype();
   }
 
+  /** Returns the prototype of this function, or null if it was not created yet. */
+  ObjectType getPrototypeIfCreated() {
+    return prototypeSlot == null ? null : getPrototype();
+  }
+
   /**
    * Gets the {@code prototype} property of this function type. This is
    * equivalent to {@code (ObjectType) getPropertyType("prototype")}.
@@ -505,6 +510,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
     ObjectType oldPrototype = prototypeSlot == null
         ? null : (ObjectType) prototypeSlot.getType();
     boolean replacedPrototype = oldPrototype != null;
+    registry.invalidateSubtypeCache();
 
     this.prototypeSlot = new Property("prototype", prototype, true,
         propertyNode == null ? source : propertyNode);
@@ -634,6 +640,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
 
   public void setImplementedInterfaces(List<ObjectType> implementedInterfaces) {
     if (isConstructor()) {
+      registry.invalidateSubtypeCache();
       // Records this type for each implemented interface.
       for (ObjectType type : implementedInterfaces) {
         registry.registerTypeImplementingInterface(this, type);
@@ -672,6 +679,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
 
   public void setExtendedInterfaces(List<ObjectType> extendedInterfaces) {
     if (isInterface()) {
+      registry.invalidateSubtypeCache();
       this.extendedInterfaces = ImmutableList.copyOf(extendedInterfaces);
       for (ObjectType extendedInterface : this.extendedInterfaces) {
         typeOfThis.extendTemplateTypeMap(
@@ -1100,11 +1108,6 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
    * subtyping and {@code this} is a subtype of {@code that} with regard to
    * the prototype chain.
    */
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
@@ -1180,6 +1183,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
    * native types.
    */
   void setInstanceType(ObjectType instanceType) {
+    registry.invalidateSubtypeCache();
     typeOfThis = instanceType;
   }
 
@@ -1448,6 +1452,7 @@ public class FunctionType extends PrototypeObjectType implements FunctionTypeI {
    */
   public void setImplicitMatch(boolean flag) {
     checkState(isInterface());
+    registry.invalidateSubtypeCache();
     isStructuralInterface = flag;
   }
 
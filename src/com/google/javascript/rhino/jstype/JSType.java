@@ -563,6 +563,7 @@ public abstract class JSType implements TypeI {
    * keys and values of the specified map.
    */
   public void extendTemplateTypeMap(TemplateTypeMap otherMap) {
+    registry.invalidateSubtypeCache();
     templateTypeMap = templateTypeMap.extend(otherMap);
   }
 
@@ -1397,8 +1398,7 @@ public abstract class JSType implements TypeI {
    */
   @Override
   public boolean isSubtypeWithoutStructuralTyping(TypeI that) {
-    return isSubtype(
-        (JSType) that, ImplCache.createWithoutStructuralTyping(), SubtypingMode.NORMAL);
+    return isSubtypeMemoized((JSType) that, false, SubtypingMode.NORMAL);
   }
 
   /**
@@ -1430,9 +1430,8 @@ public abstract class JSType implements TypeI {
    *
    * @return <code>this &lt;: that</code>
    */
-  public boolean isSubtype(JSType that) {
-    return isSubtypeHelper(this, that,
-        ImplCache.create(), SubtypingMode.NORMAL);
+  public final boolean isSubtype(JSType that) {
+    return isSubtypeMemoized(that, true, SubtypingMode.NORMAL);
   }
 
   /**
@@ -1443,8 +1442,34 @@ public abstract class JSType implements TypeI {
     IGNORE_NULL_UNDEFINED
   }
 
-  public boolean isSubtype(JSType that, SubtypingMode mode) {
-    return isSubtype(that, ImplCache.create(), mode);
+  public final boolean isSubtype(JSType that, SubtypingMode mode) {
+    return isSubtypeMemoized(that, true, mode);
+  }
+
+  /**
+   * Checks {@code this <: that} with a fresh {@link ImplCache}, reusing the result of a previous
+   * identical check from the registry's {@link SubtypeCache} when there is one.
+   */
+  private boolean isSubtypeMemoized(
+      JSType that, boolean structuralTyping, SubtypingMode mode) {
+    SubtypeCache cache = registry.getSubtypeCache();
+    Boolean cached = cache.get(this, that, structuralTyping, mode);
+    if (cached != null) {
+      return cached;
+    }
+    Boolean enclosing = SubtypeCache.beginCheck();
+    boolean result;
+    boolean comparedProperties;
+    try {
+      result = isSubtype(
+          that,
+          structuralTyping ? ImplCache.create() : ImplCache.createWithoutStructuralTyping(),
+          mode);
+    } finally {
+      comparedProperties = SubtypeCache.endCheck(enclosing);
+    }
+    cache.put(this, that, structuralTyping, mode, comparedProperties, result);
+    return result;
   }
 
   /**
@@ -1589,6 +1614,8 @@ public abstract class JSType implements TypeI {
       return resolveResult;
     }
     resolved = true;
+    // Resolving can change the structure of this type, and hence its subtype relations.
+    registry.invalidateSubtypeCache();
     resolveResult = resolveInternal(t, scope);
     resolveResult.setResolvedTypeInternal(resolveResult);
     return resolveResult;
@@ -47,14 +47,17 @@ import static com.google.javascript.rhino.jstype.JSTypeNative.NO_TYPE;
 import static com.google.javascript.rhino.jstype.JSTypeNative.UNKNOWN_TYPE;
 import static com.google.javascript.rhino.jstype.JSTypeNative.VOID_TYPE;
 
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.javascript.rhino.ErrorReporter;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.JSTypeExpression;
@@ -66,7 +69,9 @@ import com.google.javascript.rhino.TypeI;
 import com.google.javascript.rhino.TypeIEnv;
 import com.google.javascript.rhino.TypeIRegistry;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -79,7 +84,11 @@ import java.util.Set;
 /**
  * The type registry is used to resolve named types.
  *
- * <p>This class is not thread-safe.
+ * <p>A registry goes through two phases. While types are declared, e.g. during scope creation
+ * and type inference, it is not thread-safe. Once {@link #freeze} is called, the indexes of
+ * declared types and properties become immutable, and the registry can be queried by several
+ * threads at once; the few lazily filled caches that remain are synchronized. Methods that
+ * would declare types or properties fail on a frozen registry.
  *
  */
 public class JSTypeRegistry implements TypeIRegistry {
@@ -115,6 +124,12 @@ public class JSTypeRegistry implements TypeIRegistry {
    */
   private static final int PROPERTY_CHECKING_UNION_SIZE = 3000;
 
+  /**
+   * The table of interned union types is dropped as a whole once it holds this many unions, so
+   * that unions built once and never again don't accumulate for the whole compilation.
+   */
+  private static final int MAX_INTERNED_UNION_TYPES = 1 << 16;
+
   // TODO(user): An instance of this class should be used during
   // compilation. We also want to make all types' constructors package private
   // and force usage of this registry instead. This will allow us to evolve the
@@ -127,7 +142,8 @@ public class JSTypeRegistry implements TypeIRegistry {
   // CPU time on bounds checking inside get().
   private final JSType[] nativeTypes;
 
-  private final Map<String, JSType> namesToTypes;
+  // The maps and sets below that are not final are replaced by immutable copies in freeze().
+  private Map<String, JSType> namesToTypes;
 
   // NOTE(nicksantos): This is a terrible terrible hack. When type expressions
   // are evaluated, we need to be able to decide whether that type name
@@ -142,7 +158,7 @@ public class JSTypeRegistry implements TypeIRegistry {
   // undecidable territory. Instead, we "pre-declare" enum types and typedefs,
   // so that the expression resolver can decide whether a given name is
   // nullable or not.
-  private final Set<String> nonNullableTypeNames = new LinkedHashSet<>();
+  private Set<String> nonNullableTypeNames = new LinkedHashSet<>();
 
   // Types that have been "forward-declared."
   // If these types are not declared anywhere in the binary, we shouldn't
@@ -151,7 +167,7 @@ public class JSTypeRegistry implements TypeIRegistry {
 
   // A map of properties to the types on which those properties have been
   // declared.
-  private final Map<String, UnionTypeBuilder> typesIndexedByProperty =
+  private Map<String, UnionTypeBuilder> typesIndexedByProperty =
        new HashMap<>();
 
   private JSType sentinelObjectLiteral;
@@ -174,17 +190,18 @@ public class JSTypeRegistry implements TypeIRegistry {
   // A map of properties to each reference type on which those
   // properties have been declared. Each type has a unique name used
   // for de-duping.
-  private final Map<String, Map<String, ObjectType>>
+  private Map<String, Map<String, ObjectType>>
       eachRefTypeIndexedByProperty = new LinkedHashMap<>();
 
   // A map of properties to the greatest subtype on which those properties have
   // been declared. This is filled lazily from the types declared in
-  // typesIndexedByProperty.
-  private final Map<String, JSType> greatestSubtypeByProperty =
+  // typesIndexedByProperty, and for every property by freeze(), which then
+  // empties typesIndexedByProperty.
+  private Map<String, JSType> greatestSubtypeByProperty =
        new HashMap<>();
 
   // A map from interface name to types that implement it.
-  private final Multimap<String, FunctionType> interfaceToImplementors =
+  private Multimap<String, FunctionType> interfaceToImplementors =
       LinkedHashMultimap.create();
 
   // All the unresolved named types.
@@ -196,12 +213,27 @@ public class JSTypeRegistry implements TypeIRegistry {
       ArrayListMultimap.create();
 
   // The template type name.
-  private final Map<String, TemplateType> templateTypes = new HashMap<>();
+  private Map<String, TemplateType> templateTypes = new HashMap<>();
 
   // A single empty TemplateTypeMap, which can be safely reused in cases where
   // there are no template types.
   private final TemplateTypeMap emptyTemplateTypeMap;
 
+  // Memoized results of subtype checks between the types of this registry. Not serialized: the
+  // results are keyed by identity, so a fresh cache is made by readObject.
+  private transient SubtypeCache subtypeCache = new SubtypeCache();
+
+  // The union types built since the last change to the structure of a type, keyed by the set of
+  // their alternates. Building the same union twice yields the same instance, so that equal unions
+  // are usually identical and their alternates don't need to be normalized again. Dropped as a
+  // whole together with the subtype cache, and once it holds MAX_INTERNED_UNION_TYPES unions. Not
+  // serialized: the keys compare types by identity, so readObject starts a new table.
+  private transient Map<AlternatesKey, UnionType> unionTypes = new HashMap<>();
+
+  // Whether the build phase is over. Volatile, so that a thread that sees the registry as frozen
+  // also sees the immutable maps that freeze() published.
+  private volatile boolean frozen = false;
+
   public JSTypeRegistry(ErrorReporter reporter) {
     this(reporter, ImmutableSet.<String>of());
   }
@@ -213,7 +245,6 @@ public class JSTypeRegistry implements TypeIRegistry {
     this.emptyTemplateTypeMap = new TemplateTypeMap(
         this, ImmutableList.<TemplateType>of(), ImmutableList.<JSType>of());
     nativeTypes = new JSType[JSTypeNative.values().length];
-    namesToTypes = new HashMap<>();
     resetForTypeCheck();
   }
 
@@ -283,13 +314,63 @@ public class JSTypeRegistry implements TypeIRegistry {
    * Reset to run the TypeCheck pass.
    */
   public void resetForTypeCheck() {
-    typesIndexedByProperty.clear();
-    eachRefTypeIndexedByProperty.clear();
+    if (frozen) {
+      // Start a new build phase, with mutable copies of the state that survives a reset.
+      nonNullableTypeNames = new LinkedHashSet<>(nonNullableTypeNames);
+      interfaceToImplementors = LinkedHashMultimap.create(interfaceToImplementors);
+      templateTypes = new HashMap<>(templateTypes);
+      greatestSubtypeByProperty = new HashMap<>();
+      frozen = false;
+    }
+    invalidateSubtypeCache();
+    typesIndexedByProperty = new HashMap<>();
+    eachRefTypeIndexedByProperty = new LinkedHashMap<>();
     initializeBuiltInTypes();
-    namesToTypes.clear();
+    namesToTypes = new HashMap<>();
     initializeRegistry();
   }
 
+  /**
+   * Ends the build phase of this registry, typically after type inference. The indexes of
+   * declared types and properties are replaced by immutable copies, so that threads can query
+   * the registry concurrently. Declaring types or properties afterwards fails, until the next
+   * {@link #resetForTypeCheck}.
+   *
+   * <p>Other threads must be handed the registry after this call returns, e.g. by starting them
+   * afterwards or through a concurrent collection.
+   */
+  public synchronized void freeze() {
+    if (frozen) {
+      return;
+    }
+    namesToTypes = ImmutableMap.copyOf(namesToTypes);
+    nonNullableTypeNames = ImmutableSet.copyOf(nonNullableTypeNames);
+    // Build every union now, since UnionTypeBuilder#build memoizes its result in a field.
+    ImmutableMap.Builder<String, JSType> typesWithProperty = ImmutableMap.builder();
+    for (Entry<String, UnionTypeBuilder> entry : typesIndexedByProperty.entrySet()) {
+      typesWithProperty.put(entry.getKey(), entry.getValue().build());
+    }
+    greatestSubtypeByProperty = typesWithProperty.build();
+    typesIndexedByProperty = ImmutableMap.of();
+    ImmutableMap.Builder<String, Map<String, ObjectType>> eachRefType = ImmutableMap.builder();
+    for (Entry<String, Map<String, ObjectType>> entry : eachRefTypeIndexedByProperty.entrySet()) {
+      eachRefType.put(entry.getKey(), ImmutableMap.copyOf(entry.getValue()));
+    }
+    eachRefTypeIndexedByProperty = eachRefType.build();
+    interfaceToImplementors = ImmutableSetMultimap.copyOf(interfaceToImplementors);
+    templateTypes = ImmutableMap.copyOf(templateTypes);
+    frozen = true;
+  }
+
+  /** Whether {@link #freeze} was called since the last reset. */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  private void checkNotFrozen() {
+    checkState(!frozen, "Cannot declare types or properties in a frozen type registry.");
+  }
+
   private void initializeBuiltInTypes() {
     // These locals shouldn't be all caps.
     BooleanType BOOLEAN_TYPE = new BooleanType(this);
@@ -727,6 +808,7 @@ public class JSTypeRegistry implements TypeIRegistry {
   }
 
   private void register(JSType type, String name) {
+    checkNotFrozen();
     checkArgument(!name.contains("<"), "Type names cannot contain template annotations.");
     namesToTypes.put(name, type);
   }
@@ -743,7 +825,8 @@ public class JSTypeRegistry implements TypeIRegistry {
     return t.isRecordType() || t.isLiteralObject();
   }
 
-  void registerDroppedPropertiesInUnion(RecordType subtype, RecordType supertype) {
+  // Synchronized, since unions are also built while a frozen registry is queried.
+  synchronized void registerDroppedPropertiesInUnion(RecordType subtype, RecordType supertype) {
     boolean foundDroppedProperty = false;
     for (String pname : subtype.getPropertyMap().getOwnPropertyNames()) {
       if (!supertype.hasProperty(pname)) {
@@ -769,6 +852,7 @@ public class JSTypeRegistry implements TypeIRegistry {
    * show up in the type registry").
    */
   public void registerPropertyOnType(String propertyName, JSType type) {
+    checkNotFrozen();
     UnionTypeBuilder typeSet = typesIndexedByProperty.get(propertyName);
     if (typeSet == null) {
       typeSet = new UnionTypeBuilder(this, PROPERTY_CHECKING_UNION_SIZE);
@@ -816,6 +900,7 @@ public class JSTypeRegistry implements TypeIRegistry {
    * @param type the type to unregister the property on.
    */
   public void unregisterPropertyOnType(String propertyName, JSType type) {
+    checkNotFrozen();
     // TODO(bashir): typesIndexedByProperty should also be updated!
     Map<String, ObjectType> typeSet =
         eachRefTypeIndexedByProperty.get(propertyName);
@@ -827,9 +912,24 @@ public class JSTypeRegistry implements TypeIRegistry {
   /**
    * Gets the greatest subtype of the {@code type} that has a property
    * {@code propertyName} defined on it.
+   *
+   * <p>Until the registry is frozen, this fills a cache lazily, so it is
+   * synchronized for type checks running in parallel.
    */
   public JSType getGreatestSubtypeWithProperty(
       JSType type, String propertyName) {
+    if (frozen) {
+      JSType withProperty = greatestSubtypeByProperty.get(propertyName);
+      return withProperty != null
+          ? withProperty.getGreatestSubtype(type) : getNativeType(NO_TYPE);
+    }
+    synchronized (this) {
+      return getGreatestSubtypeWithPropertyWhileBuilding(type, propertyName);
+    }
+  }
+
+  private JSType getGreatestSubtypeWithPropertyWhileBuilding(
+      JSType type, String propertyName) {
     JSType withProperty = greatestSubtypeByProperty.get(propertyName);
     if (withProperty != null) {
       return withProperty.getGreatestSubtype(type);
@@ -857,37 +957,53 @@ public class JSTypeRegistry implements TypeIRegistry {
           && type.hasProperty(propertyName)) {
         return true;
       }
-      if (typesIndexedByProperty.containsKey(propertyName)) {
-        for (JSType alt :
-                 typesIndexedByProperty.get(propertyName).getAlternates()) {
-          JSType greatestSubtype = alt.getGreatestSubtype(type);
-          if (!greatestSubtype.isEmptyType()) {
-            // We've found a type with this property. Now we just have to make
-            // sure it's not a type used for internal bookkeeping.
-            RecordType maybeRecordType = greatestSubtype.toMaybeRecordType();
-            if (maybeRecordType != null && maybeRecordType.isSynthetic()) {
-              continue;
-            }
-
-            return true;
+      for (JSType alt : getTypesWithProperty(propertyName)) {
+        JSType greatestSubtype = alt.getGreatestSubtype(type);
+        if (!greatestSubtype.isEmptyType()) {
+          // We've found a type with this property. Now we just have to make
+          // sure it's not a type used for internal bookkeeping.
+          RecordType maybeRecordType = greatestSubtype.toMaybeRecordType();
+          if (maybeRecordType != null && maybeRecordType.isSynthetic()) {
+            continue;
           }
+
+          return true;
         }
       }
       if (type.toMaybeRecordType() != null) {
-        RecordType rec = type.toMaybeRecordType();
-        boolean mayBeInUnion = false;
-        for (String pname : rec.getPropertyMap().getOwnPropertyNames()) {
-          if (this.propertiesOfSupertypesInUnions.contains(pname)) {
-            mayBeInUnion = true;
-            break;
-          }
-        }
-        return mayBeInUnion && this.droppedPropertiesOfUnions.contains(propertyName);
+        return mayHaveDroppedProperty(type.toMaybeRecordType(), propertyName);
       }
     }
     return false;
   }
 
+  /** Returns the types on which a property was declared, as the alternates of their union. */
+  private Iterable<JSType> getTypesWithProperty(String propertyName) {
+    if (frozen) {
+      JSType withProperty = greatestSubtypeByProperty.get(propertyName);
+      if (withProperty == null) {
+        return ImmutableList.of();
+      }
+      return withProperty.isUnionType()
+          ? withProperty.toMaybeUnionType().getAlternates()
+          : ImmutableList.of(withProperty);
+    }
+    UnionTypeBuilder typesWithProp = typesIndexedByProperty.get(propertyName);
+    return typesWithProp != null
+        ? typesWithProp.getAlternates() : ImmutableList.<JSType>of();
+  }
+
+  private synchronized boolean mayHaveDroppedProperty(RecordType rec, String propertyName) {
+    boolean mayBeInUnion = false;
+    for (String pname : rec.getPropertyMap().getOwnPropertyNames()) {
+      if (this.propertiesOfSupertypesInUnions.contains(pname)) {
+        mayBeInUnion = true;
+        break;
+      }
+    }
+    return mayBeInUnion && this.droppedPropertiesOfUnions.contains(propertyName);
+  }
+
   /**
    * Returns each reference type that has a property {@code propertyName}
    * defined on it.
@@ -945,6 +1061,7 @@ public class JSTypeRegistry implements TypeIRegistry {
    */
   void registerTypeImplementingInterface(
       FunctionType type, ObjectType interfaceInstance) {
+    checkNotFrozen();
     interfaceToImplementors.put(interfaceInstance.getReferenceName(), type);
   }
 
@@ -1096,6 +1213,7 @@ public class JSTypeRegistry implements TypeIRegistry {
    * @param jsTypeName The name string.
    */
   public void removeType(String jsTypeName) {
+    checkNotFrozen();
     namesToTypes.remove(jsTypeName);
   }
 
@@ -1196,19 +1314,99 @@ public class JSTypeRegistry implements TypeIRegistry {
       // interning.
       NamedType namedType = createNamedType(jsTypeName, sourceName, lineno, charno);
       if (recordUnresolvedTypes) {
-        unresolvedNamedTypes.put(scope, namedType);
+        if (!frozen) {
+          unresolvedNamedTypes.put(scope, namedType);
+        } else if (scope != null) {
+          // No more types will be declared, so there is no point in resolving it later.
+          namedType.resolve(reporter, scope);
+        }
       }
       type = namedType;
     }
     return type;
   }
 
+  SubtypeCache getSubtypeCache() {
+    return subtypeCache;
+  }
+
+  /**
+   * Drops the memoized results of subtype checks, and the unions built from them. This must be
+   * called before any change to a type that can affect which types it is a subtype or supertype
+   * of.
+   */
+  synchronized void invalidateSubtypeCache() {
+    subtypeCache.invalidate();
+    if (!unionTypes.isEmpty()) {
+      unionTypes = new HashMap<>();
+    }
+  }
+
+  /**
+   * Drops the memoized results of the subtype checks that compared properties. This must be called
+   * before a property is defined on or removed from a type.
+   */
+  void invalidatePropertyDependentSubtypes() {
+    subtypeCache.invalidatePropertyDependent();
+  }
+
+  /** Returns how many subtype checks were answered from the cache of previous results. */
+  public long getSubtypeCacheHitCount() {
+    return subtypeCache.getHitCount();
+  }
+
+  /** Returns how many subtype checks had to be computed. */
+  public long getSubtypeCacheMissCount() {
+    return subtypeCache.getMissCount();
+  }
+
+  /** Returns how many times results were dropped from the cache of subtype check results. */
+  public long getSubtypeCacheInvalidationCount() {
+    return subtypeCache.getInvalidationCount();
+  }
+
+  /**
+   * Returns a rough estimate, in bytes, of the memory taken by the property maps of the named
+   * types in this registry, of their instance types and of their prototypes. Anonymous types
+   * are not counted. Meant to track the footprint of the registry on large programs, not for
+   * exact accounting.
+   */
+  public long estimatePropertyMapMemory() {
+    Set<PropertyMap> seen = Sets.newIdentityHashSet();
+    long bytes = 0;
+    for (JSType type : namesToTypes.values()) {
+      ObjectType objType = type.toObjectType();
+      if (objType == null) {
+        continue;
+      }
+      bytes += estimatePropertyMapMemory(objType, seen);
+      FunctionType ctor = objType.toMaybeFunctionType();
+      if (ctor != null) {
+        if (ctor.hasInstanceType()) {
+          bytes += estimatePropertyMapMemory(ctor.getInstanceType(), seen);
+        }
+        ObjectType prototype = ctor.getPrototypeIfCreated();
+        if (prototype != null) {
+          bytes += estimatePropertyMapMemory(prototype, seen);
+        }
+      }
+    }
+    return bytes;
+  }
+
+  private static long estimatePropertyMapMemory(ObjectType type, Set<PropertyMap> seen) {
+    PropertyMap map = type.getPropertyMap();
+    return map != null && seen.add(map) ? map.estimateMemory() : 0;
+  }
+
   /**
    * Flushes out the current resolved and unresolved Named Types from
    * the type registry.  This is intended to be used ONLY before a
    * compile is run.
    */
   public void clearNamedTypes() {
+    checkNotFrozen();
+    invalidateSubtypeCache();
     resolvedNamedTypes.clear();
     unresolvedNamedTypes.clear();
   }
@@ -1217,6 +1415,7 @@ public class JSTypeRegistry implements TypeIRegistry {
    * Resolve all the unresolved types in the given scope.
    */
   public void resolveTypesInScope(StaticTypedScope<JSType> scope) {
+    checkNotFrozen();
     for (NamedType type : unresolvedNamedTypes.get(scope)) {
       type.resolve(reporter, scope);
     }
@@ -1290,6 +1489,91 @@ public class JSTypeRegistry implements TypeIRegistry {
         getNativeType(JSTypeNative.NULL_TYPE));
   }
 
+  /**
+   * Returns the union type with the given alternates, reusing a union with the same set of
+   * alternates if one was built before. Synchronized, since unions are built by type checks
+   * running in parallel.
+   *
+   * <p>A union is only reused while it can't come out differently. Resolving a type or changing
+   * its prototype or interfaces drops all unions in {@link #invalidateSubtypeCache}. Properties
+   * change far more often, so a union is not kept at all if picking or normalizing its
+   * alternates compared properties.
+   *
+   * @param comparedProperties whether picking the alternates compared properties
+   */
+  synchronized UnionType createOrReuseUnionType(
+      ImmutableList<JSType> alternates, boolean comparedProperties) {
+    AlternatesKey key = new AlternatesKey(alternates);
+    UnionType union = unionTypes.get(key);
+    if (union != null) {
+      return union;
+    }
+    Boolean enclosing = SubtypeCache.beginCheck();
+    try {
+      union = new UnionType(this, alternates);
+    } finally {
+      comparedProperties |= SubtypeCache.endCheck(enclosing);
+    }
+    if (!comparedProperties) {
+      if (unionTypes.size() >= MAX_INTERNED_UNION_TYPES) {
+        unionTypes.clear();
+      }
+      unionTypes.put(key, union);
+    }
+    return union;
+  }
+
+  /**
+   * A set of types that is compared by the identity of its elements. Only used as a key of the
+   * transient union table. The types are sorted by identity hash and the hash of the key is
+   * computed once, so lookups don't depend on the order of the alternates and never rehash them.
+   */
+  private static final class AlternatesKey {
+    private static final Comparator<JSType> IDENTITY_HASH_ORDER = new Comparator<JSType>() {
+      @Override
+      public int compare(JSType a, JSType b) {
+        return Integer.compare(System.identityHashCode(a), System.identityHashCode(b));
+      }
+    };
+
+    private final JSType[] sortedAlternates;
+    private final int hash;
+
+    AlternatesKey(ImmutableList<JSType> alternates) {
+      this.sortedAlternates = alternates.toArray(new JSType[alternates.size()]);
+      Arrays.sort(sortedAlternates, IDENTITY_HASH_ORDER);
+      int hash = 1;
+      for (JSType alternate : sortedAlternates) {
+        hash = 31 * hash + System.identityHashCode(alternate);
+      }
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof AlternatesKey)) {
+        return false;
+      }
+      AlternatesKey other = (AlternatesKey) o;
+      if (other.hash != hash || other.sortedAlternates.length != sortedAlternates.length) {
+        return false;
+      }
+      // Types with the same identity hash may be sorted differently in the two keys, which only
+      // makes an equal set of alternates miss the table.
+      for (int i = 0; i < sortedAlternates.length; i++) {
+        if (sortedAlternates[i] != other.sortedAlternates[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
   /**
    * Creates a union type whose variants are the arguments.
    */
@@ -1727,6 +2011,7 @@ public class JSTypeRegistry implements TypeIRegistry {
    */
   public void identifyNonNullableName(String name) {
     checkNotNull(name);
+    checkNotFrozen();
     nonNullableTypeNames.add(name);
   }
 
@@ -2019,6 +2304,7 @@ public class JSTypeRegistry implements TypeIRegistry {
    */
   public void setTemplateTypeNames(List<TemplateType> keys) {
     checkNotNull(keys);
+    checkNotFrozen();
     for (TemplateType key : keys) {
       templateTypes.put(key.getReferenceName(), key);
     }
@@ -2028,6 +2314,14 @@ public class JSTypeRegistry implements TypeIRegistry {
    * Clears the template type name.
    */
   public void clearTemplateTypeNames() {
+    checkNotFrozen();
     templateTypes.clear();
   }
+
+  @GwtIncompatible("ObjectInputStream")
+  private void readObject(java.io.ObjectInputStream in) throws Exception {
+    in.defaultReadObject();
+    subtypeCache = new SubtypeCache();
+    unionTypes = new HashMap<>();
+  }
 }
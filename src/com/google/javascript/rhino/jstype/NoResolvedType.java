@@ -102,11 +102,6 @@ class NoResolvedType extends NoType {
     return false;
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
@@ -81,11 +81,6 @@ public class NoType extends NoObjectType {
     return true;
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, null, SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
@@ -340,6 +340,7 @@ public abstract class ObjectType
    */
   public final boolean defineDeclaredProperty(String propertyName,
       JSType type, Node propertyNode) {
+    registry.invalidatePropertyDependentSubtypes();
     boolean result = defineProperty(propertyName, type, false, propertyNode);
     // All property definitions go through this method
     // or defineInferredProperty. Because the properties defined an an
@@ -356,6 +357,7 @@ public abstract class ObjectType
    */
   public final boolean defineSynthesizedProperty(String propertyName,
       JSType type, Node propertyNode) {
+    registry.invalidatePropertyDependentSubtypes();
     return defineProperty(propertyName, type, false, propertyNode);
   }
 
@@ -378,6 +380,7 @@ public abstract class ObjectType
           originalType.getLeastSupertype(type);
     }
 
+    registry.invalidatePropertyDependentSubtypes();
     boolean result = defineProperty(propertyName, type, true,
         propertyNode);
 
@@ -593,6 +596,7 @@ public abstract class ObjectType
     if (result != null) {
       return result.subtypeValue();
     }
+    SubtypeCache.notePropertyComparison();
     Set<String> keySet = getPropertyNames();
     Set<String> otherKeySet = otherObject.getPropertyNames();
     if (!otherKeySet.equals(keySet)) {
@@ -651,6 +655,7 @@ public abstract class ObjectType
       return cachedResult.subtypeValue();
     }
 
+    SubtypeCache.notePropertyComparison();
     boolean result = isStructuralSubtypeHelper(
         this, superType, implicitImplCache, subtypingMode);
     implicitImplCache.updateCache(
@@ -41,7 +41,6 @@ package com.google.javascript.rhino.jstype;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import java.io.Serializable;
 import java.util.HashSet;
@@ -69,7 +68,7 @@ class PropertyMap implements Serializable {
   private final Map<String, Property> properties;
 
   PropertyMap() {
-    this(Maps.<String, Property>newTreeMap());
+    this(new CompactSortedMap<Property>());
   }
 
   private PropertyMap(Map<String, Property> underlyingMap) {
@@ -192,6 +191,19 @@ class PropertyMap implements Serializable {
     return properties.values();
   }
 
+  /**
+   * Returns a rough estimate, in bytes, of the memory taken by this map and its own properties,
+   * not counting their types, nodes and JSDoc.
+   */
+  long estimateMemory() {
+    // The map and its fields, plus a header, four references and a flag for each property.
+    long bytes = 16 + 32L * properties.size();
+    if (properties instanceof CompactSortedMap) {
+      bytes += ((CompactSortedMap<?>) properties).estimateMemory();
+    }
+    return bytes;
+  }
+
   @Override
   public int hashCode() {
     // Calculate the hash just based on the property names, not their types.
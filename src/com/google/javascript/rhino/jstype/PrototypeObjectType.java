@@ -42,6 +42,7 @@ package com.google.javascript.rhino.jstype;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import com.google.javascript.rhino.ErrorReporter;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.Node;
@@ -87,6 +88,17 @@ public class PrototypeObjectType extends ObjectType {
   // by printing all properties.
   private boolean prettyPrint = false;
 
+  // The types that are being pretty printed on the current thread. A type that is already being
+  // printed refers to itself, and is not printed again. This is not a flag on the type because
+  // types may be printed on several threads at once.
+  private static final ThreadLocal<Set<PrototypeObjectType>> typesBeingPrinted =
+      new ThreadLocal<Set<PrototypeObjectType>>() {
+        @Override
+        protected Set<PrototypeObjectType> initialValue() {
+          return Sets.newIdentityHashSet();
+        }
+      };
+
   private static final int MAX_PRETTY_PRINTED_PROPERTIES = 10;
 
   /**
@@ -164,11 +176,13 @@ public class PrototypeObjectType extends ObjectType {
     this.className = className;
     this.nativeType = nativeType;
     this.anonymousType = anonymousType;
+    // A new type can't be part of any cached subtype relation, so this doesn't go through
+    // setImplicitPrototype, which invalidates them.
     if (nativeType || implicitPrototype != null) {
-      setImplicitPrototype(implicitPrototype);
+      this.implicitPrototypeFallback = implicitPrototype;
     } else {
-      setImplicitPrototype(
-          registry.getNativeObjectType(JSTypeNative.OBJECT_TYPE));
+      this.implicitPrototypeFallback =
+          registry.getNativeObjectType(JSTypeNative.OBJECT_TYPE);
     }
   }
 
@@ -191,6 +205,7 @@ public class PrototypeObjectType extends ObjectType {
 
   @Override
   public boolean removeProperty(String name) {
+    registry.invalidatePropertyDependentSubtypes();
     return properties.removeProperty(name);
   }
 
@@ -281,52 +296,54 @@ public class PrototypeObjectType extends ObjectType {
     if (hasReferenceName()) {
       return sb.append(getReferenceName());
     }
-    if (!prettyPrint) {
-      return sb.append(forAnnotations ? "?" : "{...}");
-    }
     // Don't pretty print recursively.
-    prettyPrint = false;
-
-    // Use a tree set so that the properties are sorted.
-    Set<String> propertyNames = new TreeSet<>();
-    for (ObjectType current = this;
-        current != null && !current.isNativeObjectType() &&
-            propertyNames.size() <= MAX_PRETTY_PRINTED_PROPERTIES;
-        current = current.getImplicitPrototype()) {
-      propertyNames.addAll(current.getOwnPropertyNames());
+    Set<PrototypeObjectType> printing = prettyPrint ? typesBeingPrinted.get() : null;
+    if (printing == null || !printing.add(this)) {
+      return sb.append(forAnnotations ? "?" : "{...}");
     }
 
-    sb.append("{");
-    boolean useNewlines = !forAnnotations && propertyNames.size() > 2;
+    try {
+      // Use a tree set so that the properties are sorted.
+      Set<String> propertyNames = new TreeSet<>();
+      for (ObjectType current = this;
+          current != null && !current.isNativeObjectType() &&
+              propertyNames.size() <= MAX_PRETTY_PRINTED_PROPERTIES;
+          current = current.getImplicitPrototype()) {
+        propertyNames.addAll(current.getOwnPropertyNames());
+      }
+
+      sb.append("{");
+      boolean useNewlines = !forAnnotations && propertyNames.size() > 2;
+
+      int i = 0;
+      for (String property : propertyNames) {
+        if (i > 0) {
+          sb.append(",");
+        }
+        if (useNewlines) {
+          sb.append("\n  ");
+        } else if (i > 0) {
+          sb.append(" ");
+        }
+
+        sb.append(property).append(": ");
+        getPropertyType(property).appendAsNonNull(sb, forAnnotations);
 
-    int i = 0;
-    for (String property : propertyNames) {
-      if (i > 0) {
-        sb.append(",");
+        ++i;
+        if (!forAnnotations && i == MAX_PRETTY_PRINTED_PROPERTIES) {
+          sb.append(", ...");
+          break;
+        }
       }
       if (useNewlines) {
-        sb.append("\n  ");
-      } else if (i > 0) {
-        sb.append(" ");
+        sb.append("\n");
       }
 
-      sb.append(property).append(": ");
-      getPropertyType(property).appendAsNonNull(sb, forAnnotations);
-
-      ++i;
-      if (!forAnnotations && i == MAX_PRETTY_PRINTED_PROPERTIES) {
-        sb.append(", ...");
-        break;
-      }
-    }
-    if (useNewlines) {
-      sb.append("\n");
+      sb.append("}");
+      return sb;
+    } finally {
+      printing.remove(this);
     }
-
-    sb.append("}");
-
-    prettyPrint = true;
-    return sb;
   }
 
   void setPrettyPrint(boolean prettyPrint) {
@@ -355,6 +372,7 @@ public class PrototypeObjectType extends ObjectType {
    */
   final void setImplicitPrototype(ObjectType implicitPrototype) {
     checkState(!hasCachedValues());
+    registry.invalidateSubtypeCache();
     this.implicitPrototypeFallback = implicitPrototype;
   }
 
@@ -378,11 +396,6 @@ public class PrototypeObjectType extends ObjectType {
     return anonymousType;
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
@@ -439,6 +452,7 @@ public class PrototypeObjectType extends ObjectType {
     // 1) typeA has all the properties declared in typeB.
     // 2) And for each property of typeB, its type must be
     //    a super type of the corresponding property of typeA.
+    SubtypeCache.notePropertyComparison();
     for (String property : typeB.getOwnPropertyNames()) {
       if (!typeA.hasProperty(property)) {
         return false;
@@ -68,7 +68,8 @@ public class ProxyObjectType extends ObjectType {
   ProxyObjectType(JSTypeRegistry registry, JSType referencedType,
                   TemplateTypeMap templateTypeMap) {
     super(registry, templateTypeMap);
-    setReferencedType(checkNotNull(referencedType));
+    // A new type can't be part of any cached subtype relation, so there is nothing to invalidate.
+    setReferencedTypeInternal(checkNotNull(referencedType));
   }
 
   @Override
@@ -86,6 +87,11 @@ public class ProxyObjectType extends ObjectType {
   }
 
   void setReferencedType(JSType referencedType) {
+    registry.invalidateSubtypeCache();
+    setReferencedTypeInternal(referencedType);
+  }
+
+  private void setReferencedTypeInternal(JSType referencedType) {
     this.referencedType = referencedType;
     if (referencedType instanceof ObjectType) {
       this.referencedObjType = (ObjectType) referencedType;
@@ -244,11 +250,6 @@ public class ProxyObjectType extends ObjectType {
     return referencedType.testForEquality(that);
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return referencedType.isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
@@ -0,0 +1,226 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Google Inc.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package com.google.javascript.rhino.jstype;
+
+import com.google.javascript.rhino.jstype.JSType.SubtypingMode;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Remembers the results of top-level subtype checks, so that asking {@code a.isSubtype(b)} again
+ * doesn't walk the structure of both types again. A {@link JSTypeRegistry} owns one such cache for
+ * all the types it creates.
+ *
+ * <p>Results are keyed by the identity of both types, whether structural interface matching was
+ * used, and the {@link SubtypingMode}. Types are mutable, so any change that can affect a subtype
+ * relation must invalidate the results it can affect. Changing a prototype or the implemented
+ * interfaces, or resolving a type, calls {@link #invalidate}. Defining or removing a property
+ * calls {@link #invalidatePropertyDependent}, which only drops the results of checks that
+ * compared properties, e.g. against a record type or a structural interface. Nominal results,
+ * which are most of them, survive the property declarations that happen all through type checking.
+ *
+ * <p>All methods are synchronized, since type checking may run on several threads at once.
+ */
+final class SubtypeCache {
+  /**
+   * The cache is dropped as a whole once it holds this many results, to bound its memory use on
+   * very large programs.
+   */
+  private static final int MAX_SIZE = 1 << 20;
+
+  private static final int NUM_KINDS = 4 * SubtypingMode.values().length;
+
+  /**
+   * Per thread, whether the checks that are being memoized on it have compared any properties so
+   * far; null while no check is being memoized.
+   */
+  private static final ThreadLocal<Boolean> comparesProperties = new ThreadLocal<>();
+
+  // subtype -> supertype -> result, one map per kind of check. A null entry holds no results.
+  private final List<IdentityHashMap<JSType, IdentityHashMap<JSType, Boolean>>> results =
+      new ArrayList<>(NUM_KINDS);
+  private final int[] sizes = new int[NUM_KINDS];
+
+  private int size = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long invalidations = 0;
+
+  SubtypeCache() {
+    for (int i = 0; i < NUM_KINDS; i++) {
+      results.add(null);
+    }
+  }
+
+  /**
+   * Called by the subtype and equivalence checks before they compare the properties of two types,
+   * so that the result of the check being memoized is dropped when a property changes.
+   */
+  static void notePropertyComparison() {
+    if (comparesProperties.get() == Boolean.FALSE) {
+      comparesProperties.set(Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Starts tracking whether a check that is about to be memoized compares properties. Returns
+   * the state of the enclosing check, which must be passed to {@link #endCheck}.
+   */
+  static Boolean beginCheck() {
+    Boolean enclosing = comparesProperties.get();
+    comparesProperties.set(Boolean.FALSE);
+    return enclosing;
+  }
+
+  /**
+   * Stops tracking the check started by the matching {@link #beginCheck}, and returns whether it
+   * compared properties. If it did, so did the enclosing check.
+   */
+  static boolean endCheck(Boolean enclosing) {
+    boolean compared = comparesProperties.get();
+    if (enclosing == null) {
+      comparesProperties.remove();
+    } else {
+      comparesProperties.set(enclosing || compared);
+    }
+    return compared;
+  }
+
+  /** Returns the remembered result of {@code subtype <: supertype}, or null if there is none. */
+  synchronized Boolean get(
+      JSType subtype, JSType supertype, boolean structuralTyping, SubtypingMode mode) {
+    Boolean result = get(kind(structuralTyping, mode, false), subtype, supertype);
+    if (result == null) {
+      result = get(kind(structuralTyping, mode, true), subtype, supertype);
+      if (result != null) {
+        notePropertyComparison();
+      }
+    }
+    if (result == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return result;
+  }
+
+  private Boolean get(int kind, JSType subtype, JSType supertype) {
+    IdentityHashMap<JSType, IdentityHashMap<JSType, Boolean>> map = results.get(kind);
+    IdentityHashMap<JSType, Boolean> supertypes = map == null ? null : map.get(subtype);
+    return supertypes == null ? null : supertypes.get(supertype);
+  }
+
+  synchronized void put(
+      JSType subtype,
+      JSType supertype,
+      boolean structuralTyping,
+      SubtypingMode mode,
+      boolean comparedProperties,
+      boolean result) {
+    if (size >= MAX_SIZE) {
+      invalidate();
+    }
+    int kind = kind(structuralTyping, mode, comparedProperties);
+    IdentityHashMap<JSType, IdentityHashMap<JSType, Boolean>> map = results.get(kind);
+    if (map == null) {
+      map = new IdentityHashMap<>();
+      results.set(kind, map);
+    }
+    IdentityHashMap<JSType, Boolean> supertypes = map.get(subtype);
+    if (supertypes == null) {
+      supertypes = new IdentityHashMap<>();
+      map.put(subtype, supertypes);
+    }
+    if (supertypes.put(supertype, result) == null) {
+      sizes[kind]++;
+      size++;
+    }
+  }
+
+  /** Drops all remembered results. */
+  synchronized void invalidate() {
+    if (size == 0) {
+      return;
+    }
+    for (int i = 0; i < NUM_KINDS; i++) {
+      results.set(i, null);
+      sizes[i] = 0;
+    }
+    size = 0;
+    invalidations++;
+  }
+
+  /** Drops the remembered results of the checks that compared properties. */
+  synchronized void invalidatePropertyDependent() {
+    boolean dropped = false;
+    for (int i = 0; i < NUM_KINDS; i++) {
+      if (comparesProperties(i) && sizes[i] > 0) {
+        results.set(i, null);
+        size -= sizes[i];
+        sizes[i] = 0;
+        dropped = true;
+      }
+    }
+    if (dropped) {
+      invalidations++;
+    }
+  }
+
+  synchronized long getHitCount() {
+    return hits;
+  }
+
+  synchronized long getMissCount() {
+    return misses;
+  }
+
+  synchronized long getInvalidationCount() {
+    return invalidations;
+  }
+
+  private static int kind(
+      boolean structuralTyping, SubtypingMode mode, boolean comparedProperties) {
+    return 4 * mode.ordinal() + (structuralTyping ? 0 : 2) + (comparedProperties ? 1 : 0);
+  }
+
+  private static boolean comparesProperties(int kind) {
+    return kind % 2 == 1;
+  }
+}
@@ -149,11 +149,6 @@ public final class TemplatizedType extends ProxyObjectType {
     return result == null ? null : result.visit(replacer);
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
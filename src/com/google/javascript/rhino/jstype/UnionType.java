@@ -72,11 +72,15 @@ public class UnionType extends JSType {
   // NOTE: to avoid allocating iterators, all the loops below iterate over alternates by index
   // instead of using the for-each loop idiom.
 
+  // NOTE: the fields below are rebuilt lazily, once their alternates are resolved, and unions are
+  // shared by threads that check types in parallel. They are volatile so that a rebuild on one
+  // thread is seen whole on the others.
+
   // alternates without merging structural interfaces and their subtypes
-  ImmutableList<JSType> alternatesWithoutStucturalTyping;
+  volatile ImmutableList<JSType> alternatesWithoutStucturalTyping;
   // alternates under structural typing
-  ImmutableList<JSType> alternates;
-  private int hashcode;
+  volatile ImmutableList<JSType> alternates;
+  private volatile int hashcode;
 
   /**
    * Creates a union type.
@@ -152,18 +156,20 @@ public class UnionType extends JSType {
    * Use UnionTypeBuilder to rebuild the list of alternates and hashcode
    * of the current UnionType.
    */
-  private void rebuildAlternates() {
+  private synchronized void rebuildAlternates() {
     UnionTypeBuilder builder = new UnionTypeBuilder(registry);
     for (JSType alternate : alternatesWithoutStucturalTyping) {
       builder.addAlternate(alternate);
     }
-    alternatesWithoutStucturalTyping = builder.getAlternates();
+    ImmutableList<JSType> rebuiltWithoutStructuralTyping = builder.getAlternates();
     builder = new UnionTypeBuilder(registry);
-    for (JSType alternate : alternatesWithoutStucturalTyping) {
+    for (JSType alternate : rebuiltWithoutStructuralTyping) {
       builder.addAlternate(alternate, true);
     }
+    // Readers that see only some of these assignments still see the same set of alternates.
+    alternatesWithoutStucturalTyping = rebuiltWithoutStructuralTyping;
     alternates = builder.getAlternates();
-    hashcode = alternatesWithoutStucturalTyping.hashCode();
+    hashcode = rebuiltWithoutStructuralTyping.hashCode();
   }
 
   /**
@@ -554,11 +560,6 @@ public class UnionType extends JSType {
     return sb.append(")");
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, ImplCache.create(), SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
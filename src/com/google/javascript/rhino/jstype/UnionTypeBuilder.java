@@ -74,6 +74,9 @@ public class UnionTypeBuilder implements Serializable {
   private boolean isAllType = false;
   private boolean isNativeUnknownType = false;
   private boolean areAllUnknownsChecked = true;
+  // Whether picking the alternates compared the properties of some types. Such a union may come
+  // out differently once properties change, so the registry doesn't reuse it.
+  private boolean comparedProperties = false;
   private final int maxUnionSize;
 
   // Every UnionType may have at most one structural function in it.
@@ -147,6 +150,16 @@ public class UnionTypeBuilder implements Serializable {
    * for easy chaining.
    */
   public UnionTypeBuilder addAlternate(JSType alternate, boolean isStructural) {
+    Boolean enclosing = SubtypeCache.beginCheck();
+    try {
+      addAlternateInternal(alternate, isStructural);
+    } finally {
+      comparedProperties |= SubtypeCache.endCheck(enclosing);
+    }
+    return this;
+  }
+
+  private UnionTypeBuilder addAlternateInternal(JSType alternate, boolean isStructural) {
     // build() returns the bottom type by default, so we can
     // just bail out early here.
     if (alternate.isNoType()) {
@@ -199,6 +212,15 @@ public class UnionTypeBuilder implements Serializable {
           boolean removeCurrent = false;
           JSType current = it.next();
 
+          if (alternate == current) {
+            // Alternate is unnecessary.
+            return this;
+          }
+          if (areUnrelatedByKind(alternate, current, isStructural)) {
+            currentIndex++;
+            continue;
+          }
+
           // Unknown and NoResolved types may just be names that haven't
           // been resolved yet. So keep these in the union, and just use
           // equality checking for simple de-duping.
@@ -315,6 +337,22 @@ public class UnionTypeBuilder implements Serializable {
     return this;
   }
 
+  /**
+   * Returns true if neither type can be a subtype of the other, judging only from what kind of
+   * types they are. Primitive value types are never related to other primitive types, nor to
+   * object types with a known structure. This avoids a pair of full subtype checks for the most
+   * common alternates.
+   */
+  private static boolean areUnrelatedByKind(JSType a, JSType b, boolean isStructural) {
+    if (a instanceof ValueType) {
+      return b instanceof PrototypeObjectType
+          || (b instanceof ValueType && !a.isEquivalentTo(b, isStructural));
+    } else if (b instanceof ValueType) {
+      return a instanceof PrototypeObjectType;
+    }
+    return false;
+  }
+
   private void mayRegisterDroppedProperties(JSType subtype, JSType supertype) {
     if (subtype.toMaybeRecordType() != null && supertype.toMaybeRecordType() != null) {
       this.registry.registerDroppedPropertiesInUnion(
@@ -367,15 +405,16 @@ public class UnionTypeBuilder implements Serializable {
   }
 
   /**
-   * Creates a union.
+   * Creates a union.  A builder that is no longer changed may be
+   * built from several threads, which all get the same result.
    * @return A UnionType if it has two or more alternates, the
    *    only alternate if it has one and otherwise {@code NO_TYPE}.
    */
-  public JSType build() {
+  public synchronized JSType build() {
     if (result == null) {
       result = reduceAlternatesWithoutUnion();
       if (result == null) {
-        result = new UnionType(registry, ImmutableList.copyOf(getAlternates()));
+        result = registry.createOrReuseUnionType(getAlternates(), comparedProperties);
       }
     }
     return result;
@@ -98,11 +98,6 @@ public class UnknownType extends ObjectType {
     return true;
   }
 
-  @Override
-  public boolean isSubtype(JSType that) {
-    return isSubtype(that, null, SubtypingMode.NORMAL);
-  }
-
   @Override
   protected boolean isSubtype(JSType that,
       ImplCache implicitImplCache, SubtypingMode subtypingMode) {
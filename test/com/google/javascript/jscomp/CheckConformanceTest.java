@@ -19,12 +19,14 @@ package com.google.javascript.jscomp;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.javascript.jscomp.CheckConformance.InvalidRequirementSpec;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import com.google.javascript.jscomp.ConformanceRules.AbstractRule;
 import com.google.javascript.jscomp.ConformanceRules.ConformanceResult;
 import com.google.javascript.jscomp.testing.BlackHoleErrorManager;
 import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.Token;
 import com.google.protobuf.TextFormat;
 import com.google.protobuf.TextFormat.ParseException;
 import java.util.List;
@@ -1126,6 +1128,45 @@ public final class CheckConformanceTest extends TypeICompilerTestCase {
         "anything;", CheckConformance.CONFORMANCE_VIOLATION, "Violation: CustomRule Message");
   }
 
+  // A custom rule that reports every name, but only declares the name "x".
+  public static class CustomRuleReportX extends AbstractRule {
+    public CustomRuleReportX(AbstractCompiler compiler, Requirement requirement)
+        throws InvalidRequirementSpec {
+      super(compiler, requirement);
+    }
+
+    @Override
+    public ImmutableSet<Token> getTokens() {
+      return ImmutableSet.of(Token.NAME);
+    }
+
+    @Override
+    public ImmutableSet<String> getNames() {
+      return ImmutableSet.of("x");
+    }
+
+    @Override
+    protected ConformanceResult checkConformance(NodeTraversal t, Node n) {
+      return n.isName() ? ConformanceResult.VIOLATION : ConformanceResult.CONFORMANCE;
+    }
+  }
+
+  public void testCustomIndexedRuleOnlySeesDeclaredNodes() {
+    configuration =
+        "requirement: {\n" +
+        "  type: CUSTOM\n" +
+        "  java_class: 'com.google.javascript.jscomp.CheckConformanceTest$" +
+        "CustomRuleReportX'\n" +
+        "  error_message: 'CustomRule Message'\n" +
+        "}";
+
+    testWarning(
+        "var y = 1; y = x;",
+        CheckConformance.CONFORMANCE_VIOLATION,
+        "Violation: CustomRule Message");
+    testNoWarning("var y = 1; z.x = y;");
+  }
+
   public void testCustomBanExpose() {
     configuration =
         "requirement: {\n" +
@@ -1470,6 +1470,8 @@ public abstract class CompilerTestCase extends TestCase {
           // check the AST marking after each pass runs.
           // Verify that changes to the AST are properly marked on the AST.
           changeVerifier.checkRecordedChanges(mainRoot);
+          // Verify that the pass didn't leave a stale namespace for the next one.
+          compiler.verifyGlobalNamespaces();
         }
 
         if (astValidationEnabled) {
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.rhino.Node;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link ExternsSnapshot}. */
+public final class ExternsSnapshotTest extends TestCase {
+
+  private static final String EXTERNS = "/** @const */ var externNs = {};\nvar externVar;";
+
+  public void testEachCompilationGetsItsOwnCopy() {
+    ExternsSnapshot snapshot = ExternsSnapshot.parse(
+        ImmutableList.of(SourceFile.fromCode("externs.js", EXTERNS)), new CompilerOptions());
+
+    Node externs1 = parseExterns(snapshot);
+    Node externs2 = parseExterns(snapshot);
+    assertThat(externs1).isNotSameAs(externs2);
+    assertNull(externs1.checkTreeEquals(externs2));
+
+    // Mutations in one compilation don't leak into the next one.
+    externs1.getFirstChild().detach();
+    assertNull(parseExterns(snapshot).checkTreeEquals(externs2));
+  }
+
+  public void testParseErrorsAreReplayed() {
+    ExternsSnapshot snapshot = ExternsSnapshot.parse(
+        ImmutableList.of(SourceFile.fromCode("externs.js", "var f() = a;")),
+        new CompilerOptions());
+
+    for (int i = 0; i < 2; i++) {
+      Compiler compiler = new Compiler();
+      compiler.init(
+          snapshot, ImmutableList.of(SourceFile.fromCode("in.js", "")), new CompilerOptions());
+      compiler.parse();
+      assertThat(compiler.getErrors()).isNotEmpty();
+    }
+  }
+
+  public void testSerialization() throws Exception {
+    ExternsSnapshot snapshot = ExternsSnapshot.parse(
+        ImmutableList.of(SourceFile.fromCode("externs.js", EXTERNS)), new CompilerOptions());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    snapshot.writeTo(out);
+
+    ExternsSnapshot restored = ExternsSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    assertThat(restored.getSourceFiles()).hasSize(1);
+    assertNull(parseExterns(restored).checkTreeEquals(parseExterns(snapshot)));
+  }
+
+  private static Node parseExterns(ExternsSnapshot snapshot) {
+    Compiler compiler = new Compiler();
+    compiler.init(
+        snapshot, ImmutableList.of(SourceFile.fromCode("in.js", "externVar;")),
+        new CompilerOptions());
+    compiler.parse();
+    assertThat(compiler.getErrors()).isEmpty();
+    return compiler.getRoot().getFirstChild();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.javascript.rhino.Node;
+import junit.framework.TestCase;
+
+/** Tests for {@link GlobalNamespaceCache}. */
+public final class GlobalNamespaceCacheTest extends TestCase {
+
+  private Compiler compiler;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    compiler = new Compiler();
+    compiler.init(
+        ImmutableList.of(SourceFile.fromCode("externs.js", "var ext;")),
+        ImmutableList.of(SourceFile.fromCode("in.js", "var a = {}; a.b = 1;")),
+        new CompilerOptions());
+    compiler.parse();
+  }
+
+  public void testReusedWhileUnchanged() {
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+    assertThat(namespace.getSlot("a.b")).isNotNull();
+
+    assertThat(compiler.getGlobalNamespace(null, compiler.getJsRoot())).isSameAs(namespace);
+  }
+
+  public void testExternsAreCachedSeparately() {
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+    GlobalNamespace withExterns =
+        compiler.getGlobalNamespace(compiler.getExternsRoot(), compiler.getJsRoot());
+
+    assertThat(withExterns).isNotSameAs(namespace);
+    assertThat(withExterns.getSlot("ext")).isNotNull();
+    assertThat(compiler.getGlobalNamespace(compiler.getExternsRoot(), compiler.getJsRoot()))
+        .isSameAs(withExterns);
+  }
+
+  public void testInvalidatedByCodeChange() {
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+    assertThat(namespace.getSlot("a.c")).isNull();
+
+    Node script = compiler.getJsRoot().getFirstChild();
+    script.addChildToBack(NodeUtil.newExpr(
+        NodeUtil.newQName(compiler, "a.c")));
+    compiler.reportChangeToEnclosingScope(script.getLastChild());
+
+    GlobalNamespace fresh = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+    assertThat(fresh).isNotSameAs(namespace);
+    assertThat(fresh.getSlot("a.c")).isNotNull();
+  }
+
+  public void testConsecutivePassesShareNamespace() {
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+
+    new InlineAliases(compiler).process(compiler.getExternsRoot(), compiler.getJsRoot());
+    new ProcessDefines(compiler, ImmutableMap.<String, Node>of())
+        .process(compiler.getExternsRoot(), compiler.getJsRoot());
+
+    // ProcessDefines may remove refs, so it must not hand the namespace on.
+    assertThat(compiler.getGlobalNamespace(null, compiler.getJsRoot())).isNotSameAs(namespace);
+  }
+
+  public void testMutatingPassDoesNotLeakNamespace() {
+    CompilerOptions options = new CompilerOptions();
+    options.setDevMode(CompilerOptions.DevMode.EVERY_PASS);
+    compiler = new Compiler();
+    compiler.init(
+        ImmutableList.of(SourceFile.fromCode("externs.js", "var ext;")),
+        ImmutableList.of(
+            SourceFile.fromCode(
+                "in.js",
+                "var a = {}; a.b = 1; /** @define {boolean} */ var DEF = true; DEF = false;")),
+        options);
+    compiler.parse();
+
+    new CollapseProperties(compiler).process(compiler.getExternsRoot(), compiler.getJsRoot());
+    new ProcessDefines(compiler, ImmutableMap.<String, Node>of())
+        .process(compiler.getExternsRoot(), compiler.getJsRoot());
+
+    // The verifier compares a reused namespace with a fresh one, so this throws if either pass
+    // left modified names behind in the cache.
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+    assertThat(namespace.getSlot("a$b")).isNotNull();
+    assertThat(namespace.getSlot("DEF").getRefs()).hasSize(1);
+    assertThat(compiler.getGlobalNamespace(null, compiler.getJsRoot())).isSameAs(namespace);
+  }
+
+  public void testAggressiveInlineAliasesHandsOnUnchangedNamespace() {
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+
+    new AggressiveInlineAliases(compiler).process(compiler.getExternsRoot(), compiler.getJsRoot());
+
+    assertThat(compiler.getGlobalNamespace(null, compiler.getJsRoot())).isSameAs(namespace);
+  }
+
+  public void testAggressiveInlineAliasesHandsOnCurrentNamespace() {
+    compiler = new Compiler();
+    compiler.init(
+        ImmutableList.of(SourceFile.fromCode("externs.js", "var ext;")),
+        ImmutableList.of(
+            SourceFile.fromCode(
+                "in.js", "var a = {}; a.b = 1; var c = a; function f() { return c.b; }")),
+        new CompilerOptions());
+    compiler.parse();
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+
+    new AggressiveInlineAliases(compiler).process(compiler.getExternsRoot(), compiler.getJsRoot());
+
+    assertThat(compiler.getGlobalNamespace(null, compiler.getJsRoot())).isNotSameAs(namespace);
+    compiler.verifyGlobalNamespaces();
+  }
+
+  public void testVerifyDetectsUnreportedChangeWithoutDevMode() {
+    compiler.getGlobalNamespace(null, compiler.getJsRoot()).getNameIndex();
+
+    Node script = compiler.getJsRoot().getFirstChild();
+    script.addChildToBack(NodeUtil.newExpr(NodeUtil.newQName(compiler, "a.c")));
+
+    try {
+      compiler.verifyGlobalNamespaces();
+      fail("Expected the stale namespace to be detected");
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).contains("stale");
+    }
+  }
+
+  public void testVerifierDetectsUnreportedChange() {
+    CompilerOptions options = new CompilerOptions();
+    options.setDevMode(CompilerOptions.DevMode.EVERY_PASS);
+    compiler.initOptions(options);
+    GlobalNamespace namespace = compiler.getGlobalNamespace(null, compiler.getJsRoot());
+    namespace.getNameIndex();
+
+    Node script = compiler.getJsRoot().getFirstChild();
+    script.addChildToBack(NodeUtil.newExpr(NodeUtil.newQName(compiler, "a.c")));
+
+    try {
+      compiler.getGlobalNamespace(null, compiler.getJsRoot());
+      fail("Expected the stale namespace to be detected");
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).contains("stale");
+    }
+  }
+}
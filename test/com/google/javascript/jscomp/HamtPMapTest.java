@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link HamtPMap}. */
+public final class HamtPMapTest extends TestCase {
+
+  public void testEmpty() {
+    HamtPMap<String, Integer> map = HamtPMap.empty();
+    assertThat(map.isEmpty()).isTrue();
+    assertThat(map.get("a")).isNull();
+  }
+
+  public void testPlusDoesNotChangeTheOriginal() {
+    HamtPMap<String, Integer> empty = HamtPMap.empty();
+    HamtPMap<String, Integer> a = empty.plus("a", 1);
+    HamtPMap<String, Integer> b = a.plus("a", 2).plus("b", 3);
+
+    assertThat(empty.get("a")).isNull();
+    assertThat(a.get("a")).isEqualTo(1);
+    assertThat(a.get("b")).isNull();
+    assertThat(b.get("a")).isEqualTo(2);
+    assertThat(b.get("b")).isEqualTo(3);
+  }
+
+  public void testPlusSameValueReturnsSameMap() {
+    Integer one = 1;
+    HamtPMap<String, Integer> map = HamtPMap.<String, Integer>empty().plus("a", one);
+    assertThat(map.plus("a", one)).isSameAs(map);
+  }
+
+  public void testCollidingHashCodes() {
+    // "Aa" and "BB" have the same hash code.
+    HamtPMap<String, Integer> map =
+        HamtPMap.<String, Integer>empty().plus("Aa", 1).plus("BB", 2).plus("Aa", 3);
+    assertThat(map.get("Aa")).isEqualTo(3);
+    assertThat(map.get("BB")).isEqualTo(2);
+
+    HamtPMap<String, Integer> other = HamtPMap.<String, Integer>empty().plus("BB", 2);
+    assertThat(diffKeys(map, other)).containsExactly("Aa");
+  }
+
+  public void testDiffOnlyVisitsChangedKeys() {
+    HamtPMap<String, Integer> base = HamtPMap.empty();
+    for (int i = 0; i < 1000; i++) {
+      base = base.plus("k" + i, i);
+    }
+    HamtPMap<String, Integer> left = base.plus("k1", -1).plus("x", 0);
+    HamtPMap<String, Integer> right = base.plus("k2", -2);
+
+    assertThat(diffKeys(base, base)).isEmpty();
+    assertThat(diffKeys(left, right)).containsExactly("k1", "k2", "x");
+  }
+
+  public void testDiffStops() {
+    HamtPMap<String, Integer> left = HamtPMap.<String, Integer>empty().plus("a", 1).plus("b", 2);
+    HamtPMap<String, Integer> right = HamtPMap.empty();
+    final int[] visits = {0};
+    boolean completed =
+        left.diff(
+            right,
+            new HamtPMap.DiffVisitor<String, Integer>() {
+              @Override
+              public boolean visit(String key, Integer thisValue, Integer thatValue) {
+                visits[0]++;
+                return false;
+              }
+            });
+    assertThat(completed).isFalse();
+    assertThat(visits[0]).isEqualTo(1);
+  }
+
+  public void testReconcile() {
+    HamtPMap<String, Integer> base = HamtPMap.empty();
+    for (int i = 0; i < 100; i++) {
+      base = base.plus("k" + i, i);
+    }
+    HamtPMap<String, Integer> left = base.plus("k1", 10).plus("onlyLeft", 1);
+    HamtPMap<String, Integer> right = base.plus("k1", 20).plus("onlyRight", 2);
+
+    HamtPMap<String, Integer> merged = left.reconcile(right, new SumReconciler());
+    assertThat(merged.get("k1")).isEqualTo(30);
+    assertThat(merged.get("k5")).isEqualTo(5);
+    assertThat(merged.get("onlyLeft")).isEqualTo(1);
+    assertThat(merged.get("onlyRight")).isEqualTo(2);
+    assertThat(left.reconcile(left, new SumReconciler())).isSameAs(left);
+  }
+
+  public void testReconcileCanDropKeys() {
+    HamtPMap<String, Integer> left = HamtPMap.<String, Integer>empty().plus("a", 1).plus("b", 2);
+    HamtPMap<String, Integer> right = HamtPMap.<String, Integer>empty().plus("a", 3);
+    HamtPMap<String, Integer> merged =
+        left.reconcile(
+            right,
+            new HamtPMap.Reconciler<String, Integer>() {
+              @Override
+              public Integer merge(String key, Integer thisValue, Integer thatValue) {
+                return null;
+              }
+            });
+    assertThat(merged.isEmpty()).isTrue();
+  }
+
+  public void testRandomOperationsMatchHashMap() {
+    Random random = new Random(42);
+    for (int round = 0; round < 20; round++) {
+      Map<Integer, Integer> expectedLeft = new HashMap<>();
+      Map<Integer, Integer> expectedRight = new HashMap<>();
+      HamtPMap<Integer, Integer> left = HamtPMap.empty();
+      HamtPMap<Integer, Integer> right = HamtPMap.empty();
+      for (int i = 0; i < 500; i++) {
+        // Large keys spread over the whole trie, small ones collide in the first levels.
+        int key = random.nextBoolean() ? random.nextInt() : random.nextInt(64) << 25;
+        int value = random.nextInt(4);
+        if (random.nextBoolean()) {
+          left = left.plus(key, value);
+          expectedLeft.put(key, value);
+        }
+        if (random.nextBoolean()) {
+          right = right.plus(key, value);
+          expectedRight.put(key, value);
+        }
+      }
+      for (Map.Entry<Integer, Integer> e : expectedLeft.entrySet()) {
+        assertThat(left.get(e.getKey())).isEqualTo(e.getValue());
+      }
+
+      HamtPMap<Integer, Integer> merged =
+          left.reconcile(
+              right,
+              new HamtPMap.Reconciler<Integer, Integer>() {
+                @Override
+                public Integer merge(Integer key, Integer thisValue, Integer thatValue) {
+                  return thisValue;
+                }
+              });
+      Set<Integer> differing = new HashSet<>();
+      for (Map.Entry<Integer, Integer> e : expectedLeft.entrySet()) {
+        assertThat(merged.get(e.getKey())).isEqualTo(e.getValue());
+        if (!e.getValue().equals(expectedRight.get(e.getKey()))) {
+          differing.add(e.getKey());
+        }
+      }
+      for (Integer key : expectedRight.keySet()) {
+        if (!expectedLeft.containsKey(key)) {
+          assertThat(merged.get(key)).isNull();
+          differing.add(key);
+        }
+      }
+      assertThat(diffKeys(left, right)).isEqualTo(differing);
+    }
+  }
+
+  private static <K> Set<K> diffKeys(HamtPMap<K, Integer> left, HamtPMap<K, Integer> right) {
+    final Set<K> keys = new HashSet<>();
+    left.diff(
+        right,
+        new HamtPMap.DiffVisitor<K, Integer>() {
+          @Override
+          public boolean visit(K key, Integer thisValue, Integer thatValue) {
+            keys.add(key);
+            return true;
+          }
+        });
+    return keys;
+  }
+
+  private static final class SumReconciler implements HamtPMap.Reconciler<String, Integer> {
+    @Override
+    public Integer merge(String key, Integer thisValue, Integer thatValue) {
+      return (thisValue == null ? 0 : thisValue) + (thatValue == null ? 0 : thatValue);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+/** Tests for {@link NewTypeInference} analyzing the functions of a program in parallel. */
+public final class NewTypeInferenceParallelTest extends NewTypeInferenceTestBase {
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    compilerOptions.setNumParallelThreads(4);
+  }
+
+  public void testSummariesOfInnerFunctionsAreUsed() {
+    typeCheck(LINE_JOINER.join(
+        "function f() {",
+        "  function g() { return 1; }",
+        "  function h() { return 'str'; }",
+        "  return g() - h();",
+        "}"),
+        NewTypeInference.INVALID_OPERAND_TYPE);
+
+    typeCheck(LINE_JOINER.join(
+        "function f() {",
+        "  function g() {",
+        "    function h() { return 1; }",
+        "    return h();",
+        "  }",
+        "  return g() - 1;",
+        "}"));
+  }
+
+  public void testWarningsFromSiblingFunctions() {
+    typeCheck(LINE_JOINER.join(
+        "function f() { var /** string */ s = 1; }",
+        "function g() { var /** number */ n = 'str'; }",
+        "function h() { return 1 - 'str'; }"),
+        NewTypeInference.MISTYPED_ASSIGN_RHS,
+        NewTypeInference.MISTYPED_ASSIGN_RHS,
+        NewTypeInference.INVALID_OPERAND_TYPE);
+  }
+
+  public void testDeferredChecks() {
+    typeCheck(LINE_JOINER.join(
+        "function f(x) { return x - 1; }",
+        "function g() { f('str'); }"),
+        NewTypeInference.INVALID_ARGUMENT_TYPE);
+  }
+}
@@ -19,9 +19,11 @@ package com.google.javascript.jscomp;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.javascript.jscomp.CompilerOptions.TracerMode;
 import com.google.javascript.jscomp.PerformanceTracker.Stats;
+import com.google.javascript.rhino.IR;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.Token;
 import java.io.ByteArrayOutputStream;
@@ -102,6 +104,116 @@ public final class PerformanceTrackerTest extends TestCase {
     assertEquals(0, st.changes);
   }
 
+  public void testPartRuntimes() {
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, emptyJsRoot, TracerMode.TIMING_ONLY, null);
+    for (int i = 0; i < 2; i++) {
+      tracker.recordPassStart("checkConformance", true);
+      tracker.recordPartRuntime("ruleA", 3);
+      tracker.recordPartRuntime("ruleB", 1);
+      tracker.recordPassStop("checkConformance", 5);
+    }
+
+    assertThat(tracker.getPartRuntimes("checkConformance"))
+        .containsExactly("ruleA", 6L, "ruleB", 2L);
+    assertThat(tracker.getPartRuntimes("otherPass")).isEmpty();
+    assertEquals(10, tracker.getStats().get("checkConformance").runtime);
+  }
+
+  public void testIncrementalSizeOnlyReestimatesChangedScripts() {
+    Compiler compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(
+            SourceFile.fromCode("a.js", "var a = 1;"),
+            SourceFile.fromCode("b.js", "var b = 2;")),
+        new CompilerOptions());
+    compiler.parse();
+    Node jsRoot = compiler.getJsRoot();
+    PerformanceTracker tracker = new PerformanceTracker(
+        compiler, emptyExternRoot, jsRoot, TracerMode.INCREMENTAL_SIZE, null);
+    compiler.addChangeHandler(tracker.getCodeChangeHandler());
+
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+    int initialSize = PerformanceTrackerCodeSizeEstimator.estimate(jsRoot, false).getCodeSize();
+
+    // Remove the initializer of b.
+    Node bName = jsRoot.getLastChild().getFirstFirstChild();
+    bName.removeFirstChild();
+    tracker.recordPassStart("removeInit", true);
+    compiler.reportChangeToEnclosingScope(bName);
+    tracker.recordPassStop("removeInit", 0);
+
+    int finalSize = PerformanceTrackerCodeSizeEstimator.estimate(jsRoot, false).getCodeSize();
+    assertEquals(finalSize, tracker.getSize());
+    assertEquals(initialSize - finalSize, tracker.getStats().get("removeInit").diff);
+    assertThat(finalSize).isLessThan(initialSize);
+
+    // A change that the compiler didn't record is not picked up, since a's estimate is reused.
+    Node aName = jsRoot.getFirstChild().getFirstFirstChild();
+    aName.removeFirstChild();
+    tracker.recordPassStart("unreported", true);
+    tracker.getCodeChangeHandler().reportChange();
+    tracker.recordPassStop("unreported", 0);
+    assertEquals(finalSize, tracker.getSize());
+  }
+
+  public void testIncrementalSizeReestimatesScriptOfChangedFunction() {
+    Compiler compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(
+            SourceFile.fromCode("a.js", "var a = 1;"),
+            SourceFile.fromCode("f.js", "function f() { return 1 + 2; }")),
+        new CompilerOptions());
+    compiler.parse();
+    Node jsRoot = compiler.getJsRoot();
+    PerformanceTracker tracker = new PerformanceTracker(
+        compiler, emptyExternRoot, jsRoot, TracerMode.INCREMENTAL_SIZE, null);
+    compiler.addChangeHandler(tracker.getCodeChangeHandler());
+
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+
+    // Fold the addition in the body of f, and report it against the function.
+    Node add = jsRoot.getLastChild().getFirstChild().getLastChild().getFirstFirstChild();
+    Node returnNode = add.getParent();
+    returnNode.replaceChild(add, IR.number(3));
+    tracker.recordPassStart("fold", true);
+    compiler.reportChangeToEnclosingScope(returnNode);
+    tracker.recordPassStop("fold", 0);
+
+    assertEquals(
+        PerformanceTrackerCodeSizeEstimator.estimate(jsRoot, false).getCodeSize(),
+        tracker.getSize());
+  }
+
+  public void testIncrementalSizeCountsSemicolonsBetweenScripts() {
+    Compiler compiler = new Compiler();
+    compiler.init(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(
+            SourceFile.fromCode("a.js", "var a = 1;"),
+            SourceFile.fromCode("empty.js", ""),
+            SourceFile.fromCode("f.js", "function f() {}"),
+            SourceFile.fromCode("if.js", "if (a) { f(); }"),
+            SourceFile.fromCode("b.js", "var b = 2;"),
+            SourceFile.fromCode("c.js", "var c = 3;")),
+        new CompilerOptions());
+    compiler.parse();
+    Node jsRoot = compiler.getJsRoot();
+    PerformanceTracker tracker =
+        new PerformanceTracker(emptyExternRoot, jsRoot, TracerMode.INCREMENTAL_SIZE, null);
+
+    tracker.recordPassStart(Compiler.PARSING_PASS_NAME, true);
+    tracker.recordPassStop(Compiler.PARSING_PASS_NAME, 0);
+
+    assertEquals(
+        PerformanceTrackerCodeSizeEstimator.estimate(jsRoot, false).getCodeSize(),
+        tracker.getSize());
+  }
+
   public void testOutputFormat() {
     ByteArrayOutputStream output = new ByteArrayOutputStream();
     PrintStream outstream = new PrintStream(output);
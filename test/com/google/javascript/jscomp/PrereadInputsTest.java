@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import junit.framework.TestCase;
+
+/** Tests for {@link PrereadInputs}. */
+public final class PrereadInputsTest extends TestCase {
+
+  public void testReadsCodeIntoMemory() throws Exception {
+    SourceFile first = createFile("var a;");
+    SourceFile second = createFile("var b;");
+
+    new PrereadInputs(2)
+        .preread(ImmutableList.of(new CompilerInput(first), new CompilerInput(second)));
+
+    assertThat(first.hasSourceInMemory()).isTrue();
+    assertThat(second.hasSourceInMemory()).isTrue();
+  }
+
+  public void testSkipsInputsWithDroppedCode() throws Exception {
+    CountingGenerator generator = new CountingGenerator();
+    SourceFile file = SourceFile.fromGenerator("gen.js", generator);
+    file.getCode();
+    file.setSourceRetention(SourceFile.SourceRetention.DROP);
+
+    new PrereadInputs(2).preread(ImmutableList.of(new CompilerInput(file)));
+
+    assertThat(file.hasSourceInMemory()).isFalse();
+    assertThat(generator.count).isEqualTo(1);
+  }
+
+  public void testSoftlyRetainedCodeIsNotPinned() throws Exception {
+    SourceFile file = createFile("var a;");
+    file.getCode();
+    file.setSourceRetention(SourceFile.SourceRetention.SOFT);
+
+    new PrereadInputs(2).preread(ImmutableList.of(new CompilerInput(file)));
+
+    assertThat(file.hasSourceInMemory()).isFalse();
+    assertThat(file.getCode()).isEqualTo("var a;");
+  }
+
+  private static SourceFile createFile(String code) throws Exception {
+    Path path = Files.createTempFile("preread", ".js");
+    path.toFile().deleteOnExit();
+    Files.write(path, code.getBytes(StandardCharsets.UTF_8));
+    return SourceFile.fromPath(path, StandardCharsets.UTF_8);
+  }
+
+  private static class CountingGenerator implements SourceFile.Generator {
+    int count = 0;
+
+    @Override
+    public String getCode() {
+      count++;
+      return "var a;";
+    }
+  }
+}
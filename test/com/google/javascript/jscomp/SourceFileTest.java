@@ -18,6 +18,7 @@ package com.google.javascript.jscomp;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.io.CharStreams;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -100,6 +101,83 @@ public final class SourceFileTest extends TestCase {
     assertEquals(newExpectedContent, zipSourceFile.getCode());
   }
 
+  public void testLargeFileIsReadWhole() throws IOException {
+    StringBuilder content = new StringBuilder();
+    while (content.length() < (2 << 20)) {
+      content.append("var a = '\u00e9';\n");
+    }
+    Path jsFile = Files.createTempFile("test", ".js");
+    Files.write(jsFile, content.toString().getBytes(StandardCharsets.UTF_8));
+    SourceFile sourceFile = SourceFile.fromPath(jsFile, StandardCharsets.UTF_8);
+
+    assertEquals(content.toString(), sourceFile.getCode());
+  }
+
+  public void testDropSourceRetention() throws IOException {
+    String content = "var a;\nvar b;\n";
+    Path jsFile = Files.createTempFile("test", ".js");
+    Files.write(jsFile, content.getBytes(StandardCharsets.UTF_8));
+    SourceFile sourceFile = SourceFile.fromPath(jsFile, StandardCharsets.UTF_8);
+    assertEquals(content, sourceFile.getCode());
+
+    sourceFile.setSourceRetention(SourceFile.SourceRetention.DROP);
+    assertFalse(sourceFile.hasSourceInMemory());
+    assertThat(sourceFile.getLineOffset(2)).isEqualTo(7);
+
+    // Excerpts reload the code transparently, and only hold on to it softly.
+    assertEquals("var b;", sourceFile.getLine(2));
+    assertFalse(sourceFile.hasSourceInMemory());
+
+    // Further excerpts don't read the file again.
+    Files.write(jsFile, "var c;\nvar d;\n".getBytes(StandardCharsets.UTF_8));
+    assertEquals("var a;", sourceFile.getLine(1));
+    assertEquals(content, sourceFile.getCode());
+    assertFalse(sourceFile.hasSourceInMemory());
+    assertEquals(content, CharStreams.toString(sourceFile.getCodeReader()));
+    assertFalse(sourceFile.hasSourceInMemory());
+  }
+
+  public void testDropSourceRetentionOfGeneratedCode() throws IOException {
+    final int[] generated = {0};
+    SourceFile sourceFile =
+        SourceFile.fromGenerator(
+            "test.js",
+            new SourceFile.Generator() {
+              @Override
+              public String getCode() {
+                generated[0]++;
+                return "var a;";
+              }
+            });
+    assertEquals("var a;", sourceFile.getCode());
+
+    sourceFile.setSourceRetention(SourceFile.SourceRetention.DROP);
+    assertFalse(sourceFile.hasSourceInMemory());
+    assertEquals("var a;", sourceFile.getCode());
+    assertFalse(sourceFile.hasSourceInMemory());
+    assertThat(generated[0]).isEqualTo(2);
+  }
+
+  public void testSoftSourceRetention() throws IOException {
+    String content = "var a;\nvar b;\n";
+    Path jsFile = Files.createTempFile("test", ".js");
+    Files.write(jsFile, content.getBytes(StandardCharsets.UTF_8));
+    SourceFile sourceFile = SourceFile.fromPath(jsFile, StandardCharsets.UTF_8);
+    assertEquals(content, sourceFile.getCode());
+
+    sourceFile.setSourceRetention(SourceFile.SourceRetention.SOFT);
+    assertFalse(sourceFile.hasSourceInMemory());
+    assertEquals(content, sourceFile.getCode());
+    assertEquals("var a;", sourceFile.getLine(1));
+  }
+
+  public void testPreloadedSourceIsRetained() throws IOException {
+    SourceFile sourceFile = SourceFile.fromCode("test.js", "var a;");
+    sourceFile.setSourceRetention(SourceFile.SourceRetention.DROP);
+    assertTrue(sourceFile.hasSourceInMemory());
+    assertEquals("var a;", sourceFile.getCode());
+  }
+
   public void testSourceFileResolvesZipEntries() throws IOException {
     // Setup environment.
     String expectedContent = "// <program goes here>";
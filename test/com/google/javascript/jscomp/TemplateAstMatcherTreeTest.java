@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.rhino.Node;
+import junit.framework.TestCase;
+
+/** Tests for {@link TemplateAstMatcherTree}. */
+public final class TemplateAstMatcherTreeTest extends TestCase {
+
+  private Compiler compiler;
+  private Node code;
+
+  public void testFindsTheFirstMatchingTemplate() {
+    TemplateAstMatcherTree tree = compile(
+        "function fooCall() { obj.foo(); }",
+        "/** @param {string} s */ function barCall(s) { obj.bar(s); }",
+        "/** @param {?} x */ function anyBar(x) { obj.bar(x); }",
+        "function literal() { 3; }",
+        "function code() { obj.foo(); obj.bar('a'); obj.bar(1); obj.baz(); 3; 4; }");
+
+    assertEquals(0, tree.findFirstMatch(codeExpression(0)));
+    assertEquals(1, tree.findFirstMatch(codeExpression(1)));
+    assertEquals(2, tree.findFirstMatch(codeExpression(2)));
+    assertEquals(-1, tree.findFirstMatch(codeExpression(3)));
+    assertEquals(3, tree.findFirstMatch(codeExpression(4)));
+    assertEquals(-1, tree.findFirstMatch(codeExpression(5)));
+  }
+
+  public void testFindsAllMatchingTemplatesInOrder() {
+    TemplateAstMatcherTree tree = compile(
+        "/** @param {?} x */ function anyBar(x) { obj.bar(x); }",
+        "/** @param {number} n */ function numberBar(n) { obj.bar(n); }",
+        "/** @param {?} x */ function anything(x) { x; }",
+        "function code() { obj.bar(1); obj.bar('a'); }");
+
+    ImmutableList<TemplateAstMatcher> matchers = tree.getMatchers();
+    assertThat(tree.findMatches(codeExpression(0)))
+        .containsExactly(matchers.get(0), matchers.get(1), matchers.get(2))
+        .inOrder();
+    assertThat(tree.findMatches(codeExpression(1)))
+        .containsExactly(matchers.get(0), matchers.get(2))
+        .inOrder();
+  }
+
+  public void testTemplateLocalsMatchAnyName() {
+    TemplateAstMatcherTree tree = compile(
+        "function local() { var a = obj.foo(); a.bar(); }",
+        "function code() { var b = obj.foo(); b.bar(); var c = obj.foo(); }");
+
+    Node body = code.getLastChild();
+    assertEquals(0, tree.findFirstMatch(body.getFirstChild()));
+    assertEquals(-1, tree.findFirstMatch(body.getLastChild()));
+  }
+
+  /**
+   * Compiles the given functions with type checking. All but the last one are templates, the
+   * last one is the code to match against.
+   */
+  private TemplateAstMatcherTree compile(String... functions) {
+    compiler = new Compiler();
+    compiler.disableThreads();
+    CompilerOptions options = new CompilerOptions();
+    options.setCheckTypes(true);
+    StringBuilder source = new StringBuilder("/** @const */ var obj = {};\n");
+    for (String function : functions) {
+      source.append(function).append("\n");
+    }
+    compiler.compile(
+        ImmutableList.<SourceFile>of(),
+        ImmutableList.of(SourceFile.fromCode("in.js", source.toString())),
+        options);
+    Node script = compiler.getRoot().getLastChild().getFirstChild();
+
+    ImmutableList.Builder<TemplateAstMatcher> matchers = ImmutableList.builder();
+    for (Node fn = script.getSecondChild(); fn != script.getLastChild(); fn = fn.getNext()) {
+      matchers.add(new TemplateAstMatcher(
+          compiler.getTypeIRegistry(), fn, TypeMatchingStrategy.LOOSE));
+    }
+    code = script.getLastChild();
+    return new TemplateAstMatcherTree(matchers.build());
+  }
+
+  /** Returns the expression of the statement at the given index of the code function. */
+  private Node codeExpression(int index) {
+    return code.getLastChild().getChildAtIndex(index).getFirstChild();
+  }
+}
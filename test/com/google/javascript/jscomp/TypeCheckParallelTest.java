@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.jstype.JSTypeRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests for {@link TypeCheck} checking the scripts of a program in parallel. */
+public final class TypeCheckParallelTest extends TestCase {
+
+  private static final Joiner LINE_JOINER = Joiner.on('\n');
+
+  private static final ImmutableList<SourceFile> INPUTS = ImmutableList.of(
+      SourceFile.fromCode("a.js", LINE_JOINER.join(
+          "/** @constructor */ function Foo() {}",
+          "/** @type {number} */ Foo.prototype.n = 'str';",
+          "/** @param {string} s */ function f(s) {}",
+          "f(1);")),
+      SourceFile.fromCode("b.js", LINE_JOINER.join(
+          "/** @type {string} */ var s = 1;",
+          "new Foo().missing;")),
+      SourceFile.fromCode("c.js", LINE_JOINER.join(
+          "/** @type {!Foo} */ var foo = {};",
+          "f(null);")),
+      SourceFile.fromCode("d.java.js", "/** @type {string} */ var t = null;"));
+
+  public void testWarningsAreReportedInSequentialOrder() {
+    Compiler sequential = compile(1);
+    Compiler parallel = compile(4);
+
+    assertThat(sequential.getWarnings()).isNotEmpty();
+    assertThat(describe(parallel.getWarnings())).isEqualTo(describe(sequential.getWarnings()));
+    assertThat(describe(parallel.getErrors())).isEqualTo(describe(sequential.getErrors()));
+  }
+
+  public void testMismatchesAreMergedInSequentialOrder() {
+    Compiler sequential = compile(1);
+    Compiler parallel = compile(4);
+
+    List<String> mismatches = describe(sequential.getTypeValidator().getMismatches());
+    assertThat(mismatches).isNotEmpty();
+    assertThat(describe(parallel.getTypeValidator().getMismatches())).isEqualTo(mismatches);
+  }
+
+  public void testTypedPercentIsTheSame() {
+    assertThat(compile(4).getErrorManager().getTypedPercent())
+        .isEqualTo(compile(1).getErrorManager().getTypedPercent());
+  }
+
+  public void testNodeTypesAreTheSame() {
+    List<String> types = describeTypes(compile(1));
+    assertThat(types).isNotEmpty();
+    assertThat(describeTypes(compile(4))).isEqualTo(types);
+  }
+
+  public void testSuperclassMismatchIsCheckedLikeSequentially() {
+    ImmutableList<SourceFile> inputs = ImmutableList.of(
+        SourceFile.fromCode("a.js", LINE_JOINER.join(
+            "var goog = {};",
+            "goog.inherits = function(childCtor, parentCtor) {};",
+            "/** @constructor */ function Base() {}",
+            "Base.prototype.m = function() { return 1; };")),
+        SourceFile.fromCode("b.js", LINE_JOINER.join(
+            "/** @constructor */ function Sub() {}",
+            "goog.inherits(Sub, Base);")),
+        SourceFile.fromCode("c.js", LINE_JOINER.join(
+            "/** @param {!Base} b */ function g(b) {}",
+            "g(new Sub());",
+            "var n = new Sub().m();")));
+    Compiler sequential = compile(1, inputs);
+    Compiler parallel = compile(4, inputs);
+
+    assertThat(describe(parallel.getWarnings())).isEqualTo(describe(sequential.getWarnings()));
+    assertThat(parallel.getWarnings()[0].getType())
+        .isEqualTo(TypeValidator.MISSING_EXTENDS_TAG_WARNING);
+    assertThat(describe(parallel.getTypeValidator().getMismatches()))
+        .isEqualTo(describe(sequential.getTypeValidator().getMismatches()));
+    assertThat(describeTypes(parallel)).isEqualTo(describeTypes(sequential));
+    JSTypeRegistry sequentialRegistry = sequential.getTypeRegistry();
+    JSTypeRegistry parallelRegistry = parallel.getTypeRegistry();
+    assertThat(parallelRegistry.getType("Sub").isSubtype(parallelRegistry.getType("Base")))
+        .isEqualTo(
+            sequentialRegistry.getType("Sub").isSubtype(sequentialRegistry.getType("Base")));
+  }
+
+  public void testSubtypingModeIsThatOfTheLastScript() {
+    assertThat(compile(4).getTypeValidator().getSubtypingMode())
+        .isEqualTo(compile(1).getTypeValidator().getSubtypingMode());
+  }
+
+  private static Compiler compile(int numParallelThreads) {
+    return compile(numParallelThreads, INPUTS);
+  }
+
+  private static Compiler compile(int numParallelThreads, List<SourceFile> inputs) {
+    CompilerOptions options = new CompilerOptions();
+    options.setCheckTypes(true);
+    options.setNumParallelThreads(numParallelThreads);
+    Compiler compiler = new Compiler();
+    compiler.compile(
+        ImmutableList.of(SourceFile.fromCode("externs.js", "")), inputs, options);
+    return compiler;
+  }
+
+  /** Describes the type of every node in the program, in traversal order. */
+  private static List<String> describeTypes(Compiler compiler) {
+    final List<String> types = new ArrayList<>();
+    NodeUtil.visitPreOrder(compiler.getRoot(), new NodeUtil.Visitor() {
+      @Override
+      public void visit(Node n) {
+        types.add(n.getToken() + " " + n.getJSType());
+      }
+    });
+    return types;
+  }
+
+  private static List<String> describe(JSError[] errors) {
+    return describe(ImmutableList.copyOf(errors));
+  }
+
+  private static List<String> describe(Iterable<?> objects) {
+    List<String> descriptions = new ArrayList<>();
+    for (Object object : objects) {
+      descriptions.add(object.toString());
+    }
+    return descriptions;
+  }
+}
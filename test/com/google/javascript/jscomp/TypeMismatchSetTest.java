@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.javascript.jscomp.TypeValidator.TYPE_MISMATCH_WARNING;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.javascript.rhino.IR;
+import com.google.javascript.rhino.jstype.JSType;
+import com.google.javascript.rhino.jstype.JSTypeNative;
+import com.google.javascript.rhino.jstype.JSTypeRegistry;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link TypeMismatchSet}. */
+public final class TypeMismatchSetTest extends TestCase {
+
+  private JSType number;
+  private JSType string;
+  private JSType bool;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    JSTypeRegistry registry = new JSTypeRegistry(null);
+    number = registry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    string = registry.getNativeType(JSTypeNative.STRING_TYPE);
+    bool = registry.getNativeType(JSTypeNative.BOOLEAN_TYPE);
+  }
+
+  public void testPairsAreKeptOnceInFirstSeenOrder() {
+    TypeMismatchSet set = new TypeMismatchSet();
+    JSError first = error("first");
+    assertTrue(set.add(new TypeMismatch(number, string, first)));
+    assertTrue(set.add(new TypeMismatch(bool, string, error("second"))));
+    assertFalse(set.add(new TypeMismatch(number, string, error("third"))));
+    // The order of the types doesn't matter.
+    assertFalse(set.add(new TypeMismatch(string, number, error("fourth"))));
+
+    assertThat(set.size()).isEqualTo(2);
+    assertThat(set.getTotalCount()).isEqualTo(4);
+    assertThat(set.getCount(new TypeMismatch(number, string, null))).isEqualTo(3);
+    assertThat(set.getCount(new TypeMismatch(number, bool, null))).isEqualTo(0);
+
+    ImmutableList<TypeMismatch> unique = ImmutableList.copyOf(set);
+    assertThat(unique)
+        .containsExactly(new TypeMismatch(number, string, null), new TypeMismatch(bool, string, null))
+        .inOrder();
+    assertThat(unique.get(0).src).isSameAs(first);
+  }
+
+  public void testSampleErrorsAreBounded() {
+    TypeMismatchSet set = new TypeMismatchSet();
+    TypeMismatch key = new TypeMismatch(number, string, null);
+    assertThat(set.getSampleErrors(key)).isEmpty();
+
+    JSError first = error("0");
+    set.add(new TypeMismatch(number, string, first));
+    assertThat(set.getSampleErrors(key)).containsExactly(first);
+
+    for (int i = 1; i < 3 * TypeMismatchSet.MAX_SAMPLES_PER_PAIR; i++) {
+      set.add(new TypeMismatch(number, string, error(String.valueOf(i))));
+    }
+    assertThat(set.getSampleErrors(key)).hasSize(TypeMismatchSet.MAX_SAMPLES_PER_PAIR);
+    assertThat(set.getSampleErrors(key).get(0)).isSameAs(first);
+    assertThat(set.getSampleErrors(key).get(1).description).isEqualTo("1");
+    assertThat(set.getCount(key)).isEqualTo(3 * TypeMismatchSet.MAX_SAMPLES_PER_PAIR);
+  }
+
+  public void testAddAll() {
+    TypeMismatchSet set = new TypeMismatchSet();
+    set.add(new TypeMismatch(number, string, error("a")));
+
+    TypeMismatchSet other = new TypeMismatchSet();
+    other.add(new TypeMismatch(bool, string, error("b")));
+    for (int i = 0; i < 2 * TypeMismatchSet.MAX_SAMPLES_PER_PAIR; i++) {
+      other.add(new TypeMismatch(string, number, error("c")));
+    }
+
+    set.addAll(other);
+    assertThat(set.size()).isEqualTo(2);
+    assertThat(set.getTotalCount()).isEqualTo(2 + 2 * TypeMismatchSet.MAX_SAMPLES_PER_PAIR);
+    TypeMismatch key = new TypeMismatch(number, string, null);
+    assertThat(set.getCount(key)).isEqualTo(1 + 2 * TypeMismatchSet.MAX_SAMPLES_PER_PAIR);
+    assertThat(set.getSampleErrors(key)).hasSize(TypeMismatchSet.MAX_SAMPLES_PER_PAIR);
+    assertThat(set.getSampleErrors(key).get(0).description).isEqualTo("a");
+    assertThat(ImmutableList.copyOf(set).get(1).src.description).isEqualTo("b");
+  }
+
+  public void testAddAllExcept() {
+    TypeMismatchSet other = new TypeMismatchSet();
+    other.add(new TypeMismatch(number, string, error("changed.js", "a")));
+    other.add(new TypeMismatch(bool, string, error("changed.js", "b")));
+    other.add(new TypeMismatch(bool, string, error("kept.js", "c")));
+    for (int i = 0; i < 2 * TypeMismatchSet.MAX_SAMPLES_PER_PAIR; i++) {
+      other.add(new TypeMismatch(bool, number, error("changed.js", "d")));
+    }
+
+    TypeMismatchSet set = new TypeMismatchSet();
+    set.addAllExcept(other, ImmutableSet.of("changed.js"));
+    // The first pair only occurs in changed.js. The last pair occurs more often than its sample
+    // errors tell, so it may occur elsewhere too.
+    assertThat(set)
+        .containsExactly(new TypeMismatch(bool, string, null), new TypeMismatch(bool, number, null))
+        .inOrder();
+    assertThat(ImmutableList.copyOf(set).get(0).src.description).isEqualTo("c");
+    TypeMismatch key = new TypeMismatch(bool, string, null);
+    assertThat(set.getCount(key)).isEqualTo(1);
+    assertThat(set.getCount(new TypeMismatch(bool, number, null)))
+        .isEqualTo(TypeMismatchSet.MAX_SAMPLES_PER_PAIR);
+    assertThat(set.getTotalCount()).isEqualTo(1 + TypeMismatchSet.MAX_SAMPLES_PER_PAIR);
+  }
+
+  private static JSError error(String sourceName, String description) {
+    return JSError.make(sourceName, 1, 0, TYPE_MISMATCH_WARNING, description);
+  }
+
+  private static JSError error(String description) {
+    return JSError.make(IR.name("x"), TYPE_MISMATCH_WARNING, description);
+  }
+}
@@ -61,6 +61,15 @@ public final class TypeValidatorTest extends CompilerTestCase {
     assertMismatches(ImmutableList.of(fromNatives(STRING_TYPE, NUMBER_TYPE)));
   }
 
+  public void testRepeatedMismatchIsRecordedOnce() throws Exception {
+    ignoreWarnings(TYPE_MISMATCH_WARNING);
+    testSame("/** @param {number} x */ function f(x) {} f('a'); f('b');");
+    assertMismatches(ImmutableList.of(fromNatives(STRING_TYPE, NUMBER_TYPE)));
+    TypeMismatchSet mismatches = getLastCompiler().getTypeMismatches();
+    assertEquals(2, mismatches.getTotalCount());
+    assertEquals(2, mismatches.getSampleErrors(fromNatives(STRING_TYPE, NUMBER_TYPE)).size());
+  }
+
   public void testFunctionMismatch() throws Exception {
     testWarning(
         "/** \n"
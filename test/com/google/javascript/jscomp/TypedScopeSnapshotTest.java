@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link TypedScopeSnapshot} and {@link Compiler#reinferChangedScripts}. */
+public final class TypedScopeSnapshotTest extends TestCase {
+
+  private static final ImmutableList<SourceFile> EXTERNS =
+      ImmutableList.of(SourceFile.fromCode("externs.js", "/** @const */ var goog = {};"));
+
+  private static final SourceFile A =
+      SourceFile.fromCode("a.js", "goog.provide('a');\n/** @constructor */ a.A = function() {};");
+  private static final SourceFile B =
+      SourceFile.fromCode("b.js", "goog.provide('b');\ngoog.require('a');\nb.x = new a.A();");
+  private static final SourceFile C =
+      SourceFile.fromCode("c.js", "goog.provide('c');\n/** @type {number} */ c.n = 1;");
+
+  public void testNothingChanged() throws Exception {
+    Compiler compiler = restore(checkAndSave(ImmutableList.of(A, B, C)));
+    assertThat(compiler.reinferChangedScripts(ImmutableList.of(A, B, C))).isEmpty();
+  }
+
+  public void testOnlyChangedLeafIsReinferred() throws Exception {
+    Compiler compiler = restore(checkAndSave(ImmutableList.of(A, B, C)));
+    SourceFile newC =
+        SourceFile.fromCode("c.js", "goog.provide('c');\n/** @type {number} */ c.n = 'one';");
+
+    assertThat(compiler.reinferChangedScripts(ImmutableList.of(A, B, newC)))
+        .containsExactly("c.js");
+    assertThat(compiler.getWarnings()).hasLength(1);
+    assertThat(compiler.getWarnings()[0].getType()).isEqualTo(TypeValidator.TYPE_MISMATCH_WARNING);
+
+    // The new version is the baseline from now on.
+    assertThat(compiler.reinferChangedScripts(ImmutableList.of(A, B, newC))).isEmpty();
+  }
+
+  public void testDependentsAreReinferred() throws Exception {
+    Compiler compiler = restore(checkAndSave(ImmutableList.of(A, B, C)));
+    SourceFile newA =
+        SourceFile.fromCode("a.js", "goog.provide('a');\n/** @constructor */ a.A = function() {};\n");
+
+    assertThat(compiler.reinferChangedScripts(ImmutableList.of(newA, B, C)))
+        .containsExactly("a.js", "b.js")
+        .inOrder();
+    assertThat(compiler.getTopScope().getVar("a.A")).isNotNull();
+  }
+
+  public void testScriptsThatUseTypesOnlyInJsDocAreReinferred() throws Exception {
+    SourceFile d =
+        SourceFile.fromCode("d.js", "goog.provide('d');\n/** @param {a.A} x */ d.f = function(x) {};");
+    List<SourceFile> inputs = ImmutableList.of(A, C, d);
+    Compiler compiler = restore(checkAndSave(inputs), inputs);
+    SourceFile newA = SourceFile.fromCode("a.js", "goog.provide('a');\n/** @interface */ a.A;");
+
+    assertThat(compiler.reinferChangedScripts(ImmutableList.of(newA, C, d)))
+        .containsExactly("a.js", "d.js")
+        .inOrder();
+  }
+
+  public void testScriptsThatUseProvidedNamespaceImplicitlyAreReinferred() throws Exception {
+    SourceFile e = SourceFile.fromCode("e.js", "goog.provide('e');\n/** @const */ e.ns = a;");
+    List<SourceFile> inputs = ImmutableList.of(A, C, e);
+    Compiler compiler = restore(checkAndSave(inputs), inputs);
+    SourceFile newA =
+        SourceFile.fromCode("a.js", "goog.provide('a');\n/** @constructor */ a.A = function() {};\n");
+
+    assertThat(compiler.reinferChangedScripts(ImmutableList.of(newA, C, e)))
+        .containsExactly("a.js", "e.js")
+        .inOrder();
+  }
+
+  public void testMismatchesOfReinferredScriptsAreDropped() throws Exception {
+    SourceFile badC =
+        SourceFile.fromCode("c.js", "goog.provide('c');\n/** @type {number} */ c.n = 'one';");
+    List<SourceFile> inputs = ImmutableList.of(A, B, badC);
+    Compiler checked = check(inputs);
+    assertThat(checked.getTypeValidator().getMismatches()).isNotEmpty();
+    Compiler compiler = restore(save(checked), inputs);
+
+    assertThat(compiler.reinferChangedScripts(ImmutableList.of(A, B, C)))
+        .containsExactly("c.js");
+    assertThat(compiler.getTypeValidator().getMismatches()).isEmpty();
+  }
+
+  public void testScriptsWithoutProvidesAffectAllLaterScripts() {
+    Compiler compiler = new Compiler();
+    compiler.init(
+        EXTERNS,
+        ImmutableList.of(
+            SourceFile.fromCode("first.js", "var x;"),
+            SourceFile.fromCode("globals.js", "var y;"),
+            SourceFile.fromCode("last.js", "goog.provide('last');")),
+        new CompilerOptions());
+    compiler.parse();
+    List<CompilerInput> inputs = compiler.getInputsInOrder();
+
+    assertThat(withDependents(compiler, inputs.get(1)))
+        .containsExactly(inputs.get(1), inputs.get(2))
+        .inOrder();
+    assertThat(withDependents(compiler, inputs.get(2))).containsExactly(inputs.get(2));
+  }
+
+  /** Returns the dependents of the given input, as if its code had changed to the same code. */
+  private static List<CompilerInput> withDependents(Compiler compiler, CompilerInput changed) {
+    return TypedScopeSnapshot.withDependents(
+        ImmutableMap.of(changed, changed.getAstRoot(compiler)),
+        compiler.getInputsInOrder(),
+        compiler.getModuleGraph(),
+        compiler);
+  }
+
+  private static CompilerOptions options() {
+    CompilerOptions options = new CompilerOptions();
+    options.setClosurePass(true);
+    options.setCheckTypes(true);
+    options.setChecksOnly(true);
+    options.setContinueAfterErrors(true);
+    options.setAllowHotswapReplaceScript(true);
+    return options;
+  }
+
+  private static byte[] checkAndSave(List<SourceFile> inputs) throws Exception {
+    Compiler compiler = check(inputs);
+    assertThat(compiler.getWarnings()).isEmpty();
+    return save(compiler);
+  }
+
+  private static Compiler check(List<SourceFile> inputs) {
+    Compiler compiler = new Compiler();
+    compiler.init(EXTERNS, inputs, options());
+    compiler.parse();
+    compiler.check();
+    return compiler;
+  }
+
+  private static byte[] save(Compiler compiler) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    compiler.saveState(out);
+    return out.toByteArray();
+  }
+
+  private static Compiler restore(byte[] state) throws Exception {
+    return restore(state, ImmutableList.of(A, B, C));
+  }
+
+  private static Compiler restore(byte[] state, List<SourceFile> inputs) throws Exception {
+    Compiler compiler = new Compiler();
+    compiler.init(EXTERNS, inputs, options());
+    compiler.restoreState(new ByteArrayInputStream(state));
+    return compiler;
+  }
+}
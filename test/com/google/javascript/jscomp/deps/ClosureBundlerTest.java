@@ -19,10 +19,18 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Mockito.RETURNS_SMART_NULLS;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharSource;
 import com.google.javascript.jscomp.transpile.TranspileResult;
 import com.google.javascript.jscomp.transpile.Transpiler;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import junit.framework.TestCase;
 import org.mockito.Mockito;
 
@@ -131,4 +139,75 @@ public final class ClosureBundlerTest extends TestCase {
         .isEqualTo("goog.loadModule(function(exports) {'use strict';TRANSPILED;\n"
             + ";return exports;});\n");
   }
+
+  public void testAppendAllTo() throws IOException {
+    // Transpiles each file to its path, after a delay that makes later inputs finish first.
+    Transpiler transpiler = new Transpiler() {
+      @Override
+      public TranspileResult transpile(Path path, String code) {
+        int delay = 100 - Integer.parseInt(code);
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        return new TranspileResult(path, code, path + ";", "map:" + path);
+      }
+
+      @Override
+      public String runtime() {
+        return "";
+      }
+    };
+
+    Map<DependencyInfo, CharSource> inputs = new LinkedHashMap<>();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      boolean isModule = i % 2 == 0;
+      inputs.put(
+          new SimpleDependencyInfo(
+              "f" + i + ".js", null, ImmutableList.<String>of(), null, isModule),
+          CharSource.wrap(Integer.toString(i)));
+      expected.append(isModule ? "goog.loadModule(\"f" + i + ".js;\");\n"
+          : "(0,eval(\"f" + i + ".js;\"));\n");
+    }
+
+    ClosureBundler bundler = new ClosureBundler(transpiler).useEval(true);
+    StringBuilder sb = new StringBuilder();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      bundler.appendAllTo(sb, inputs, executor);
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(sb.toString()).isEqualTo(expected.toString());
+    assertThat(bundler.getSourceMap("f42.js")).isEqualTo("map:f42.js");
+  }
+
+  public void testAppendAllToRethrowsReadFailure() {
+    Map<DependencyInfo, CharSource> inputs = new LinkedHashMap<>();
+    inputs.put(TRADITIONAL, CharSource.wrap("ok"));
+    inputs.put(MODULE, new CharSource() {
+      @Override
+      public Reader openStream() throws IOException {
+        throw new IOException("unreadable");
+      }
+    });
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      new ClosureBundler().appendAllTo(new StringBuilder(), inputs, executor);
+      fail("Expected an IOException");
+    } catch (IOException expected) {
+      assertThat(expected.getMessage()).isEqualTo("unreadable");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testEscapingMatchesEscaper() throws IOException {
+    String s = "a\"b'c<d=e>f&g\b\t\n\f\r\\h\u0001\u00e9\u2028\ud83d\ude00 z~\u007f";
+    StringBuilder sb = new StringBuilder();
+    SourceCodeEscapers.appendJavascriptEscaped(s, sb);
+    assertThat(sb.toString()).isEqualTo(SourceCodeEscapers.javascriptEscaper().escape(s));
+  }
 }
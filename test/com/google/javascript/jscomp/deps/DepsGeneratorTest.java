@@ -22,9 +22,13 @@ import static com.google.common.truth.Truth.assertWithMessage;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.google.javascript.jscomp.BasicErrorManager;
+import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.ErrorManager;
+import com.google.javascript.jscomp.JSError;
 import com.google.javascript.jscomp.PrintStreamErrorManager;
 import com.google.javascript.jscomp.SourceFile;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import junit.framework.TestCase;
@@ -40,6 +44,143 @@ public final class DepsGeneratorTest extends TestCase {
     errorManager = new PrintStreamErrorManager(System.err);
   }
 
+  public void testDependencyInfoCache() throws Exception {
+    DependencyInfoCache cache = new DependencyInfoCache();
+    List<SourceFile> srcs = ImmutableList.of(
+        SourceFile.fromCode("/base/javascript/foo/a.js", "goog.provide('a');"),
+        SourceFile.fromCode("/base/javascript/foo/b.js", "goog.provide('b'); goog.require('a');"),
+        SourceFile.fromCode("/base/javascript/foo/c.js", "let c = 1; goog.provide('c');"));
+    String output = createCachingDepsGenerator(srcs, cache).computeDependencyCalls();
+    assertNoWarnings();
+    assertThat(cache.size()).isEqualTo(3);
+    assertThat(cache.getHitCount()).isEqualTo(0);
+
+    // A second run with one changed file only parses that file, and gives the same output as
+    // a run without the cache.
+    List<SourceFile> changedSrcs = ImmutableList.of(
+        srcs.get(0),
+        srcs.get(1),
+        SourceFile.fromCode("/base/javascript/foo/c.js", "goog.provide('c'); let c = 1;"));
+    String cachedOutput = createCachingDepsGenerator(changedSrcs, cache).computeDependencyCalls();
+    assertNoWarnings();
+    assertThat(cache.getHitCount()).isEqualTo(2);
+    assertThat(cache.getMissCount()).isEqualTo(4);
+    assertThat(cachedOutput).isEqualTo(output);
+    assertThat(cachedOutput).contains("{'lang': 'es6'}");
+
+    // Files that are no longer sources are dropped from the cache.
+    createCachingDepsGenerator(srcs.subList(0, 1), cache).computeDependencyCalls();
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  public void testParallelParsing() throws Exception {
+    List<SourceFile> srcs = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      srcs.add(SourceFile.fromCode(
+          "/base/javascript/foo/f" + i + ".js",
+          "goog.provide('f" + i + "');" + (i > 0 ? "goog.require('f" + (i - 1) + "');" : "")));
+    }
+    String output = createCachingDepsGenerator(srcs, null).computeDependencyCalls();
+    String parallelOutput =
+        createCachingDepsGenerator(srcs, null).setParseThreadCount(3).computeDependencyCalls();
+
+    assertNoWarnings();
+    assertThat(parallelOutput).isEqualTo(output);
+  }
+
+  public void testParallelParsingKeepsDiagnosticOrder() throws Exception {
+    List<SourceFile> srcs = ImmutableList.of(
+        SourceFile.fromCode(
+            "/base/javascript/foo/a.js",
+            "goog.module('a');\nexport var a;\ngoog.require(b);"),
+        SourceFile.fromCode("/base/javascript/foo/b.js", "goog.provide(c);"));
+    List<String> diagnostics = new ArrayList<>();
+    errorManager = new RecordingErrorManager(diagnostics);
+    createCachingDepsGenerator(srcs, null).computeDependencyCalls();
+    List<String> parallelDiagnostics = new ArrayList<>();
+    errorManager = new RecordingErrorManager(parallelDiagnostics);
+    createCachingDepsGenerator(srcs, null).setParseThreadCount(2).computeDependencyCalls();
+
+    // The warning on the second line of a.js comes before the error on its third line.
+    assertThat(diagnostics.get(0)).startsWith("WARNING");
+    assertThat(diagnostics.get(1)).startsWith("ERROR");
+    assertThat(parallelDiagnostics).isEqualTo(diagnostics);
+  }
+
+  public void testSavedDependencyInfoCache() throws Exception {
+    DependencyInfoCache cache = new DependencyInfoCache();
+    List<SourceFile> srcs = ImmutableList.of(
+        SourceFile.fromCode("/base/javascript/foo/a.js", "let a = 1; goog.provide('a');"));
+    String output = createCachingDepsGenerator(srcs, cache).computeDependencyCalls();
+    File file = File.createTempFile("deps", ".cache");
+    file.deleteOnExit();
+    cache.save(file);
+
+    DependencyInfoCache loadedCache = DependencyInfoCache.load(file);
+    String cachedOutput = createCachingDepsGenerator(srcs, loadedCache).computeDependencyCalls();
+    assertNoWarnings();
+    assertThat(loadedCache.getHitCount()).isEqualTo(1);
+    assertThat(cachedOutput).isEqualTo(output);
+    assertThat(cachedOutput).contains("{'lang': 'es6'}");
+  }
+
+  public void testDependencyInfoCacheIsKeyedByModuleResolution() throws Exception {
+    DependencyInfoCache cache = new DependencyInfoCache();
+    List<SourceFile> srcs = ImmutableList.of(
+        SourceFile.fromCode("/base/javascript/foo/a.js", "goog.provide('a');"));
+    createCachingDepsGenerator(srcs, cache).computeDependencyCalls();
+    new DepsGenerator(
+            ImmutableList.<SourceFile>of(),
+            srcs,
+            DepsGenerator.InclusionStrategy.ALWAYS,
+            "/base/javascript/closure",
+            errorManager,
+            new ModuleLoader(
+                null,
+                ImmutableList.of("/base/"),
+                ImmutableList.<DependencyInfo>of(),
+                ModuleLoader.PathResolver.ABSOLUTE,
+                ModuleLoader.ResolutionMode.NODE))
+        .setDependencyInfoCache(cache)
+        .computeDependencyCalls();
+
+    assertNoWarnings();
+    assertThat(cache.getHitCount()).isEqualTo(0);
+    assertThat(cache.getMissCount()).isEqualTo(2);
+  }
+
+  public void testTokenParser() throws Exception {
+    List<SourceFile> srcs = ImmutableList.of(
+        SourceFile.fromCode("/base/javascript/foo/a.js", "goog.provide('a');"),
+        SourceFile.fromCode("/base/javascript/foo/b.js",
+            "goog.module('b');\nconst a = goog.require('a');"),
+        SourceFile.fromCode("/base/javascript/foo/c.js", "export const c = 1;"),
+        SourceFile.fromCode("/base/javascript/foo/d.js", "import './c.js';"));
+    String output = createCachingDepsGenerator(srcs, null).computeDependencyCalls();
+    String tokenOutput =
+        createCachingDepsGenerator(srcs, null).setUseTokenParser(true).computeDependencyCalls();
+
+    assertNoWarnings();
+    assertThat(tokenOutput).isEqualTo(output);
+  }
+
+  private DepsGenerator createCachingDepsGenerator(
+      List<SourceFile> srcs, DependencyInfoCache cache) {
+    return new DepsGenerator(
+            ImmutableList.<SourceFile>of(),
+            srcs,
+            DepsGenerator.InclusionStrategy.ALWAYS,
+            "/base/javascript/closure",
+            errorManager,
+            new ModuleLoader(
+                null,
+                ImmutableList.of("/base/"),
+                ImmutableList.<DependencyInfo>of(),
+                ModuleLoader.PathResolver.ABSOLUTE,
+                ModuleLoader.ResolutionMode.LEGACY))
+        .setDependencyInfoCache(cache);
+  }
+
   public void testEs6Modules() throws Exception {
     List<SourceFile> srcs = new ArrayList<>();
     srcs.add(SourceFile.fromCode("/base/javascript/foo/foo.js", "import '../closure/goog/array';"));
@@ -452,6 +593,27 @@ public final class DepsGeneratorTest extends TestCase {
     }
   }
 
+  /** Records the level and description of each diagnostic, in the order they are reported. */
+  private static final class RecordingErrorManager extends BasicErrorManager {
+    private final List<String> diagnostics;
+
+    RecordingErrorManager(List<String> diagnostics) {
+      this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public void report(CheckLevel level, JSError error) {
+      super.report(level, error);
+      diagnostics.add(level + " " + error.description);
+    }
+
+    @Override
+    public void println(CheckLevel level, JSError error) {}
+
+    @Override
+    protected void printSummary() {}
+  }
+
   private void assertNoWarnings() {
     assertErrorWarningCount(0, 0);
   }
@@ -19,6 +19,8 @@ package com.google.javascript.jscomp.deps;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import junit.framework.TestCase;
 /**
@@ -220,6 +222,40 @@ public class Es6SortedDependenciesTest extends TestCase {
     assertThat(sorted.getSortedList()).containsExactly(c, a, b).inOrder();
   }
 
+  public void testUnsortedDependencies() {
+    SimpleDependencyInfo a =
+        new SimpleDependencyInfo("A", "A", provides("A"), requires("C", "C"), false);
+    SimpleDependencyInfo b = new SimpleDependencyInfo("B", "B", provides("B"), requires(), false);
+    SimpleDependencyInfo c = new SimpleDependencyInfo("C", "C", provides("C"), requires(), false);
+
+    SortedDependencies<SimpleDependencyInfo> sorted =
+        createSortedDependencies(ImmutableList.of(a, b, c));
+
+    assertThat(sorted.getDependenciesOf(ImmutableList.of(a), false))
+        .containsExactly(a, c).inOrder();
+    assertThat(sorted.getDependenciesOf(ImmutableList.of(a), true))
+        .containsExactly(c, a).inOrder();
+  }
+
+  public void testLongDependencyChain() {
+    // Deep enough to overflow the stack if sorting or pruning recursed on each dependency.
+    int length = 100000;
+    List<SimpleDependencyInfo> chain = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      chain.add(new SimpleDependencyInfo(
+          "f" + i, "f" + i, provides("s" + i), requires("s" + (i + 1)), false));
+    }
+
+    SortedDependencies<SimpleDependencyInfo> sorted = createSortedDependencies(chain);
+
+    List<SimpleDependencyInfo> expected = new ArrayList<>(chain);
+    Collections.reverse(expected);
+    assertThat(sorted.getSortedList()).isEqualTo(expected);
+    assertThat(sorted.getSortedDependenciesOf(ImmutableList.of(chain.get(length - 2))))
+        .containsExactly(chain.get(length - 1), chain.get(length - 2)).inOrder();
+    assertThat(sorted.getSortedDependenciesOf(ImmutableList.of(chain.get(0)))).hasSize(length);
+  }
+
   private static void assertSortedInputs(
       List<SimpleDependencyInfo> expected, List<SimpleDependencyInfo> shuffled) throws Exception {
     SortedDependencies<SimpleDependencyInfo> sorted = createSortedDependencies(shuffled);
@@ -20,8 +20,13 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.javascript.jscomp.CheckLevel;
 import com.google.javascript.jscomp.CompilerInput;
+import com.google.javascript.jscomp.ErrorHandler;
+import com.google.javascript.jscomp.JSError;
 import com.google.javascript.jscomp.SourceFile;
+import java.util.ArrayList;
+import java.util.List;
 import junit.framework.TestCase;
 
 /** Tests for {@link ModuleLoader}. */
@@ -363,6 +368,49 @@ public final class ModuleLoaderTest extends TestCase {
     assertUri("/node_modules/B/lib/b.js", loader.resolve("/app.js").resolveJsModule("B"));
   }
 
+  public void testResolutionsAreCachedPerDirectory() {
+    ModuleLoader loader =
+        new ModuleLoader(
+            null,
+            ImmutableList.<String>of(),
+            inputs("/app/a.js", "/app/b.js", "/app/sub/c.js", "/node_modules/B/index.js"),
+            ModuleLoader.PathResolver.RELATIVE,
+            ModuleLoader.ResolutionMode.NODE,
+            null);
+
+    assertUri("/node_modules/B/index.js", loader.resolve("/app/a.js").resolveJsModule("B"));
+    assertUri("/node_modules/B/index.js", loader.resolve("/app/b.js").resolveJsModule("B"));
+    assertThat(loader.getResolutionCacheMissCount()).isEqualTo(1);
+    assertThat(loader.getResolutionCacheHitCount()).isEqualTo(1);
+
+    // Relative addresses resolve differently from another directory.
+    assertUri("/app/b.js", loader.resolve("/app/a.js").resolveJsModule("./b"));
+    assertNull(loader.resolve("/app/sub/c.js").resolveJsModule("./b"));
+    assertUri("/app/b.js", loader.resolve("/app/sub/c.js").resolveJsModule("../b"));
+    assertThat(loader.getResolutionCacheMissCount()).isEqualTo(4);
+    assertThat(loader.getResolutionCacheHitCount()).isEqualTo(1);
+  }
+
+  public void testFailedResolutionsAreReportedEveryTime() {
+    final List<JSError> errors = new ArrayList<>();
+    ModuleLoader loader =
+        new ModuleLoader(
+            new ErrorHandler() {
+              @Override
+              public void report(CheckLevel level, JSError error) {
+                errors.add(error);
+              }
+            },
+            ImmutableList.<String>of(),
+            inputs("/app/a.js"),
+            ModuleLoader.ResolutionMode.BROWSER);
+
+    assertNull(loader.resolve("/app/a.js").resolveJsModule("./missing.js"));
+    assertNull(loader.resolve("/app/a.js").resolveJsModule("./missing.js"));
+    assertThat(errors).hasSize(2);
+    assertThat(loader.getResolutionCacheHitCount()).isEqualTo(0);
+  }
+
   CompilerInput input(String name) {
     return new CompilerInput(SourceFile.fromCode(name, ""), false);
   }
@@ -86,6 +86,17 @@ public final class BaseTranspilerTest extends TestCase {
     assertThat(result.sourceMap).isEmpty();
   }
 
+  public void testCompilerSupplier_compileReusesExterns() {
+    compiler.compile(SOURCE_JS, "const x = () => 42;");
+    BaseTranspiler.CompileResult result = compiler.compile(FOO_JS, "let y = Symbol();");
+    assertThat(result.source).isEqualTo("$jscomp.initSymbol();\nvar y = Symbol();\n");
+    assertThat(result.errors).isEmpty();
+  }
+
+  public void testCompilerSupplier_runtimeIsCompiledOnce() {
+    assertThat(compiler.runtime("es6_runtime")).isSameAs(compiler.runtime("es6_runtime"));
+  }
+
   public void testCompilerSupplier_runtime() {
     String runtime = compiler.runtime("es6_runtime");
     assertThat(runtime).contains("$jscomp.polyfill(\"Map\"");
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 The Closure Compiler Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.javascript.jscomp.transpile;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import junit.framework.TestCase;
+
+/** Tests for {@link BatchTranspiler}. */
+public final class BatchTranspilerTest extends TestCase {
+
+  private final AtomicLong nanos = new AtomicLong();
+  private ExecutorService executor;
+  private BatchTranspiler transpiler;
+
+  /** Upper-cases its input, taking one millisecond per character. */
+  private final Transpiler delegate = new Transpiler() {
+    @Override
+    public TranspileResult transpile(Path path, String code) {
+      if (code.contains("error")) {
+        throw new IllegalStateException("Transpilation failed: " + path);
+      }
+      nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(code.length()));
+      return new TranspileResult(path, code, code.toUpperCase(), "");
+    }
+
+    @Override
+    public String runtime() {
+      return "runtime";
+    }
+  };
+
+  @Override
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+    transpiler = new BatchTranspiler(delegate, executor, new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    });
+  }
+
+  @Override
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  public void testTranspileRecordsLatency() {
+    assertThat(transpiler.transpile(Paths.get("foo.js"), "foo").transpiled()).isEqualTo("FOO");
+    BatchTranspiler.LatencyHistogram histogram = transpiler.getLatencyHistogram();
+    assertThat(histogram.getCount()).isEqualTo(1);
+    assertThat(histogram.getMaxMicros()).isEqualTo(3000);
+  }
+
+  public void testTranspileAllKeepsOrder() {
+    Map<Path, String> files = new LinkedHashMap<>();
+    for (int i = 0; i < 50; i++) {
+      files.put(Paths.get("file" + i + ".js"), "var x" + i + ";");
+    }
+    ImmutableMap<Path, TranspileResult> results = transpiler.transpileAll(files);
+    assertThat(results.keySet()).containsExactlyElementsIn(files.keySet()).inOrder();
+    for (Map.Entry<Path, String> file : files.entrySet()) {
+      assertThat(results.get(file.getKey()).transpiled())
+          .isEqualTo(file.getValue().toUpperCase());
+    }
+    assertThat(transpiler.getLatencyHistogram().getCount()).isEqualTo(50);
+  }
+
+  public void testTranspileAllRethrowsFirstFailure() {
+    Map<Path, String> files = new LinkedHashMap<>();
+    files.put(Paths.get("ok.js"), "var x;");
+    files.put(Paths.get("bad1.js"), "error");
+    files.put(Paths.get("bad2.js"), "error");
+    try {
+      transpiler.transpileAll(files);
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException expected) {
+      assertThat(expected.getMessage()).contains("bad1.js");
+    }
+  }
+
+  public void testRuntimeDelegates() {
+    assertThat(transpiler.runtime()).isEqualTo("runtime");
+  }
+
+  public void testLatencyHistogramPercentiles() {
+    BatchTranspiler.LatencyHistogram histogram = new BatchTranspiler.LatencyHistogram();
+    assertThat(histogram.getPercentileMicros(99)).isEqualTo(0);
+    for (int i = 0; i < 90; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+    }
+    for (int i = 0; i < 10; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(1000));
+    }
+    assertThat(histogram.getCount()).isEqualTo(100);
+    // Percentiles are rounded up to the next power of two, but never exceed the maximum.
+    assertThat(histogram.getPercentileMicros(50)).isEqualTo(16);
+    assertThat(histogram.getPercentileMicros(90)).isEqualTo(16);
+    assertThat(histogram.getPercentileMicros(99)).isEqualTo(1000);
+    assertThat(histogram.getMaxMicros()).isEqualTo(1000);
+  }
+}
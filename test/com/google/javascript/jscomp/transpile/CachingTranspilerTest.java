@@ -18,13 +18,20 @@ package com.google.javascript.jscomp.transpile;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.Answers.RETURNS_SMART_NULLS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import junit.framework.TestCase;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -49,6 +56,24 @@ public final class CachingTranspilerTest extends TestCase {
     transpiler = new CachingTranspiler(delegate, CacheBuilder.newBuilder());
   }
 
+  private File directory;
+
+  @Override
+  public void tearDown() {
+    if (directory != null) {
+      for (File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+
+  private Path createDirectory() throws Exception {
+    Path path = Files.createTempDirectory("transpile-cache");
+    directory = path.toFile();
+    return path;
+  }
+
   public void testTranspileDelegates() {
     when(delegate.transpile(FOO_JS, "bar")).thenReturn(RESULT1);
     assertThat(transpiler.transpile(FOO_JS, "bar")).isSameAs(RESULT1);
@@ -61,6 +86,87 @@ public final class CachingTranspilerTest extends TestCase {
     verify(delegate, times(1)).transpile(FOO_JS, "bar");
   }
 
+  public void testCallerWeigherSeesTranspileResults() {
+    final List<Object> weighed = new ArrayList<>();
+    transpiler =
+        new CachingTranspiler(
+            delegate,
+            CacheBuilder.newBuilder()
+                .maximumWeight(100)
+                .weigher(
+                    new Weigher<Object, TranspileResult>() {
+                      @Override
+                      public int weigh(Object key, TranspileResult value) {
+                        weighed.add(value);
+                        return value.transpiled().length();
+                      }
+                    }));
+    when(delegate.transpile(FOO_JS, "bar")).thenReturn(RESULT1);
+    assertThat(transpiler.transpile(FOO_JS, "bar")).isSameAs(RESULT1);
+    assertThat(weighed).containsExactly(RESULT1);
+  }
+
+  public void testDiskCacheRestoresUntranspiledCode() throws Exception {
+    Path path = createDirectory();
+    TranspileResult untranspiled = new TranspileResult(FOO_JS, "bar", "bar", "");
+    when(delegate.transpile(FOO_JS, "bar")).thenReturn(untranspiled);
+    new CachingTranspiler(delegate, 1 << 20, path, 1 << 20).transpile(FOO_JS, "bar");
+
+    transpiler = new CachingTranspiler(mock(Transpiler.class), 1 << 20, path, 1 << 20);
+    TranspileResult restored = transpiler.transpile(FOO_JS, "bar");
+    assertThat(restored).isEqualTo(untranspiled);
+    assertThat(restored.wasTranspiled()).isFalse();
+  }
+
+  public void testTranspileCachesUntranspiledCode() {
+    TranspileResult untranspiled = new TranspileResult(FOO_JS, "bar", "bar", "");
+    when(delegate.transpile(FOO_JS, "bar")).thenReturn(untranspiled);
+    assertThat(transpiler.transpile(FOO_JS, "bar")).isSameAs(untranspiled);
+    TranspileResult cached = transpiler.transpile(FOO_JS, "bar");
+    assertThat(cached).isEqualTo(untranspiled);
+    assertThat(cached.wasTranspiled()).isFalse();
+    verify(delegate, times(1)).transpile(FOO_JS, "bar");
+  }
+
+  public void testDiskCacheBacksMemoryCache() throws Exception {
+    transpiler = new CachingTranspiler(delegate, 0, createDirectory(), 1 << 20);
+    when(delegate.transpile(FOO_JS, "bar")).thenReturn(RESULT1);
+    assertThat(transpiler.transpile(FOO_JS, "bar")).isSameAs(RESULT1);
+    // Nothing fits in memory, so this is read back from disk.
+    assertThat(transpiler.transpile(FOO_JS, "bar")).isEqualTo(RESULT1);
+    verify(delegate, times(1)).transpile(FOO_JS, "bar");
+  }
+
+  public void testDiskCacheSurvivesRestart() throws Exception {
+    Path path = createDirectory();
+    TranspileResult withSourceMap = new TranspileResult(FOO_JS, "bar", "baz", "{\"version\":3}");
+    when(delegate.transpile(FOO_JS, "bar")).thenReturn(withSourceMap);
+    new CachingTranspiler(delegate, 1 << 20, path, 1 << 20).transpile(FOO_JS, "bar");
+
+    Transpiler restarted = mock(Transpiler.class);
+    transpiler = new CachingTranspiler(restarted, 1 << 20, path, 1 << 20);
+    assertThat(transpiler.transpile(FOO_JS, "bar")).isEqualTo(withSourceMap);
+    verify(restarted, never()).transpile(FOO_JS, "bar");
+  }
+
+  public void testDiskCacheEvictsLeastRecentlyUsed() throws Exception {
+    transpiler = new CachingTranspiler(delegate, 0, createDirectory(), 40);
+    when(delegate.transpile(FOO_JS, "bar")).thenReturn(RESULT1);
+    when(delegate.transpile(BAR_JS, "baz")).thenReturn(RESULT3);
+    when(delegate.transpile(QUX_JS, "qux")).thenReturn(RESULT2);
+    transpiler.transpile(FOO_JS, "bar");
+    transpiler.transpile(BAR_JS, "baz");
+    transpiler.transpile(FOO_JS, "bar");
+    // Each entry takes under 20 bytes, so this evicts bar.js, the least recently used.
+    transpiler.transpile(QUX_JS, "qux");
+    assertThat(directory.listFiles()).hasLength(2);
+
+    transpiler.transpile(FOO_JS, "bar");
+    transpiler.transpile(BAR_JS, "baz");
+    verify(delegate, times(1)).transpile(FOO_JS, "bar");
+    verify(delegate, times(2)).transpile(BAR_JS, "baz");
+  }
+
   public void testTranspileDependsOnBothPathAndCode() {
     when(delegate.transpile(FOO_JS, "bar")).thenReturn(RESULT1);
     when(delegate.transpile(BAR_JS, "bar")).thenReturn(RESULT2);
@@ -19,12 +19,14 @@ package com.google.javascript.refactoring;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.javascript.jscomp.Compiler;
 import com.google.javascript.jscomp.CompilerOptions;
 import com.google.javascript.jscomp.SourceFile;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.junit.BeforeClass;
@@ -727,6 +729,138 @@ public class RefasterJsScannerTest {
     assertChanges(externs, originalCode, null, template);
   }
 
+  @Test
+  public void test_shardedDriveMatchesUnshardedDrive() throws Exception {
+    final String template = ""
+        + "/** @param {?} x */\n"
+        + "function before_foo(x) {\n"
+        + "  x.foo();\n"
+        + "};\n"
+        + "/** @param {?} x */\n"
+        + "function after_foo(x) {\n"
+        + "  x.bar();\n"
+        + "};\n";
+    ImmutableList<SourceFile> inputs = ImmutableList.of(
+        SourceFile.fromCode("a.js", "goog.provide('a'); a.x = {}; a.x.foo();"),
+        SourceFile.fromCode("b.js", "goog.provide('b'); goog.require('a'); a.x.foo();"),
+        SourceFile.fromCode("c.js", "goog.provide('c'); goog.require('b'); a.x.foo();"),
+        SourceFile.fromCode("d.js", "var d = {}; d.foo();"));
+    String externs = "function Symbol() {}; var goog = {}; goog.provide; goog.require;";
+
+    RefasterJsScanner scanner = new RefasterJsScanner();
+    scanner.loadRefasterJsTemplateFromCode(template);
+    List<SuggestedFix> expected = new RefactoringDriver.Builder(scanner)
+        .addExternsFromCode(externs)
+        .addInputs(inputs)
+        .build()
+        .drive();
+
+    final AtomicInteger doneShards = new AtomicInteger();
+    List<SuggestedFix> fixes = new RefactoringDriver.Builder(
+            new Supplier<RefasterJsScanner>() {
+              @Override
+              public RefasterJsScanner get() {
+                RefasterJsScanner scanner = new RefasterJsScanner();
+                try {
+                  scanner.loadRefasterJsTemplateFromCode(template);
+                } catch (Exception e) {
+                  throw new AssertionError(e);
+                }
+                return scanner;
+              }
+            })
+        .addExternsFromCode(externs)
+        .addInputs(inputs)
+        .withSharding(3, 2)
+        .withProgressListener(new RefactoringDriver.ProgressListener() {
+          @Override
+          public void shardDone(int done, int total) {
+            assertEquals(2, total);
+            doneShards.incrementAndGet();
+          }
+        })
+        .build()
+        .drive();
+
+    assertEquals(2, doneShards.get());
+    assertEquals(4, fixes.size());
+    ImmutableMap.Builder<String, String> code = ImmutableMap.builder();
+    for (SourceFile input : inputs) {
+      code.put(input.getName(), input.getCode());
+    }
+    assertEquals(
+        ApplySuggestedFixes.applySuggestedFixesToCode(expected, code.build()),
+        ApplySuggestedFixes.applySuggestedFixesToCode(fixes, code.build()));
+  }
+
+  @Test
+  public void test_shardedDriveMatchesTypedTemplateInEachShard() throws Exception {
+    final String template = ""
+        + "/** @param {!Foo} x */\n"
+        + "function before_foo(x) {\n"
+        + "  x.foo();\n"
+        + "};\n"
+        + "/** @param {!Foo} x */\n"
+        + "function after_foo(x) {\n"
+        + "  x.bar();\n"
+        + "};\n";
+    ImmutableList<SourceFile> inputs = ImmutableList.of(
+        SourceFile.fromCode("a.js", "new Foo().foo();"),
+        SourceFile.fromCode("b.js", "var o = {foo: function() {}}; o.foo(); new Foo().foo();"));
+    String externs = ""
+        + "/** @constructor */ function Foo() {}\n"
+        + "Foo.prototype.foo = function() {};\n"
+        + "Foo.prototype.bar = function() {};\n";
+
+    RefasterJsScanner scanner = new RefasterJsScanner();
+    scanner.loadRefasterJsTemplateFromCode(template);
+    List<SuggestedFix> expected = new RefactoringDriver.Builder(scanner)
+        .addExternsFromCode(externs)
+        .addInputs(inputs)
+        .build()
+        .drive();
+    assertEquals(2, expected.size());
+
+    // A single scanner would match the second shard against the types of the first one.
+    try {
+      new RefactoringDriver.Builder(scanner)
+          .addExternsFromCode(externs)
+          .addInputs(inputs)
+          .withSharding(2, 1)
+          .build();
+      fail("Expected sharding with a single scanner to be rejected");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    List<SuggestedFix> fixes = new RefactoringDriver.Builder(
+            new Supplier<RefasterJsScanner>() {
+              @Override
+              public RefasterJsScanner get() {
+                RefasterJsScanner scanner = new RefasterJsScanner();
+                try {
+                  scanner.loadRefasterJsTemplateFromCode(template);
+                } catch (Exception e) {
+                  throw new AssertionError(e);
+                }
+                return scanner;
+              }
+            })
+        .addExternsFromCode(externs)
+        .addInputs(inputs)
+        .withSharding(2, 1)
+        .build()
+        .drive();
+
+    ImmutableMap.Builder<String, String> code = ImmutableMap.builder();
+    for (SourceFile input : inputs) {
+      code.put(input.getName(), input.getCode());
+    }
+    assertEquals(
+        ApplySuggestedFixes.applySuggestedFixesToCode(expected, code.build()),
+        ApplySuggestedFixes.applySuggestedFixesToCode(fixes, code.build()));
+  }
+
   private static Compiler createCompiler() {
     return new Compiler();
   }
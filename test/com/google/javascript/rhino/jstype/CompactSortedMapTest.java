@@ -0,0 +1,189 @@
+/*
+ *
+ * ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is Rhino code, released
+ * May 6, 1999.
+ *
+ * The Initial Developer of the Original Code is
+ * Netscape Communications Corporation.
+ * Portions created by the Initial Developer are Copyright (C) 1997-1999
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ *   Google Inc.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * the GNU General Public License Version 2 or later (the "GPL"), in which
+ * case the provisions of the GPL are applicable instead of those above. If
+ * you wish to allow use of your version of this file only under the terms of
+ * the GPL and not to allow others to use your version of this file under the
+ * MPL, indicate your decision by deleting the provisions above and replacing
+ * them with the notice and other provisions required by the GPL. If you do
+ * not delete the provisions above, a recipient may use your version of this
+ * file under either the MPL or the GPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package com.google.javascript.rhino.jstype;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import junit.framework.TestCase;
+
+/** Tests for {@link CompactSortedMap}. */
+public final class CompactSortedMapTest extends TestCase {
+
+  public void testKeysAreSorted() {
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    map.put("c", 3);
+    map.put("a", 1);
+    map.put("b", 2);
+    assertThat(map.keySet()).containsExactly("a", "b", "c").inOrder();
+    assertThat(map.values()).containsExactly(1, 2, 3).inOrder();
+    assertThat(map.get("b")).isEqualTo(2);
+    assertThat(map.get("d")).isNull();
+  }
+
+  public void testPutAndRemove() {
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    assertThat(map.put("a", 1)).isNull();
+    assertThat(map.put("a", 2)).isEqualTo(1);
+    assertThat(map.remove("a")).isEqualTo(2);
+    assertThat(map.remove("a")).isNull();
+    assertThat(map).isEmpty();
+  }
+
+  public void testKeySetIsLive() {
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    Set<String> keys = map.keySet();
+    map.put("a", 1);
+    assertThat(keys).containsExactly("a");
+
+    // The view stays valid when the map switches to a tree.
+    for (int i = 0; i <= CompactSortedMap.MAX_ARRAY_SIZE; i++) {
+      map.put("k" + i, i);
+    }
+    assertThat(keys).hasSize(CompactSortedMap.MAX_ARRAY_SIZE + 2);
+    assertThat(new ArrayList<>(keys)).isEqualTo(new ArrayList<>(new TreeMap<>(map).keySet()));
+  }
+
+  public void testKeySetIsLiveAfterClear() {
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    for (int i = 0; i <= CompactSortedMap.MAX_ARRAY_SIZE; i++) {
+      map.put("k" + i, i);
+    }
+    Set<String> keys = map.keySet();
+    map.clear();
+    assertThat(keys).isEmpty();
+
+    map.put("a", 1);
+    assertThat(keys).containsExactly("a");
+  }
+
+  public void testIteratorFailsFastOnArrays() {
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    map.put("a", 1);
+    map.put("b", 2);
+    assertFailsFastOnAdd(map);
+
+    Iterator<Integer> values = map.values().iterator();
+    values.next();
+    map.remove("a");
+    try {
+      values.next();
+      fail("Expected ConcurrentModificationException");
+    } catch (ConcurrentModificationException expected) {
+    }
+  }
+
+  public void testIteratorFailsFastOnTree() {
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    for (int i = 0; i <= CompactSortedMap.MAX_ARRAY_SIZE; i++) {
+      map.put("k" + i, i);
+    }
+    assertFailsFastOnAdd(map);
+
+    Iterator<String> keys = map.keySet().iterator();
+    keys.next();
+    map.clear();
+    try {
+      keys.next();
+      fail("Expected ConcurrentModificationException");
+    } catch (ConcurrentModificationException expected) {
+    }
+  }
+
+  public void testReplacingValueDoesNotInvalidateIterators() {
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    map.put("a", 1);
+    map.put("b", 2);
+    Iterator<Map.Entry<String, Integer>> entries = map.entrySet().iterator();
+    entries.next();
+    map.put("b", 3);
+    assertThat(entries.next().getValue()).isEqualTo(3);
+  }
+
+  private static void assertFailsFastOnAdd(CompactSortedMap<Integer> map) {
+    Iterator<Map.Entry<String, Integer>> entries = map.entrySet().iterator();
+    entries.next();
+    map.put("new", 0);
+    try {
+      entries.next();
+      fail("Expected ConcurrentModificationException");
+    } catch (ConcurrentModificationException expected) {
+    }
+  }
+
+  public void testSmallMapsTakeLessMemoryThanTrees() {
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    long empty = map.estimateMemory();
+    map.put("a", 1);
+    assertThat(map.estimateMemory()).isGreaterThan(empty);
+
+    CompactSortedMap<Integer> large = new CompactSortedMap<>();
+    for (int i = 0; i <= CompactSortedMap.MAX_ARRAY_SIZE; i++) {
+      large.put("k" + i, i);
+    }
+    assertThat(large.estimateMemory()).isGreaterThan(8 * map.estimateMemory());
+  }
+
+  public void testRandomOperationsMatchTreeMap() {
+    Random random = new Random(42);
+    CompactSortedMap<Integer> map = new CompactSortedMap<>();
+    TreeMap<String, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < 2000; i++) {
+      // Few enough keys that the map keeps switching between small and large sizes.
+      String key = "k" + random.nextInt(2 * CompactSortedMap.MAX_ARRAY_SIZE);
+      if (random.nextInt(3) == 0) {
+        assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+      } else {
+        assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+      }
+      assertThat(map.get(key)).isEqualTo(expected.get(key));
+      assertThat(map.size()).isEqualTo(expected.size());
+    }
+    assertThat(new ArrayList<>(map.entrySet()))
+        .isEqualTo(new ArrayList<Map.Entry<String, Integer>>(expected.entrySet()));
+    assertThat(map).isEqualTo(expected);
+    assertThat(map.keySet().hashCode()).isEqualTo(expected.keySet().hashCode());
+  }
+}
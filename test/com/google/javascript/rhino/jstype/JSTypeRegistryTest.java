@@ -38,6 +38,7 @@
 
 package com.google.javascript.rhino.jstype;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.javascript.rhino.testing.Asserts;
 
 import junit.framework.TestCase;
@@ -84,6 +85,114 @@ public class JSTypeRegistryTest extends TestCase {
     assertFalse(typeRegistry.getGreatestSubtypeWithProperty(type, "foo").isUnknownType());
   }
 
+  public void testSubtypeChecksAreMemoized() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    JSType numberOrString = typeRegistry.createUnionType(
+        number, typeRegistry.getNativeType(JSTypeNative.STRING_TYPE));
+
+    assertTrue(number.isSubtype(numberOrString));
+    long misses = typeRegistry.getSubtypeCacheMissCount();
+    long hits = typeRegistry.getSubtypeCacheHitCount();
+    assertTrue(number.isSubtype(numberOrString));
+    assertEquals(misses, typeRegistry.getSubtypeCacheMissCount());
+    assertEquals(hits + 1, typeRegistry.getSubtypeCacheHitCount());
+  }
+
+  public void testSubtypeCacheIsInvalidatedByNewProperty() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    ObjectType object = typeRegistry.createAnonymousObjectType(null);
+    JSType record = typeRegistry.createRecordType(ImmutableMap.of("x", number));
+
+    assertFalse(object.isSubtype(record));
+    object.defineDeclaredProperty("x", number, null);
+    assertTrue(object.isSubtype(record));
+    assertTrue(typeRegistry.getSubtypeCacheInvalidationCount() > 0);
+  }
+
+  public void testSubtypeCacheIsInvalidatedByNewPropertyInUnion() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    ObjectType object = typeRegistry.createAnonymousObjectType(null);
+    JSType recordOrNumber = typeRegistry.createUnionType(
+        typeRegistry.createRecordType(ImmutableMap.of("x", number)), number);
+
+    assertFalse(object.isSubtype(recordOrNumber));
+    object.defineDeclaredProperty("x", number, null);
+    assertTrue(object.isSubtype(recordOrNumber));
+  }
+
+  public void testSubtypeCacheKeepsNominalResultsOnNewProperty() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    FunctionType ctor = typeRegistry.createConstructorType("Foo", null, null, null, null, false);
+    ObjectType foo = ctor.getInstanceType();
+    JSType object = typeRegistry.getNativeType(JSTypeNative.OBJECT_TYPE);
+
+    assertTrue(foo.isSubtype(object));
+    long hits = typeRegistry.getSubtypeCacheHitCount();
+    ctor.getPrototype().defineDeclaredProperty("x", number, null);
+    assertTrue(foo.isSubtype(object));
+    assertEquals(hits + 1, typeRegistry.getSubtypeCacheHitCount());
+  }
+
+  public void testEstimatePropertyMapMemory() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    JSType number = typeRegistry.getNativeType(JSTypeNative.NUMBER_TYPE);
+    FunctionType ctor = typeRegistry.createConstructorType("Foo", null, null, null, null, false);
+    typeRegistry.declareType("Foo", ctor);
+    long before = typeRegistry.estimatePropertyMapMemory();
+
+    ctor.getPrototype().defineDeclaredProperty("x", number, null);
+    ctor.getInstanceType().defineDeclaredProperty("y", number, null);
+    assertTrue(typeRegistry.estimatePropertyMapMemory() > before);
+  }
+
+  public void testFreeze() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    FunctionType ctor = typeRegistry.createConstructorType("Foo", null, null, null, null, false);
+    typeRegistry.declareType("Foo", ctor.getInstanceType());
+    typeRegistry.freeze();
+    assertTrue(typeRegistry.isFrozen());
+
+    assertTypeEquals(ctor.getInstanceType(), typeRegistry.getType("Foo"));
+    assertTypeEquals(
+        typeRegistry.getNativeType(JSTypeNative.OBJECT_TYPE), typeRegistry.getType("Object"));
+    try {
+      typeRegistry.declareType("Bar", ctor.getInstanceType());
+      fail("Expected the frozen registry to reject new types");
+    } catch (IllegalStateException expected) {
+    }
+
+    typeRegistry.resetForTypeCheck();
+    assertFalse(typeRegistry.isFrozen());
+    assertTrue(typeRegistry.declareType("Bar", ctor.getInstanceType()));
+  }
+
+  public void testFrozenPropertyIndex() {
+    JSTypeRegistry typeRegistry = new JSTypeRegistry(null);
+    ObjectType foo = typeRegistry.createObjectType("Foo", null);
+    ObjectType bar = typeRegistry.createObjectType("Bar", null);
+    typeRegistry.registerPropertyOnType("x", foo);
+    typeRegistry.registerPropertyOnType("x", bar);
+    JSType unknown = typeRegistry.getNativeType(JSTypeNative.UNKNOWN_TYPE);
+    JSType withX = typeRegistry.getGreatestSubtypeWithProperty(unknown, "x");
+
+    typeRegistry.freeze();
+
+    // The unions of the index are built by freeze(), so lookups don't build them concurrently.
+    assertSame(withX, typeRegistry.getGreatestSubtypeWithProperty(unknown, "x"));
+    assertTypeEquals(foo, typeRegistry.getGreatestSubtypeWithProperty(foo, "x"));
+    assertTrue(typeRegistry.getGreatestSubtypeWithProperty(foo, "y").isNoType());
+    assertTrue(typeRegistry.canPropertyBeDefined(bar, "x"));
+    assertFalse(typeRegistry.canPropertyBeDefined(bar, "y"));
+
+    typeRegistry.resetForTypeCheck();
+    typeRegistry.registerPropertyOnType("y", foo);
+    assertTypeEquals(foo, typeRegistry.getGreatestSubtypeWithProperty(foo, "y"));
+  }
+
   private void assertTypeEquals(JSType a, JSType b) {
     Asserts.assertTypeEquals(a, b);
   }
@@ -38,6 +38,7 @@
 
 package com.google.javascript.rhino.jstype;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.javascript.rhino.testing.BaseJSTypeTestCase;
 
 /**
@@ -143,6 +144,43 @@ public class UnionTypeBuilderTest extends BaseJSTypeTestCase {
     assertEquals(1, builder.getAlternatesCount());
   }
 
+  public void testSameUnionIsBuiltOnce() {
+    JSType union = registry.createUnionType(STRING_TYPE, NUMBER_TYPE, OBJECT_TYPE);
+    assertSame(union, registry.createUnionType(STRING_TYPE, NUMBER_TYPE, OBJECT_TYPE));
+    assertSame(union, registry.createUnionType(STRING_TYPE, NUMBER_TYPE, OBJECT_TYPE, NUMBER_TYPE));
+    assertSame(union, registry.createUnionType(OBJECT_TYPE, NUMBER_TYPE, STRING_TYPE));
+  }
+
+  public void testUnionIsNotReusedAfterTypeChange() {
+    FunctionType ctor = registry.createConstructorType("Foo", null, null, null, null, false);
+    JSType union = registry.createUnionType(ctor.getInstanceType(), DATE_TYPE);
+    assertTrue(union.isUnionType());
+    assertSame(union, registry.createUnionType(ctor.getInstanceType(), DATE_TYPE));
+
+    // Once Foo is a subtype of Date, it is subsumed by Date.
+    ctor.setPrototypeBasedOn(DATE_TYPE);
+    assertTypeEquals(DATE_TYPE, registry.createUnionType(ctor.getInstanceType(), DATE_TYPE));
+  }
+
+  public void testUnionThatComparedPropertiesIsNotReused() {
+    ObjectType object = registry.createAnonymousObjectType(null);
+    object.defineDeclaredProperty("y", NUMBER_TYPE, null);
+    JSType record = registry.createRecordType(ImmutableMap.of("x", NUMBER_TYPE));
+    JSType union = registry.createUnionType(object, record);
+    assertTrue(union.isUnionType());
+    assertNotSame(union, registry.createUnionType(object, record));
+
+    // Once object has the property of the record, it is subsumed by the record.
+    object.defineDeclaredProperty("x", NUMBER_TYPE, null);
+    assertTypeEquals(record, registry.createUnionType(object, record));
+  }
+
+  public void testValueTypesAreNotSubsumedByObjects() {
+    assertUnion("(Number|number)", NUMBER_TYPE, NUMBER_OBJECT_TYPE);
+    assertUnion("(Number|number)", NUMBER_OBJECT_TYPE, NUMBER_TYPE, NUMBER_TYPE);
+    assertUnion("(null|number)", NULL_TYPE, NUMBER_TYPE, NULL_TYPE);
+  }
+
   private void addRecordType(UnionTypeBuilder builder, boolean inferred) {
     RecordTypeBuilder recBuilder = new RecordTypeBuilder(registry);
     recBuilder.setSynthesized(inferred);